@@ -0,0 +1,137 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static java.lang.String.format;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import edu.rit.flick.genetics.util.ZipArchiveWriter;
+
+/**
+ * Compares deflating a synthetic genome with the word-at-a-time scanner and
+ * with the byte-at-a-time scanner, each deflating the same file in turn.
+ * That both give the same archive is checked by <code>WordScanningTest</code>.
+ * <p>
+ * Usage: <code>gradle benchmark [-PbenchmarkArgs="megabytes rounds"]</code>
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class ByteClassificationBenchmark
+{
+    private static final int     LINE_SIZE   = 70;
+
+    private static final byte [] NUCLEOTIDES = "ACGT".getBytes();
+
+    private static double deflate( final File fastaFile, final boolean wordScanning )
+            throws IOException
+    {
+        final File archive = File.createTempFile( "benchmark", ".flickfa" );
+        try
+        {
+            final FastaFileDeflator deflator = new FastaFileDeflator();
+            deflator.setWordScanning( wordScanning );
+
+            final long start = System.nanoTime();
+            try ( final ZipArchiveWriter zipArchive = new ZipArchiveWriter( archive ) )
+            {
+                deflator.deflateToArchive( fastaFile, zipArchive );
+            }
+            final long elapsed = System.nanoTime() - start;
+
+            return fastaFile.length() / ( elapsed / 1e9 ) / ( 1 << 20 );
+        } finally
+        {
+            archive.delete();
+        }
+    }
+
+    /**
+     * Writes mostly clean bases with the occasional soft-masked stretch, run of
+     * <code>N</code>s and IUPAC code.
+     */
+    private static void generate( final File fastaFile, final long size ) throws IOException
+    {
+        final Random random = new Random( 0 );
+        try ( OutputStream out = new BufferedOutputStream( new FileOutputStream( fastaFile ),
+                1 << 20 ) )
+        {
+            out.write( ">synthetic benchmark sequence\n".getBytes() );
+
+            long written = 0;
+            int column = 0;
+            int softMasked = 0, n = 0;
+            while ( written < size )
+            {
+                final int dice = random.nextInt( 10000 );
+                if ( softMasked == 0 && n == 0 )
+                    if ( dice < 5 )
+                        softMasked = 50 + random.nextInt( 500 );
+                    else if ( dice < 6 )
+                        n = 10 + random.nextInt( 1000 );
+
+                byte b;
+                if ( n > 0 )
+                {
+                    b = 'N';
+                    n--;
+                } else if ( dice == 9999 )
+                    b = 'R';
+                else
+                {
+                    b = NUCLEOTIDES[random.nextInt( NUCLEOTIDES.length )];
+                    if ( softMasked > 0 )
+                    {
+                        b = (byte) Character.toLowerCase( b );
+                        softMasked--;
+                    }
+                }
+
+                out.write( b );
+                written++;
+                if ( ++column == LINE_SIZE )
+                {
+                    out.write( '\n' );
+                    column = 0;
+                }
+            }
+            out.write( '\n' );
+        }
+    }
+
+    public static void main( final String [] args ) throws IOException
+    {
+        final int megabytes = args.length > 0 ? Integer.parseInt( args[0] ) : 256;
+        final int rounds = args.length > 1 ? Integer.parseInt( args[1] ) : 5;
+
+        final File fastaFile = File.createTempFile( "benchmark", ".fna" );
+        fastaFile.deleteOnExit();
+        generate( fastaFile, (long) megabytes << 20 );
+
+        // Warm up both paths before measuring
+        deflate( fastaFile, true );
+        deflate( fastaFile, false );
+
+        double word = 0, scalar = 0;
+        for ( int r = 0; r < rounds; r++ )
+        {
+            word += deflate( fastaFile, true );
+            scalar += deflate( fastaFile, false );
+        }
+
+        System.out.println( format( "word scanning:   %8.1f MiB/s", word / rounds ) );
+        System.out.println( format( "scalar scanning: %8.1f MiB/s", scalar / rounds ) );
+
+        fastaFile.delete();
+    }
+}
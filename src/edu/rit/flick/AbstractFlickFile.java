@@ -13,6 +13,8 @@ import static edu.rit.flick.config.DefaultOptionSet.OUTPUT_PATH;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.NoSuchFileException;
 import java.util.Scanner;
@@ -41,6 +43,8 @@ public abstract class AbstractFlickFile implements FlickFile
 
     private static final String                   CANT_OVERWRITE_EXISTING_FILE_WITHOT_FORCE_FLAG = "\n  can't overwrite existing file without --force flag";
 
+    private static final String                   STREAM_NEEDS_FAST_FILE_FORMAT                  = "only a file ending in a FASTA/Q deflated extension can be streamed, not '%s'";
+
     protected final File                          fileIn, fileOut;
 
     protected final Configuration                 configuration;
@@ -142,6 +146,26 @@ public abstract class AbstractFlickFile implements FlickFile
         inflationVerification();
     }
 
+    /**
+     * Deflates <code>in</code> with the registered FASTA/Q deflator for the
+     * extension of <code>fileOut</code>, as the archive itself can only be
+     * built from files.
+     */
+    @Override
+    public File deflate(
+            final Configuration configuration,
+            final ReadableByteChannel in,
+            final File fileOut )
+    {
+        final FileDeflator fileDeflator = REGISTRY.getFileDeflatorForDeflatedExtension(
+            "." + Files.getFileExtension( fileOut.getPath() ) );
+        if ( fileDeflator == null )
+            throw new IllegalArgumentException(
+                    String.format( STREAM_NEEDS_FAST_FILE_FORMAT, fileOut.getPath() ) );
+
+        return fileDeflator.deflate( configuration, in, fileOut );
+    }
+
     @Override
     public Configuration getConfiguration()
     {
@@ -171,4 +195,24 @@ public abstract class AbstractFlickFile implements FlickFile
     {
         return fileOut.getPath();
     }
+
+    /**
+     * Inflates <code>fileIn</code> with the registered FASTA/Q inflator for
+     * its extension, as an archive of several files has no single stream to
+     * write.
+     */
+    @Override
+    public void inflate(
+            final Configuration configuration,
+            final File fileIn,
+            final WritableByteChannel out )
+    {
+        final FileInflator fileInflator = REGISTRY
+                .getFileInflator( "." + Files.getFileExtension( fileIn.getPath() ) );
+        if ( fileInflator == null )
+            throw new IllegalArgumentException(
+                    String.format( STREAM_NEEDS_FAST_FILE_FORMAT, fileIn.getPath() ) );
+
+        fileInflator.inflate( configuration, fileIn, out );
+    }
 }
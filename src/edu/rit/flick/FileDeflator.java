@@ -7,6 +7,7 @@
 package edu.rit.flick;
 
 import java.io.File;
+import java.nio.channels.ReadableByteChannel;
 
 import edu.rit.flick.config.Configuration;
 
@@ -32,6 +33,15 @@ public interface FileDeflator extends FileArchiver
         return deflate( configuration, new File( fileIn ), new File( fileOut ) );
     }
 
+    /**
+     * Deflates everything read from <code>in</code>, such as the standard
+     * input, without knowing its size in advance.
+     */
+    public File deflate(
+            final Configuration configuration,
+            final ReadableByteChannel in,
+            final File fileOut );
+
     public default void deflationVerification() throws Exception
     {}
 }
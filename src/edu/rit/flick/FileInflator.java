@@ -7,6 +7,7 @@
 package edu.rit.flick;
 
 import java.io.File;
+import java.nio.channels.WritableByteChannel;
 
 import edu.rit.flick.config.Configuration;
 
@@ -32,6 +33,19 @@ public interface FileInflator extends FileArchiver
         return inflate( configuration, new File( fileIn ), new File( fileOut ) );
     }
 
+    /**
+     * Inflates <code>fileIn</code> to <code>out</code> as it is decoded, such
+     * as to the standard output.
+     *
+     * @throws java.io.UncheckedIOException
+     *             if <code>fileIn</code> can't be read or <code>out</code>
+     *             written
+     */
+    public void inflate(
+            final Configuration configuration,
+            final File fileIn,
+            final WritableByteChannel out );
+
     public default void inflationVerification() throws Exception
     {}
 }
@@ -43,7 +43,8 @@ public class ConfigurationProcessor
                     configuration.setFlag( (Flag) op, ! ( (Flag) op ).getDefaultValue() );
                 else configuration.setOption( op, op.parseValue( arguments.next() ) );
 
-            } else if ( option.startsWith( SHORT_FLAG_FORMAT ) )
+            } else if ( option.startsWith( SHORT_FLAG_FORMAT ) &&
+                    !option.equals( DefaultOptionSet.STANDARD_STREAM_PATH ) )
             {
                 option = option.substring( 1 );
 
@@ -33,6 +33,14 @@ public class DefaultOptionSet extends AbstractOptionSet
     public static final Option<String> OUTPUT_PATH            = new StringOption( "output path", "",
             "", null );
 
+    public static final Option<String> IO_MODE                = new StringOption( "io mode", "io",
+            "", "mmap" );
+
+    /**
+     * The input path standing for the standard input.
+     */
+    public static final String         STANDARD_STREAM_PATH   = "-";
+
 
     {
         options.add( ARCHIVE_MODE );
@@ -44,5 +52,7 @@ public class DefaultOptionSet extends AbstractOptionSet
 
         options.add( INPUT_PATH );
         options.add( OUTPUT_PATH );
+
+        options.add( IO_MODE );
     }
 }
@@ -10,11 +10,17 @@ package edu.rit.flick.config;
  * @author Alex Aiezza
  *
  */
+@SuppressWarnings ( { "rawtypes", "unchecked" } )
 public class DeflationOptionSet extends AbstractOptionSet<Boolean>
 {
-    public static final Flag NO_ZIP_FLAG = new DefaultFlag( "no zip", "no-zip", "", false );
+    public static final Flag            NO_ZIP_FLAG  = new DefaultFlag( "no zip", "no-zip", "",
+            false );
+
+    public static final Option<Integer> THREADS      = new IntegerOption( "threads", "threads",
+            "t", 1 );
 
     {
         options.add( NO_ZIP_FLAG );
+        options.add( (Option) THREADS );
     }
 }
@@ -97,6 +97,15 @@ public final class FileArchiverExtensionRegistry
         return null;
     }
 
+    public FileDeflator getFileDeflatorForDeflatedExtension( final String deflatedExtension )
+    {
+        final Optional<FileDeflatorInflator> fileDIo = registry.values().stream()
+                .filter( fileDI -> fileDI.fileDeflator.getDefaultDeflatedExtension()
+                        .equals( deflatedExtension ) )
+                .findFirst();
+        return fileDIo.isPresent() ? fileDIo.get().fileDeflator : null;
+    }
+
     public FileInflator getFileInflator( final String extension )
     {
         final Optional<FileDeflatorInflator> fileDIo = registry.values().stream().filter(
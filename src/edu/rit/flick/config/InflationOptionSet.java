@@ -12,10 +12,13 @@ package edu.rit.flick.config;
  */
 public class InflationOptionSet extends AbstractOptionSet<Boolean>
 {
-    public static final Flag KEEP_ZIPPED_FLAG = new DefaultFlag( "keep zipped", "keep-zipped", "",
-            false );
+    public static final Flag KEEP_ZIPPED_FLAG     = new DefaultFlag( "keep zipped", "keep-zipped",
+            "", false );
+    public static final Flag STANDARD_OUTPUT_FLAG = new DefaultFlag( "standard output", "stdout",
+            "c", false );
 
     {
         options.add( KEEP_ZIPPED_FLAG );
+        options.add( STANDARD_OUTPUT_FLAG );
     }
 }
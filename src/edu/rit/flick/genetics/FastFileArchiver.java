@@ -8,8 +8,6 @@ package edu.rit.flick.genetics;
 
 import static java.lang.String.format;
 
-import java.io.File;
-
 import com.google.common.collect.BiMap;
 
 import edu.rit.flick.FileArchiver;
@@ -28,8 +26,6 @@ public interface FastFileArchiver extends FileArchiver
 
     final static int           DEFAULT_BUFFER                 = 1024;
 
-    final static String        FLICK_FAST_FILE_TMP_DIR_SUFFIX = "~flick\\" + File.separator;
-
     /*
      * Byte iteration file location
      */
@@ -39,21 +35,35 @@ public interface FastFileArchiver extends FileArchiver
      * Storage Files
      */
     final static String        SEQUENCE_ID_FILE               = "Header.txt";
+    final static String        SEQUENCE_ID_INDEX_FILE         = "HeaderIndex.hcf";
+    final static String        SEQUENCE_ID_LAYOUT_FILE        = "HeaderLayout.hcf";
+    final static String        SEQUENCE_ID_COLUMN_FILE        = "HeaderColumn%d.hcf";
     final static String        SEQUENCE_DATA_FILE             = "Data.hcf";
     final static String        N_FILE                         = "NFile.txt";
     final static String        IUPAC_CODE_FILE                = "Iupac.txt";
     final static String        SEQUENCE_TAIL_FILE             = "Tail.txt";
     final static String        META_FILE                      = "Meta.txt";
 
+    /*
+     * Archive versions: the first wrote runs, codes and locations as text and
+     * FASTQ quality scores as they were; the current one writes them as
+     * varints, sequence identifiers in columns, and codes the quality scores
+     */
+    final static int           TEXT_FORMAT_VERSION            = 1, FORMAT_VERSION = 2;
+
+    public final static String META_FORMAT_VERSION            = "formatVersion";
     public final static String META_FILE_SIZE                 = "uncompressedSize";
     public final static String META_TAIL_NUCLEOTIDES          = "tailNucleotides";
     public final static String META_CARRIAGE_RETURN           = "carriageReturn";
     public final static String META_RNA_DATA                  = "rnaData";
+    public final static String META_SEQUENCE_ID_COLUMNS       = "sequenceIdColumns";
 
-    final static String        META_FILE_SIZE_FORMAT          = format( "%s=%%d%%n",
-        META_FILE_SIZE ), META_CARRIAGE_RETURN_FORMAT = format( "%s=%%b%%n", META_CARRIAGE_RETURN ),
+    final static String        META_FORMAT_VERSION_FORMAT     = format( "%s=%%d%%n",
+        META_FORMAT_VERSION ), META_FILE_SIZE_FORMAT = format( "%s=%%d%%n", META_FILE_SIZE ),
+            META_CARRIAGE_RETURN_FORMAT = format( "%s=%%b%%n", META_CARRIAGE_RETURN ),
             META_RNA_DATA_FORMAT = format( "%s=%%b%%n", META_RNA_DATA ),
-            META_TAIL_NUCLEOTIDES_FORMAT = format( "%s=%%s%%n", META_TAIL_NUCLEOTIDES );
+            META_TAIL_NUCLEOTIDES_FORMAT = format( "%s=%%s%%n", META_TAIL_NUCLEOTIDES ),
+            META_SEQUENCE_ID_COLUMNS_FORMAT = format( "%s=%%d%%n", META_SEQUENCE_ID_COLUMNS );
 
     boolean containsCarriageReturns();
 
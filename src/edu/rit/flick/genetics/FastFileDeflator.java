@@ -7,35 +7,43 @@
 package edu.rit.flick.genetics;
 
 import static edu.rit.flick.config.DefaultOptionSet.DELETE_FLAG;
+import static edu.rit.flick.config.DefaultOptionSet.IO_MODE;
 import static edu.rit.flick.config.DefaultOptionSet.VERBOSE_FLAG;
+import static edu.rit.flick.config.DeflationOptionSet.THREADS;
 import static java.lang.String.format;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.io.FileUtils;
 
 import com.google.common.collect.BiMap;
-import com.google.common.io.Files;
 
 import edu.rit.flick.FileDeflator;
 import edu.rit.flick.config.Configuration;
 import edu.rit.flick.genetics.util.ByteBufferOutputStream;
-import it.unimi.dsi.io.ByteBufferInputStream;
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.ZipParameters;
-import net.lingala.zip4j.util.Zip4jConstants;
+import edu.rit.flick.genetics.util.IoMode;
+import edu.rit.flick.genetics.util.LocationIndexWriter;
+import edu.rit.flick.genetics.util.MappedBuffers;
+import edu.rit.flick.genetics.util.SequenceEventWriter;
+import edu.rit.flick.genetics.util.SequenceIdentifierWriter;
+import edu.rit.flick.genetics.util.ZipArchiveWriter;
 
 /**
  * @author Alex Aiezza
@@ -43,43 +51,87 @@ import net.lingala.zip4j.util.Zip4jConstants;
  */
 public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
 {
-    public final static double          EXPECTED_COMPRESSION_RATIO = 0.25;
+    /**
+     * The number of input bytes mapped and scanned at a time.
+     */
+    public final static int             INPUT_SLICE_SIZE           = 1 << 26;
+
+    /**
+     * Bounds on the number of input bytes deflated by one worker thread.
+     */
+    public final static long            MIN_RECORD_GROUP_SIZE      = 1 << 20,
+            MAX_RECORD_GROUP_SIZE = INPUT_SLICE_SIZE;
+
+    /**
+     * The number of input bytes mapped at a time while looking for the start
+     * of a record.
+     */
+    protected final static int          RECORD_SEARCH_SIZE         = 1 << 16;
+
+    /**
+     * The number of input bytes read and scanned at a time from a stream.
+     */
+    public final static int             STREAM_BUFFER_SIZE         = 1 << 20;
+
+    /**
+     * The size of an input that is streamed rather than mapped.
+     */
+    protected final static long         UNKNOWN_SIZE               = -1;
+
+    /*
+     * Byte classes of the sequence scanner. Nucleotides are classed by their
+     * 2-bit code, flagged when they are RNA or soft-masked; every other byte
+     * is an event.
+     */
+    protected final static byte         NUCLEOTIDE_BITS_MASK       = 0b11, RNA_NUCLEOTIDE = 0b100,
+            SOFT_MASKED = 0b1000;
+    protected final static byte         N_EVENT                    = -1, NEWLINE_EVENT = -2,
+            CARRIAGE_RETURN_EVENT = -3, ESCAPE_EVENT = -4, IUPAC_EVENT = -5;
+
+    /**
+     * Set to <code>scalar</code> to classify the input one byte at a time
+     * instead of one word at a time.
+     */
+    public final static String          SCANNER_PROPERTY           = "flick.scanner";
 
     private boolean                     interrupted                = false;
 
+    private boolean                     wordScanning               = !"scalar"
+            .equals( System.getProperty( SCANNER_PROPERTY ) );
+
+    private int                         threads                    = 1;
+    private long                        recordGroupSize            = 0;
+
+    private IoMode                      ioMode                     = IoMode.MMAP;
+
     // Output files
     protected ByteBufferOutputStream    datahcf;
-    protected ByteBufferOutputStream    nfile;
-    protected BufferedOutputStream      headerfile;
-    protected BufferedOutputStream      iupacfile;
-    protected BufferedOutputStream      tailfile;
-    protected FileWriter                metafile;
+    protected SequenceEventWriter       nfile;
+    protected LocationIndexWriter       locationfile;
+    protected SequenceIdentifierWriter  identifierfile;
+    protected SequenceEventWriter       iupacfile;
+    protected OutputStream              tailfile;
+    protected Writer                    metafile;
 
     // Input file
-    protected ByteBufferInputStream     fastIn;
+    protected FileChannel               fastIn;
+    private FileChannel                 sliceIn;
 
     // Tracking fields
     private boolean                     writingToNFile             = false;
 
     protected byte []                   hyperCompressionBytes      = new byte [4];
-    protected byte                      dnaByte;
+    protected int                       compressionCounter         = 0;
 
-    protected final AtomicInteger       lineType                   = new AtomicInteger(
-            SEQUENCE_IDENTIFIER_LINE );
-    protected final LongAdder           dnaPosition                = new LongAdder()
-    // @formatter:off
-    {
-        private static final long serialVersionUID = 1L;
+    protected byte []                   byteClasses;
 
-        @Override
-        public void increment()
-        {
-            super.increment();
-            localSeqLineSize++;
-        }
-    };
-    // @formatter:on
-    protected int                       compressionCounter         = 0;
+    protected int                       lineType                   = SEQUENCE_IDENTIFIER_LINE;
+    protected boolean                   lineStarted                = false;
+    protected long                      dnaPosition                = 0;
+
+    protected byte []                   sequenceIdentifier         = new byte [DEFAULT_BUFFER];
+    protected int                       sequenceIdentifierLength   = 0;
+    protected long                      sequenceIdentifierPosition = 0;
 
     protected int                       localSeqLineSize           = 0;
     protected int                       seqLineSize                = 0;
@@ -87,6 +139,8 @@ public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
     private boolean                     containsCarriageReturns    = false;
     private boolean                     isRNAData                  = false;
 
+    protected TwoBitNucleotidePacker    packer;
+
     protected final BiMap<String, Byte> byteConverter;
 
     public FastFileDeflator()
@@ -97,8 +151,55 @@ public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
     protected void afterProcessNucleotides() throws IOException
     {}
 
-    protected void beforeProcessNucleotide()
-    {}
+    /**
+     * @return whether the next group can pick up where <code>group</code>
+     *         stops; otherwise <code>group</code> is extended a line at a time
+     */
+    protected boolean canEndRecordGroup( final RecordGroup group )
+    {
+        return group.lineType != SEQUENCE_IDENTIFIER_LINE || !group.lineStarted;
+    }
+
+    /**
+     * Closes the input and finishes every output file.
+     */
+    protected void closeOutputFiles() throws IOException
+    {
+        if ( sliceIn != null && sliceIn != fastIn )
+            sliceIn.close();
+        if ( fastIn != null )
+            fastIn.close();
+        datahcf.close();
+        nfile.close();
+        locationfile.close();
+        identifierfile.close();
+        iupacfile.close();
+        tailfile.close();
+        metafile.close();
+
+        fastIn = null;
+        sliceIn = null;
+        datahcf = null;
+        packer = null;
+        nfile = null;
+        locationfile = null;
+        identifierfile = null;
+        iupacfile = null;
+        tailfile = null;
+        metafile = null;
+    }
+
+    /**
+     * Takes up the options in <code>configuration</code> that change how
+     * files are deflated.
+     */
+    protected void configure( final Configuration configuration )
+    {
+        if ( !configuration.optionIsNull( THREADS ) )
+            setThreads( (Integer) configuration.getOption( THREADS ) );
+        if ( !configuration.optionIsNull( IO_MODE ) )
+            setIoMode( IoMode.parse( (String) configuration.getOption( IO_MODE ) ) );
+    }
 
     @Override
     public boolean containsCarriageReturns()
@@ -106,27 +207,75 @@ public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
         return containsCarriageReturns;
     }
 
-    protected void createOutputFiles( final File fastFile, final String tempOutputDirectory )
-            throws IOException
+    /**
+     * @return the class of every byte value as seen by
+     *         {@link #processNucleotides(ByteBuffer, int, int)}
+     */
+    protected byte [] createByteClasses()
     {
-        datahcf = ByteBufferOutputStream.map( new File( tempOutputDirectory + SEQUENCE_DATA_FILE ),
-            MapMode.READ_WRITE, (long) ( fastFile.length() * EXPECTED_COMPRESSION_RATIO ) );
-        nfile = ByteBufferOutputStream.map( new File( tempOutputDirectory + N_FILE ),
-            MapMode.READ_WRITE, (long) ( fastFile.length() * EXPECTED_COMPRESSION_RATIO * 2 ) );
-        headerfile = new BufferedOutputStream(
-                new FileOutputStream( tempOutputDirectory + SEQUENCE_ID_FILE ), DEFAULT_BUFFER );
-        iupacfile = new BufferedOutputStream(
-                new FileOutputStream( tempOutputDirectory + IUPAC_CODE_FILE ), DEFAULT_BUFFER );
-        tailfile = new BufferedOutputStream(
-                new FileOutputStream( tempOutputDirectory + SEQUENCE_TAIL_FILE ), DEFAULT_BUFFER );
-        metafile = new FileWriter( new File( tempOutputDirectory + META_FILE ) );
+        final byte [] classes = new byte [1 << Byte.SIZE];
+        Arrays.fill( classes, IUPAC_EVENT );
 
-        metafile.write( format( META_FILE_SIZE_FORMAT, fastFile.length() ) );
+        for ( final byte nucleotide : new byte [] { A, C, G, T } )
+            classes[nucleotide] = (byte) TwoBitNucleotideConverter.toBits( nucleotide );
+        classes[U] = (byte) ( TwoBitNucleotideConverter.toBits( U ) | RNA_NUCLEOTIDE );
 
-        final FileInputStream fastFis = new FileInputStream( fastFile );
-        fastIn = ByteBufferInputStream.map( fastFis.getChannel() );
+        classes[N] = N_EVENT;
+        classes[NEWLINE] = NEWLINE_EVENT;
+        classes[CARRIAGE_RETURN] = CARRIAGE_RETURN_EVENT;
+        for ( final byte escape : getSequenceEscapes() )
+            classes[escape & 0xFF] = ESCAPE_EVENT;
 
-        fastFis.close();
+        return classes;
+    }
+
+    /**
+     * Creates in-memory outputs for deflating one group of records, which
+     * grow as they are written.
+     */
+    protected void createRecordGroupOutputs()
+    {
+        datahcf = ByteBufferOutputStream.grow();
+        packer = new TwoBitNucleotidePacker( datahcf );
+        nfile = SequenceEventWriter.runs( ByteBufferOutputStream.grow() );
+        locationfile = new LocationIndexWriter( ByteBufferOutputStream.grow() );
+        identifierfile = new SequenceIdentifierWriter( ByteBufferOutputStream.grow(),
+                column -> ByteBufferOutputStream.grow() );
+        iupacfile = SequenceEventWriter.symbols( ByteBufferOutputStream.grow() );
+    }
+
+    /**
+     * @return a deflator for one group of records, or <code>null</code> if
+     *         this format is always deflated by a single thread
+     */
+    protected FastFileDeflator createRecordGroupDeflator()
+    {
+        return null;
+    }
+
+    /**
+     * @param fastFileSize
+     *            the size of the input, or {@link #UNKNOWN_SIZE} if it is
+     *            being streamed
+     */
+    protected void createOutputFiles( final long fastFileSize, final ZipArchiveWriter archive )
+            throws IOException
+    {
+        // Packed nucleotides do not deflate
+        datahcf = archive.createStoredFile( SEQUENCE_DATA_FILE );
+        packer = new TwoBitNucleotidePacker( datahcf );
+        nfile = SequenceEventWriter.runs( archive.createFile( N_FILE ) );
+        locationfile = new LocationIndexWriter( archive.createFile( SEQUENCE_ID_INDEX_FILE ) );
+        identifierfile = new SequenceIdentifierWriter(
+                archive.createFile( SEQUENCE_ID_LAYOUT_FILE ),
+                column -> archive.createFile( format( SEQUENCE_ID_COLUMN_FILE, column ) ) );
+        iupacfile = SequenceEventWriter.symbols( archive.createFile( IUPAC_CODE_FILE ) );
+        tailfile = archive.createFile( SEQUENCE_TAIL_FILE );
+        metafile = new OutputStreamWriter( archive.createFile( META_FILE ) );
+
+        metafile.write( format( META_FORMAT_VERSION_FORMAT, FORMAT_VERSION ) );
+        if ( fastFileSize != UNKNOWN_SIZE )
+            metafile.write( format( META_FILE_SIZE_FORMAT, fastFileSize ) );
     }
 
     @Override
@@ -134,38 +283,35 @@ public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
     {
         assert fileIn.exists();
 
-        try
-        {
-            // Deflate to Directory
-            final String outputDirectoryPath = fileOut.getPath().replaceAll(
-                "." + Files.getFileExtension( fileOut.getPath() ), FLICK_FAST_FILE_TMP_DIR_SUFFIX );
+        return deflate( configuration, fileOut, archive -> deflateToArchive( fileIn, archive ) );
+    }
 
-            final File tmpOutputDirectory = new File( outputDirectoryPath );
-            if ( tmpOutputDirectory.exists() )
-                FileUtils.deleteDirectory( tmpOutputDirectory );
-            tmpOutputDirectory.mkdirs();
+    private File deflate(
+            final Configuration configuration,
+            final File fileOut,
+            final ArchiveDeflation archiveDeflation )
+    {
+        configure( configuration );
 
+        try
+        {
             final AtomicReference<Thread> cleanHookAtomic = new AtomicReference<Thread>();
 
-            // Deflate Fast file to a temporary directory
-            final Thread deflateToDirectoryThread = new Thread( () -> {
-                try
+            // Deflate Fast file straight into the archive
+            final Thread deflateToArchiveThread = new Thread( () -> {
+                try ( final ZipArchiveWriter archive = new ZipArchiveWriter( fileOut, ioMode ) )
                 {
-                    // Deflate Fast file to a temporary directory
-                    deflateToDirectory( fileIn, tmpOutputDirectory );
-
-                    // Remove unused buffer space
-                    removeUnusedBufferSpace( outputDirectoryPath );
-
-                    // Compress Directory to a zip file
-                    deflateToFile( tmpOutputDirectory, fileOut );
-
-                    Runtime.getRuntime().removeShutdownHook( cleanHookAtomic.get() );
+                    archiveDeflation.deflateToArchive( archive );
                 } catch ( final Exception e )
                 {
                     if ( !interrupted )
                         System.err.println( e.getMessage() );
+
+                    // Delete the archive that was not able to be finished
+                    FileUtils.deleteQuietly( fileOut );
+                    return;
                 }
+                Runtime.getRuntime().removeShutdownHook( cleanHookAtomic.get() );
             }, "Default_Deflation_Thread" );
 
             // Make cleaning hook
@@ -173,31 +319,23 @@ public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
                 interrupted = true;
                 configuration.setFlag( VERBOSE_FLAG, false );
                 configuration.setFlag( DELETE_FLAG, false );
-                try
-                {
-                    if ( deflateToDirectoryThread.isAlive() )
-                        deflateToDirectoryThread.interrupt();
 
-                    // Remove unused buffer space
-                    removeUnusedBufferSpace( outputDirectoryPath );
+                if ( deflateToArchiveThread.isAlive() )
+                    deflateToArchiveThread.interrupt();
 
-                    // Delete files that were not able to be processed
-                    FileUtils.deleteQuietly( tmpOutputDirectory );
-                    System.out.println();
-                } catch ( final IOException | InterruptedException e )
-                {
-                    e.printStackTrace();
-                }
+                // Delete the archive that was not able to be finished
+                FileUtils.deleteQuietly( fileOut );
+                System.out.println();
             }, "Deflation_Cleaning_Thread" );
 
             cleanHookAtomic.set( cleanHook );
 
             Runtime.getRuntime().addShutdownHook( cleanHook );
 
-            deflateToDirectoryThread.start();
-            deflateToDirectoryThread.join();
+            deflateToArchiveThread.start();
+            deflateToArchiveThread.join();
 
-        } catch ( final IOException | InterruptedException e )
+        } catch ( final InterruptedException e )
         {
             e.printStackTrace();
         }
@@ -205,55 +343,266 @@ public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
         return fileOut;
     }
 
-    public void deflateToDirectory( final File fileIn, final File tmpOutputDirectory )
+    /**
+     * Deflates everything read from <code>in</code>, one bounded buffer at a
+     * time, so the input never has to be stored in full. Streamed input is
+     * always deflated by a single thread.
+     */
+    @Override
+    public File deflate(
+            final Configuration configuration,
+            final ReadableByteChannel in,
+            final File fileOut )
+    {
+        return deflate( configuration, fileOut, archive -> deflateToArchive( in, archive ) );
+    }
+
+    /**
+     * Deflates <code>fileIn</code> into files of <code>archive</code>, which
+     * are finished when this returns.
+     */
+    public void deflateToArchive( final File fileIn, final ZipArchiveWriter archive )
             throws IOException
     {
-        createOutputFiles( fileIn, tmpOutputDirectory.getPath() + File.separator );
+        fastIn = FileChannel.open( fileIn.toPath(), StandardOpenOption.READ );
+        sliceIn = ioMode == IoMode.DIRECT ? ioMode.openInput( fileIn ) : fastIn;
+
+        createOutputFiles( fastIn.size(), archive );
 
         initializeDeflator();
 
-        if ( fastIn.available() > 0 )
-            dnaByte = (byte) fastIn.read();
+        final long size = fastIn.size();
+        if ( threads > 1 && createRecordGroupDeflator() != null )
+            deflateRecordGroups( size );
+        else
+        {
+            forEachSlice( 0, size, this::processSlice );
+
+            processEndOfInput();
+        }
+
+        processProperties();
+
+        compressionCounter = packer.flush( hyperCompressionBytes );
+
+        processTail();
+
+        closeOutputFiles();
+    }
+
+    /**
+     * Deflates everything read from <code>in</code> into files of
+     * <code>archive</code>, which are finished when this returns.
+     */
+    public void deflateToArchive( final ReadableByteChannel in, final ZipArchiveWriter archive )
+            throws IOException
+    {
+        createOutputFiles( UNKNOWN_SIZE, archive );
 
-        while ( fastIn.available() > 0 )
+        initializeDeflator();
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect( STREAM_BUFFER_SIZE );
+        long offset = 0;
+        boolean endOfInput = false;
+        while ( !endOfInput )
         {
-            switch ( lineType.get() )
-            {
-            case SEQUENCE_IDENTIFIER_LINE:
-                processSequenceIdentifier();
-                break;
-            case SEQUENCE_LINE:
-                processNucleotides();
-                afterProcessNucleotides();
-                break;
-            default:
-                processLineType();
-            }
-            progressLineType();
+            endOfInput = in.read( buffer ) < 0;
+            if ( buffer.hasRemaining() && !endOfInput )
+                continue;
+
+            buffer.flip();
+            processSlice( buffer, offset );
+            offset += buffer.limit();
+            buffer.clear();
         }
+
+        processEndOfInput();
+
+        metafile.write( format( META_FILE_SIZE_FORMAT, offset ) );
+
         processProperties();
 
+        compressionCounter = packer.flush( hyperCompressionBytes );
+
         processTail();
+
+        closeOutputFiles();
+    }
+
+    /**
+     * Deflates one group of records, picking up in the state the previous
+     * groups left the input in.
+     */
+    private FastFileDeflator deflateRecordGroup( final RecordGroup group ) throws IOException
+    {
+        final FastFileDeflator deflator = createRecordGroupDeflator();
+        deflator.wordScanning = wordScanning;
+        deflator.createRecordGroupOutputs();
+        deflator.initializeDeflator();
+        deflator.initializeRecordGroup( group );
+
+        forEachSlice( group.start, group.end, deflator::processSlice );
+
+        deflator.processEndOfInput();
+
+        deflator.compressionCounter = deflator.packer.flush( deflator.hyperCompressionBytes );
+
+        return deflator;
+    }
+
+    /**
+     * Splits the input into groups, deflates the groups on a
+     * {@link ForkJoinPool} and merges them back in order. The merged output is
+     * the same no matter how many threads are used.
+     */
+    private void deflateRecordGroups( final long size ) throws IOException
+    {
+        prepareRecordGroups( size );
+
+        final ForkJoinPool pool = new ForkJoinPool( threads );
+        try
+        {
+            // Summarize every group to learn the state each one starts in
+            final List<ForkJoinTask<RecordGroup>> summaries =
+                    new ArrayList<ForkJoinTask<RecordGroup>>();
+            for ( final RecordGroup group : findRecordGroups( size ) )
+                summaries.add( pool.submit( () -> summarizeRecordGroup( group ) ) );
+
+            final List<RecordGroup> groups = new ArrayList<RecordGroup>( summaries.size() );
+            for ( final ForkJoinTask<RecordGroup> summary : summaries )
+            {
+                RecordGroup group = summary.join();
+
+                if ( !groups.isEmpty() )
+                {
+                    final RecordGroup previous = groups.get( groups.size() - 1 );
+
+                    // Never start a group where the next one cannot pick up
+                    while ( previous.end < size && !canEndRecordGroup( previous ) )
+                    {
+                        final long lineEnd = nextLineStart( previous.end, size );
+                        summarizeRecordGroup( previous, previous.end, lineEnd );
+                        previous.end = lineEnd;
+                    }
+                    if ( group.end <= previous.end )
+                        continue;
+
+                    // The group was summarized from the wrong place or state
+                    if ( group.start != previous.end || group.startLineType != previous.lineType )
+                        group = summarizeRecordGroup(
+                            new RecordGroup( previous.end, group.end, previous.lineType ) );
+                }
+
+                groups.add( group );
+            }
+
+            long position = 0;
+            boolean inNRun = false, inSoftMask = false, afterCarriageReturn = false;
+            int lineSize = 0;
+            for ( final RecordGroup group : groups )
+            {
+                group.dnaPosition = position;
+                group.inNRun = inNRun;
+                group.inSoftMask = inSoftMask;
+                group.carriedLineSize = lineSize;
+                group.afterCarriageReturn = afterCarriageReturn;
+
+                position += group.sequenceLength;
+                if ( group.sequenceLength > 0 )
+                    inNRun = group.endsInNRun;
+                if ( group.softMaskChanged )
+                    inSoftMask = group.endsInSoftMask;
+                lineSize = group.lineSizeReset ? group.lineSize : lineSize + group.lineSize;
+                afterCarriageReturn |= group.containsCarriageReturns;
+            }
+
+            // Deflate a bounded number of groups ahead of the merge
+            final Deque<ForkJoinTask<FastFileDeflator>> deflations =
+                    new ArrayDeque<ForkJoinTask<FastFileDeflator>>( threads * 2 + 1 );
+            for ( final RecordGroup group : groups )
+            {
+                deflations.add( pool.submit( () -> deflateRecordGroup( group ) ) );
+                if ( deflations.size() > threads * 2 )
+                    mergeRecordGroup( deflations.remove().join() );
+            }
+            while ( !deflations.isEmpty() )
+                mergeRecordGroup( deflations.remove().join() );
+        } finally
+        {
+            pool.shutdownNow();
+        }
     }
 
-    protected void deflateToFile( final File tmpOutputDirectory, final File fileOut )
-            throws IOException, ZipException
+    protected void endNRun() throws IOException
     {
-        if ( fileOut.exists() )
-            fileOut.delete();
+        if ( writingToNFile )
+        {
+            nfile.endRun( dnaPosition );
+            writingToNFile = false;
+        }
+    }
 
-        final ZipFile flickFile = new ZipFile( fileOut );
+    /**
+     * Called at every byte that ends a run of soft-masked nucleotides.
+     */
+    protected void endSoftMask() throws IOException
+    {}
 
-        final ZipParameters zParams = new ZipParameters();
+    /**
+     * @return the location of the first group starting at or after
+     *         <code>position</code>, or <code>size</code> if there is none
+     */
+    protected long findRecordGroupStart( final long position, final long size ) throws IOException
+    {
+        return nextRecordStart( position, size );
+    }
 
-        zParams.setIncludeRootFolder( false );
-        zParams.setCompressionMethod( Zip4jConstants.COMP_DEFLATE );
-        zParams.setCompressionLevel( Zip4jConstants.DEFLATE_LEVEL_NORMAL );
+    /**
+     * Splits the input into groups of roughly equal size.
+     */
+    private List<RecordGroup> findRecordGroups( final long size ) throws IOException
+    {
+        final long groupSize = recordGroupSize > 0 ? recordGroupSize
+                : Math.max( MIN_RECORD_GROUP_SIZE,
+                    Math.min( MAX_RECORD_GROUP_SIZE, size / ( threads * 4L ) ) );
 
-        flickFile.createZipFileFromFolder( tmpOutputDirectory, zParams, false, 0 );
+        final List<RecordGroup> groups = new ArrayList<RecordGroup>();
+        for ( long start = 0, end; start < size; start = end )
+        {
+            end = findRecordGroupStart( start + groupSize, size );
+            groups.add( new RecordGroup( start, end,
+                    start == 0 ? SEQUENCE_IDENTIFIER_LINE : getRecordGroupLineType() ) );
+        }
 
-        // Delete files that were just zipped
-        FileUtils.deleteQuietly( tmpOutputDirectory );
+        return groups;
+    }
+
+    /**
+     * Maps the input from <code>start</code> to <code>end</code> one slice at
+     * a time, unmapping each slice as soon as it has been processed, or reads
+     * it if the input is not mapped.
+     */
+    private void forEachSlice( final long start, final long end, final SliceProcessor processor )
+            throws IOException
+    {
+        if ( ioMode != IoMode.MMAP )
+        {
+            readEachSlice( start, end, processor );
+            return;
+        }
+
+        for ( long offset = start; offset < end; offset += INPUT_SLICE_SIZE )
+        {
+            final ByteBuffer in = fastIn.map( MapMode.READ_ONLY, offset,
+                Math.min( INPUT_SLICE_SIZE, end - offset ) );
+            try
+            {
+                processor.processSlice( in, offset );
+            } finally
+            {
+                MappedBuffers.unmap( in );
+            }
+        }
     }
 
     @Override
@@ -262,6 +611,15 @@ public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
         return byteConverter;
     }
 
+    /**
+     * @return the line type the input is in wherever
+     *         {@link #findRecordGroupStart(long, long)} starts a group
+     */
+    protected int getRecordGroupLineType()
+    {
+        return SEQUENCE_IDENTIFIER_LINE;
+    }
+
     protected abstract List<Byte> getSequenceEscapes();
 
     protected void initializeDeflator()
@@ -269,11 +627,17 @@ public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
         writingToNFile = false;
 
         hyperCompressionBytes = new byte [4];
-        dnaByte = 0;
-
-        lineType.set( SEQUENCE_IDENTIFIER_LINE );
-        dnaPosition.reset();
         compressionCounter = 0;
+        packer.reset();
+
+        byteClasses = createByteClasses();
+
+        lineType = SEQUENCE_IDENTIFIER_LINE;
+        lineStarted = false;
+        dnaPosition = 0;
+
+        sequenceIdentifierLength = 0;
+        sequenceIdentifierPosition = 0;
 
         localSeqLineSize = 0;
         seqLineSize = 0;
@@ -282,131 +646,358 @@ public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
         isRNAData = false;
     }
 
+    /**
+     * Picks up in the state the groups before <code>group</code> left the
+     * input in.
+     */
+    protected void initializeRecordGroup( final RecordGroup group )
+    {
+        lineType = group.startLineType;
+        dnaPosition = group.dnaPosition;
+        writingToNFile = group.inNRun;
+        nfile.startRecordGroup( group.inNRun );
+        iupacfile.startRecordGroup( false );
+        locationfile.startRecordGroup();
+        identifierfile.startRecordGroup();
+        localSeqLineSize = group.carriedLineSize;
+        containsCarriageReturns = group.afterCarriageReturn;
+    }
+
     @Override
     public boolean isRNAData()
     {
         return isRNAData;
     }
 
-    protected void processLineType()
+    /**
+     * Adds a deflated group of records to the output, in input order.
+     */
+    protected void mergeRecordGroup( final FastFileDeflator group ) throws IOException
+    {
+        for ( final ByteBuffer tetramers : group.datahcf.getByteBuffers() )
+            packer.packTetramers( tetramers.array(), 0, tetramers.position() );
+        for ( int t = 0; t < group.compressionCounter; t++ )
+            packer.pack( group.hyperCompressionBytes[t] );
+
+        nfile.merge( group.nfile );
+        locationfile.merge( group.locationfile );
+        identifierfile.merge( group.identifierfile );
+        iupacfile.merge( group.iupacfile );
+
+        dnaPosition = group.dnaPosition;
+        writingToNFile = group.writingToNFile;
+        localSeqLineSize = group.localSeqLineSize;
+        seqLineSize = Math.max( seqLineSize, group.seqLineSize );
+        containsCarriageReturns |= group.containsCarriageReturns;
+        isRNAData |= group.isRNAData;
+    }
+
+    /**
+     * @return the location just past the first newline at or after
+     *         <code>position</code>, or <code>size</code> if there is none
+     */
+    protected long nextLineStart( long position, final long size ) throws IOException
+    {
+        while ( position < size )
+        {
+            final ByteBuffer in = fastIn.map( MapMode.READ_ONLY, position,
+                Math.min( RECORD_SEARCH_SIZE, size - position ) );
+            try
+            {
+                for ( int i = 0; i < in.limit(); i++ )
+                    if ( in.get( i ) == NEWLINE )
+                        return position + i + 1;
+                position += in.limit();
+            } finally
+            {
+                MappedBuffers.unmap( in );
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * @return the location of the first record starting at or after
+     *         <code>position</code>, or <code>size</code> if there is none
+     */
+    protected long nextRecordStart( long position, final long size ) throws IOException
+    {
+        final byte recordStart = getSequenceIdentifierStart();
+        while ( position < size )
+        {
+            final ByteBuffer in = fastIn.map( MapMode.READ_ONLY, position - 1,
+                Math.min( RECORD_SEARCH_SIZE, size - position + 1 ) );
+            try
+            {
+                for ( int i = 1; i < in.limit(); i++ )
+                    if ( in.get( i ) == recordStart && in.get( i - 1 ) == NEWLINE )
+                        return position - 1 + i;
+                position += in.limit() - 1;
+            } finally
+            {
+                MappedBuffers.unmap( in );
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Learns whatever the groups need to know about the whole input before it
+     * is split into groups.
+     */
+    protected void prepareRecordGroups( final long size ) throws IOException
     {}
 
-    protected void processNucleotides() throws IOException
+    protected void processEndOfInput() throws IOException
+    {
+        if ( lineType == SEQUENCE_LINE )
+            afterProcessNucleotides();
+        else if ( lineType == SEQUENCE_IDENTIFIER_LINE && lineStarted )
+            writeSequenceIdentifier();
+    }
+
+    /**
+     * Continues the line that is neither a sequence identifier nor a sequence.
+     *
+     * @return the index in <code>in</code> where processing stopped
+     */
+    protected int processLineType( final ByteBuffer in, final int i, final int limit )
+            throws IOException
+    {
+        return limit;
+    }
+
+    /**
+     * Scans sequence bytes from <code>in</code> until an escape byte or the
+     * end of the slice. Runs of nucleotides and <code>N</code>s are measured
+     * eight bytes at a time by the {@link SwarByteClassifier} and packed
+     * without leaving the inner loop; only the bytes in between are handled
+     * one at a time.
+     *
+     * @return the index in <code>in</code> where processing stopped
+     */
+    protected int processNucleotides( final ByteBuffer in, int i, final int limit )
+            throws IOException
     {
-        while ( fastIn.available() > 0 && ( dnaByte = (byte) fastIn.read() ) != -1 )
+        final byte [] classes = byteClasses;
+
+        while ( i < limit )
         {
-            beforeProcessNucleotide();
+            byte byteClass = classes[in.get( i ) & 0xFF];
 
-            switch ( dnaByte )
+            if ( byteClass >= 0 )
             {
-            // Check for N
-            case N:
-                if ( !writingToNFile )
+                final int softMasked = byteClass & SOFT_MASKED;
+                if ( softMasked != 0 )
+                    startSoftMask();
+                else endSoftMask();
+                endNRun();
+
+                final int run = i;
+                int flags = 0;
+                if ( wordScanning )
+                    while ( limit - i >= Long.BYTES )
+                    {
+                        final long word = in.getLong( i );
+                        final int length = SwarByteClassifier.leadingBytes( softMasked != 0
+                                ? SwarByteClassifier.softMasked( word )
+                                : SwarByteClassifier.nucleotides( word ) );
+                        if ( length == 0 )
+                            break;
+
+                        packer.packBits( SwarByteClassifier.toBits( word ) >>> ( Long.BYTES -
+                                length ) * TwoBitNucleotideConverter.BITS_PER_NUCLEOTIDE, length );
+                        if ( ( SwarByteClassifier.rna( word ) &
+                                SwarByteClassifier.leadingLanes( length ) ) != 0 )
+                            flags |= RNA_NUCLEOTIDE;
+
+                        i += length;
+                        if ( length < Long.BYTES )
+                            break;
+                    }
+
+                while ( i < limit && ( byteClass = classes[in.get( i ) & 0xFF] ) >= 0 &&
+                        ( byteClass & SOFT_MASKED ) == softMasked )
                 {
-                    writingToNFile = true;
-                    final String nPositionStr = Long.toHexString( dnaPosition.longValue() )
-                            .toUpperCase() + RANGE;
-                    nfile.write( nPositionStr.getBytes() );
+                    packer.packBits( byteClass & NUCLEOTIDE_BITS_MASK );
+                    flags |= byteClass;
+                    i++;
                 }
-                dnaPosition.increment();
-                continue;
-            // Check for uppercase nucleotides
-            case A:
-            case C:
-            case G:
-            case T:
-            case U:
-
-                // Check for U
-                if ( dnaByte == U || dnaByte == u )
-                {
+
+                if ( ( flags & RNA_NUCLEOTIDE ) != 0 )
                     isRNAData = true;
-                    dnaByte = T;
-                }
 
-                if ( writingToNFile )
+                dnaPosition += i - run;
+                localSeqLineSize += i - run;
+                continue;
+            }
+
+            switch ( byteClass )
+            {
+            case N_EVENT:
+                endSoftMask();
+                if ( !writingToNFile )
                 {
-                    final String nPositionStr = Long.toHexString( dnaPosition.longValue() )
-                            .toUpperCase() + PIPE;
-                    nfile.write( nPositionStr.getBytes() );
-                    writingToNFile = false;
+                    writingToNFile = true;
+                    nfile.startRun( dnaPosition );
                 }
 
-                processConventionalNucleotide();
-
-                dnaPosition.increment();
-                continue;
-            case CARRIAGE_RETURN:
-                containsCarriageReturns = true;
-                continue;
-            case NEWLINE:
+                final int run = i;
+                if ( wordScanning )
+                    while ( limit - i >= Long.BYTES )
+                    {
+                        final int length = SwarByteClassifier
+                                .leadingBytes( SwarByteClassifier.n( in.getLong( i ) ) );
+                        i += length;
+                        if ( length < Long.BYTES )
+                            break;
+                    }
+
+                while ( i < limit && in.get( i ) == N )
+                    i++;
+                dnaPosition += i - run;
+                localSeqLineSize += i - run;
+                break;
+            case NEWLINE_EVENT:
+                endSoftMask();
                 if ( seqLineSize < localSeqLineSize )
                     seqLineSize = localSeqLineSize;
                 localSeqLineSize = 0;
-                continue;
+                i++;
+                break;
+            case CARRIAGE_RETURN_EVENT:
+                endSoftMask();
+                containsCarriageReturns = true;
+                i++;
+                break;
+            case ESCAPE_EVENT:
+                endSoftMask();
+                afterProcessNucleotides();
+                progressLineType();
+                return i;
             default:
-                if ( getSequenceEscapes().contains( dnaByte ) )
-                    return;
-
-                if ( writingToNFile )
-                {
-                    final String nPositionStr = Long.toHexString( dnaPosition.longValue() )
-                            .toUpperCase() + PIPE;
-                    nfile.write( nPositionStr.getBytes() );
-                    writingToNFile = false;
-                }
+                final byte iupac = in.get( i );
+                if ( !Character.isLowerCase( iupac ) )
+                    endSoftMask();
+                endNRun();
 
                 // File for IUPAC codes and erroneous characters
-                final String iupacBase = format( "%s-%s|",
-                    Long.toHexString( dnaPosition.longValue() ), (char) dnaByte + "" );
-                iupacfile.write( iupacBase.getBytes() );
-                dnaPosition.increment();
+                iupacfile.writeSymbol( dnaPosition, iupac );
+                dnaPosition++;
+                localSeqLineSize++;
+                i++;
             }
         }
-    }
-
-    protected void processConventionalNucleotide() throws IOException
-    {
-        hyperCompressionBytes[compressionCounter] = dnaByte;
-        if ( compressionCounter == 3 )
-        {
-            final String tetramer = new String( hyperCompressionBytes );
-
-            if ( !getByteConverter().containsKey( tetramer ) )
-                throw new TetramerNotFoundException( tetramer );
-            else datahcf.put( getByteConverter().get( tetramer ).byteValue() );
 
-            compressionCounter = 0;
-        } else compressionCounter++;
+        return i;
     }
 
     protected void processProperties() throws IOException
     {
         metafile.write( format( META_CARRIAGE_RETURN_FORMAT, containsCarriageReturns() ) );
         metafile.write( format( META_RNA_DATA_FORMAT, isRNAData() ) );
+        metafile.write( format( META_SEQUENCE_ID_COLUMNS_FORMAT, identifierfile.getColumns() ) );
     }
 
-    protected String processSequenceIdentifier() throws IOException
+    /**
+     * Continues the sequence identifier line, writing it out along with its
+     * location in the file once its newline is reached.
+     *
+     * @return the index in <code>in</code> where processing stopped
+     */
+    protected int processSequenceIdentifier( final ByteBuffer in, int i, final int limit,
+            final long offset ) throws IOException
     {
-        assert dnaByte == getSequenceIdentifierStart();
-
-        // Write Start Location in File
-        long hI = 0;
-        if ( fastIn.position() > 1 )
-            hI = fastIn.position() - ( containsCarriageReturns ? 3 : 2 );
+        if ( !lineStarted )
+        {
+            assert in.get( i ) == getSequenceIdentifierStart();
+
+            // Start Location in File
+            final long position = offset + ++i;
+            sequenceIdentifierPosition = position > 1
+                    ? position - ( containsCarriageReturns ? 3 : 2 ) : 0;
+            sequenceIdentifierLength = 0;
+            lineStarted = true;
+        }
 
-        final StringBuffer seqId = new StringBuffer();
-        while ( dnaByte != NEWLINE )
+        while ( i < limit )
         {
-            dnaByte = (byte) fastIn.read();
-            if ( dnaByte == CARRIAGE_RETURN )
+            final byte b = in.get( i++ );
+            if ( b == CARRIAGE_RETURN )
                 containsCarriageReturns = true;
-            seqId.append( (char) dnaByte );
+
+            if ( sequenceIdentifierLength == sequenceIdentifier.length )
+                sequenceIdentifier = Arrays.copyOf( sequenceIdentifier,
+                    sequenceIdentifier.length * 2 );
+            sequenceIdentifier[sequenceIdentifierLength++] = b;
+
+            if ( b == NEWLINE )
+            {
+                writeSequenceIdentifier();
+                progressLineType();
+                break;
+            }
         }
 
-        headerfile.write( ( hI + PIPE + seqId.toString() ).getBytes() );
+        return i;
+    }
+
+    /**
+     * Runs the line state machine over one slice of the input.
+     *
+     * @param in
+     *            the slice, scanned from its position to its limit
+     * @param offset
+     *            the location of index <code>0</code> of <code>in</code> in
+     *            the file
+     */
+    protected void processSlice( final ByteBuffer in, final long offset ) throws IOException
+    {
+        final int limit = in.limit();
+        int i = in.position();
 
-        return seqId.toString();
+        while ( i < limit )
+            switch ( lineType )
+            {
+            case SEQUENCE_IDENTIFIER_LINE:
+                i = processSequenceIdentifier( in, i, limit, offset );
+                break;
+            case SEQUENCE_LINE:
+                i = processNucleotides( in, i, limit );
+                break;
+            default:
+                i = processLineType( in, i, limit );
+            }
+    }
+
+    /**
+     * Reads the input from <code>start</code> to <code>end</code> one buffer
+     * at a time. Direct reads cover whole aligned blocks, so a buffer may
+     * start before <code>start</code> and end after <code>end</code>, past
+     * the bytes that are processed.
+     */
+    private void readEachSlice( final long start, final long end, final SliceProcessor processor )
+            throws IOException
+    {
+        final long alignment = ioMode == IoMode.DIRECT ? IoMode.DIRECT_ALIGNMENT : 1;
+        final long first = start - start % alignment;
+        final ByteBuffer in = ioMode.allocate( (int) Math.min( IoMode.BUFFER_SIZE,
+            ( end - first + alignment - 1 ) / alignment * alignment ) );
+
+        for ( long offset = first; offset < end; offset += in.limit() )
+        {
+            in.clear();
+            while ( in.hasRemaining() && offset + in.position() < end )
+                if ( sliceIn.read( in, offset + in.position() ) < 0 )
+                    break;
+            in.flip();
+
+            in.limit( (int) Math.min( in.limit(), end - offset ) );
+            in.position( (int) Math.max( 0, start - offset ) );
+            processor.processSlice( in, offset );
+        }
     }
 
     protected void processTail() throws IOException
@@ -416,66 +1007,160 @@ public abstract class FastFileDeflator implements FastFileArchiver, FileDeflator
         {
             final char nucleotide = (char) hyperCompressionBytes[tailCounter];
             tailfile.write( nucleotide );
-            if ( nucleotide != N && writingToNFile )
-            {
-                final String nPositionStr = Long.toHexString( dnaPosition.longValue() )
-                        .toUpperCase() + PIPE;
-                nfile.write( nPositionStr.getBytes() );
-                writingToNFile = false;
-            }
-            dnaPosition.increment();
+            if ( nucleotide != N )
+                endNRun();
+            dnaPosition++;
             tailCounter++;
         }
 
-        if ( writingToNFile )
-        {
-            final String nPositionStr = Long.toHexString( dnaPosition.longValue() ).toUpperCase() +
-                    PIPE;
-            nfile.write( nPositionStr.getBytes() );
-            writingToNFile = false;
-        }
+        endNRun();
     }
 
     protected void progressLineType()
     {
-        if ( lineType.get() == SEQUENCE_IDENTIFIER_LINE )
-            lineType.set( SEQUENCE_LINE );
-        else lineType.set( SEQUENCE_IDENTIFIER_LINE );
+        lineStarted = false;
+        if ( lineType == SEQUENCE_IDENTIFIER_LINE )
+            lineType = SEQUENCE_LINE;
+        else lineType = SEQUENCE_IDENTIFIER_LINE;
     }
 
-    @SuppressWarnings ( "resource" )
-    protected void removeUnusedBufferSpace( final String tmpOutputDirectory )
-            throws IOException, InterruptedException
+    /**
+     * Chooses how the input is read and the archive is written.
+     */
+    public void setIoMode( final IoMode ioMode )
     {
-        final long actualDataHcfFileSize = datahcf.position();
-        final long actualNFileSize = nfile.position();
+        this.ioMode = ioMode;
+    }
 
-        fastIn.close();
-        datahcf.close();
-        headerfile.close();
-        nfile.close();
-        iupacfile.close();
-        tailfile.close();
-        metafile.close();
+    /**
+     * Sets the number of input bytes per group of records, or <code>0</code>
+     * to size the groups by the number of threads.
+     */
+    void setRecordGroupSize( final long recordGroupSize )
+    {
+        this.recordGroupSize = recordGroupSize;
+    }
 
-        fastIn = null;
-        datahcf = null;
-        nfile = null;
+    /**
+     * Sets the number of threads deflating groups of records at once.
+     */
+    public void setThreads( final int threads )
+    {
+        this.threads = threads;
+    }
+
+    /**
+     * Chooses between classifying the input one word or one byte at a time.
+     */
+    public void setWordScanning( final boolean wordScanning )
+    {
+        this.wordScanning = wordScanning;
+    }
 
-        // Give the last method a moment to garbage collect
-        // System.gc();
-        // Thread.sleep( 1000 );
+    /**
+     * Called at every soft-masked nucleotide run.
+     */
+    protected void startSoftMask() throws IOException
+    {}
 
-        final File dataFile = new File( tmpOutputDirectory + SEQUENCE_DATA_FILE );
-        final File nFile = new File( tmpOutputDirectory + N_FILE );
+    /**
+     * Scans one slice of a group for the length of sequence it holds and the
+     * state it leaves the deflator in. Only called on formats with a
+     * {@link #createRecordGroupDeflator() record group deflator}.
+     */
+    protected abstract void summarizeRecordGroup( ByteBuffer in, RecordGroup group );
 
-        // Remove unused buffer space
-        FileChannel fc = new FileOutputStream( dataFile, true ).getChannel();
-        fc.force( true );
-        fc.truncate( actualDataHcfFileSize ).close();
+    private RecordGroup summarizeRecordGroup( final RecordGroup group ) throws IOException
+    {
+        summarizeRecordGroup( group, group.start, group.end );
+        return group;
+    }
 
-        fc = new FileOutputStream( nFile, true ).getChannel();
-        fc.force( true );
-        fc.truncate( actualNFileSize ).close();
+    private void summarizeRecordGroup( final RecordGroup group, final long start, final long end )
+            throws IOException
+    {
+        forEachSlice( start, end, ( in, offset ) -> summarizeRecordGroup( in, group ) );
+    }
+
+    protected static void writeRecordGroupOutput( final OutputStream recordGroupOutput,
+            final OutputStream out ) throws IOException
+    {
+        ( (ByteBufferOutputStream) recordGroupOutput ).writeTo( out );
+    }
+
+    protected void writeSequenceIdentifier() throws IOException
+    {
+        writeSequenceIdentifierLocation();
+
+        // The inflator puts the line break back
+        int length = sequenceIdentifierLength;
+        if ( length > 0 && sequenceIdentifier[length - 1] == NEWLINE )
+            length--;
+        if ( length > 0 && sequenceIdentifier[length - 1] == CARRIAGE_RETURN )
+            length--;
+        identifierfile.write( sequenceIdentifier, 0, length );
+    }
+
+    /**
+     * Writes where the sequence identifier starts, with the line break before
+     * it.
+     */
+    protected void writeSequenceIdentifierLocation() throws IOException
+    {
+        locationfile.write( sequenceIdentifierPosition );
+    }
+
+    /**
+     * Deflates an input into an archive.
+     */
+    @FunctionalInterface
+    private static interface ArchiveDeflation
+    {
+        void deflateToArchive( ZipArchiveWriter archive ) throws IOException;
+    }
+
+    /**
+     * Processes one mapped slice of the input.
+     */
+    @FunctionalInterface
+    private static interface SliceProcessor
+    {
+        void processSlice( ByteBuffer in, long offset ) throws IOException;
+    }
+
+    /**
+     * A run of the input deflated by one thread.
+     */
+    protected static class RecordGroup
+    {
+        final long start;
+        long       end;
+        final int  startLineType;
+
+        // Found by summarizing the group
+        int        lineType;
+        boolean    lineStarted;
+        long       sequenceLength;
+        boolean    endsInNRun;
+        boolean    softMaskChanged;
+        boolean    endsInSoftMask;
+        boolean    lineSizeReset;
+        int        lineSize;
+        boolean    containsCarriageReturns;
+
+        // State left by the groups before this one
+        long       dnaPosition;
+        boolean    inNRun;
+        boolean    inSoftMask;
+        int        carriedLineSize;
+        boolean    afterCarriageReturn;
+
+        RecordGroup( final long start, final long end, final int lineType )
+        {
+            this.start = start;
+            this.end = end;
+            startLineType = lineType;
+            this.lineType = lineType;
+        }
     }
 }
@@ -7,17 +7,21 @@
 package edu.rit.flick.genetics;
 
 import static edu.rit.flick.config.DefaultOptionSet.DELETE_FLAG;
+import static edu.rit.flick.config.DefaultOptionSet.IO_MODE;
 import static edu.rit.flick.config.DefaultOptionSet.VERBOSE_FLAG;
-import static org.apache.commons.io.FileUtils.getFile;
+import static edu.rit.flick.genetics.TwoBitNucleotideConverter.NUCLEOTIDES_PER_BYTE;
+import static java.lang.String.format;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.channels.FileChannel.MapMode;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 import java.util.Properties;
-import java.util.Scanner;
-import java.util.StringTokenizer;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
@@ -25,15 +29,17 @@ import java.util.concurrent.atomic.LongAdder;
 import org.apache.commons.io.FileUtils;
 
 import com.google.common.collect.BiMap;
-import com.google.common.io.Files;
 
 import edu.rit.flick.FileInflator;
 import edu.rit.flick.config.Configuration;
-import edu.rit.flick.genetics.util.ByteBufferOutputStream;
-import it.unimi.dsi.io.ByteBufferInputStream;
-import it.unimi.dsi.lang.MutableString;
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
+import edu.rit.flick.genetics.util.ChannelOutputStream;
+import edu.rit.flick.genetics.util.IoMode;
+import edu.rit.flick.genetics.util.LocationIndexReader;
+import edu.rit.flick.genetics.util.SequenceEventReader;
+import edu.rit.flick.genetics.util.SequenceIdentifierReader;
+import edu.rit.flick.genetics.util.TextFieldReader;
+import edu.rit.flick.genetics.util.ZipArchiveReader;
+import it.unimi.dsi.fastutil.io.MeasurableOutputStream;
 
 /**
  * @author Alex Aiezza
@@ -41,21 +47,32 @@ import net.lingala.zip4j.exception.ZipException;
  */
 public abstract class FastFileInflator implements FastFileArchiver, FileInflator
 {
-    private boolean                     interrupted             = false;
+    /**
+     * The number of bytes read at a time from the larger input files.
+     */
+    protected final static int          INPUT_BUFFER_SIZE       = 1 << 16;
+
+    private volatile boolean            interrupted             = false;
+
+    private IoMode                      ioMode                  = IoMode.MMAP;
 
     // Input files
-    protected ByteBufferInputStream     datahcf;
-    protected Scanner                   nfile;
-    protected Scanner                   headerfile;
-    protected Scanner                   iupacfile;
-    protected Scanner                   tailfile;
+    protected InputStream               datahcf;
+    protected SequenceEventReader       nfile;
+    protected TextFieldReader           headerfile;
+    protected LocationIndexReader       locationfile;
+    protected SequenceIdentifierReader  identifierfile;
+    protected SequenceEventReader       iupacfile;
+    protected TextFieldReader           tailfile;
     protected Properties                metafile;
 
     // Output file
-    protected ByteBufferOutputStream    fastOut;
+    protected MeasurableOutputStream    fastOut;
 
     // Tracking fields
-    protected final MutableString       header                  = new MutableString();
+    protected byte []                   header                  = new byte [DEFAULT_BUFFER];
+    protected int                       headerLength;
+    protected int                       headerIdentifierStart;
     protected long                      headerPosition;
 
     protected long                      nStart                  = -1, consecNs = -1;
@@ -63,7 +80,6 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
     protected long                      iupacPosition           = -1;
     protected char                      iupacBase               = 0x0;
 
-    protected final MutableString       nucleotides             = new MutableString();
     // @formatter:off
     protected final LongAdder           dnaPosition             = new LongAdder()
     {
@@ -75,7 +91,7 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
             super.increment();
 
             // Check for headerPosition index
-            if ( fastOut.position() == headerPosition )
+            if ( outputPosition() == headerPosition )
                 writeNextHeader();
             else afterWriteNucleotide();
 
@@ -86,6 +102,7 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
     // @formatter:on
     protected final AtomicLong          seqDnaPosition          = new AtomicLong();
 
+    protected int                       formatVersion;
     private long                        fastFileSize;
     private boolean                     containsCarriageReturns = false;
     private boolean                     isRNAData               = false;
@@ -105,7 +122,20 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
     protected void beforeSequence() throws IOException
     {}
 
-    protected void close() throws IOException, InterruptedException
+    /**
+     * @return how many of the next nucleotides can be
+     *         {@link #writeNucleotides(byte[], int, int) written together}, as
+     *         nothing is written before, between or just after any of them
+     */
+    protected long clearNucleotides()
+    {
+        final long position = dnaPosition.longValue();
+        return Math.max( 0, Math.min( nucleotidesBefore( headerPosition, outputPosition() ),
+            Math.min( nucleotidesBefore( nStart, position ),
+                nucleotidesBefore( iupacPosition, position ) ) ) );
+    }
+
+    protected void close() throws IOException
     {
         if ( fastOut == null )
             return;
@@ -113,16 +143,17 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
         fastOut.close();
         iupacfile.close();
         datahcf.close();
-        headerfile.close();
+        if ( headerfile != null )
+            headerfile.close();
+        if ( locationfile != null )
+            locationfile.close();
+        if ( identifierfile != null )
+            identifierfile.close();
         nfile.close();
         tailfile.close();
 
         datahcf = null;
         fastOut = null;
-
-        // Give the last method a moment to garbage collect
-        // System.gc();
-        // Thread.sleep( 1000 );
     }
 
     @Override
@@ -131,26 +162,6 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
         return containsCarriageReturns;
     }
 
-    @SuppressWarnings ( "resource" )
-    protected void createOutputFiles( final String tempOutputDirectory, final File fastFile )
-            throws IOException
-    {
-        datahcf = ByteBufferInputStream
-                .map( new FileInputStream( getFile( tempOutputDirectory, SEQUENCE_DATA_FILE ) )
-                        .getChannel() );
-        nfile = new Scanner( getFile( tempOutputDirectory, N_FILE ) ).useDelimiter( "\\" + PIPE );
-        headerfile = new Scanner( getFile( tempOutputDirectory, SEQUENCE_ID_FILE ) )
-                .useDelimiter( "" + NEWLINE );
-        iupacfile = new Scanner( getFile( tempOutputDirectory, IUPAC_CODE_FILE ) )
-                .useDelimiter( "\\" + PIPE );
-        tailfile = new Scanner( getFile( tempOutputDirectory, SEQUENCE_TAIL_FILE ) );
-        metafile = getProperties( getFile( tempOutputDirectory, META_FILE ) );
-
-        parseProperties();
-
-        fastOut = ByteBufferOutputStream.map( fastFile, MapMode.READ_WRITE, fastFileSize );
-    }
-
     @Override
     public BiMap<String, Byte> getByteConverter()
     {
@@ -159,69 +170,79 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
 
     protected void getNextIupacBase()
     {
-        final StringTokenizer iupacs;
-        if ( iupacfile.hasNext() )
+        if ( nextEvent( iupacfile ) )
         {
-            iupacs = new StringTokenizer( iupacfile.next(), RANGE );
-            iupacPosition = Long.parseLong( iupacs.nextToken(), 16 );
-            iupacBase = iupacs.nextToken().charAt( 0 );
+            iupacPosition = iupacfile.getStart();
+            iupacBase = (char) ( iupacfile.getSymbol() & 0xFF );
         }
         // Check for IUPAC index
-        if ( fastOut.position() > 0 && dnaPosition.longValue() == iupacPosition )
+        if ( outputPosition() > 0 && dnaPosition.longValue() == iupacPosition )
             writeNextIupacBase();
     }
 
     protected void getNextNs()
     {
-        final long nEnd;
-        final StringTokenizer ns;
-        if ( nfile.hasNext() )
+        if ( nextEvent( nfile ) )
         {
-            final String line = nfile.next().trim();
-            if ( !line.isEmpty() )
-            {
-                ns = new StringTokenizer( line, RANGE );
-                nStart = Long.parseLong( ns.nextToken(), 16 );
-                nEnd = Long.parseLong( ns.nextToken(), 16 );
-                consecNs = nEnd - nStart;
-            }
+            nStart = nfile.getStart();
+            consecNs = nfile.getEnd() - nStart;
         }
         // Check for nStart index
-        if ( fastOut.position() > 0 && dnaPosition.longValue() == nStart )
+        if ( outputPosition() > 0 && dnaPosition.longValue() == nStart )
             writeNextNs();
     }
 
-    protected boolean getNextNucleotides()
+    /**
+     * Reads the next sequence identifier and its location into the header,
+     * which follows a line break unless it is the <code>first</code>, or
+     * empties the header if there are no more.
+     */
+    private void getNextSequenceIdentifier( final boolean first )
     {
-        if ( datahcf.available() > 0 )
+        headerLength = headerIdentifierStart = 0;
+        try
         {
-            nucleotides.replace( byteConverter.inverse().get( (byte) datahcf.read() ) );
-            return true;
-        }
-        return false;
-    }
+            final byte [] identifier;
+            int length;
+            if ( identifierfile == null )
+            {
+                // Older archives kept the identifier after its location
+                if ( !headerfile.hasNext() )
+                    return;
+                headerPosition = headerfile.readNumber( 10 );
+                headerfile.skip( (byte) PIPE.charAt( 0 ) );
+                length = headerfile.readField( NEWLINE );
+                identifier = headerfile.getField();
+                if ( length > 0 && identifier[length - 1] == CARRIAGE_RETURN )
+                    length--;
+            } else
+            {
+                if ( !identifierfile.next() )
+                    return;
+                headerPosition = getSequenceIdentifierLocation( first );
+                length = identifierfile.getLength();
+                identifier = identifierfile.getIdentifier();
+            }
 
-    private void getNextSequenceIdentifier()
-    {
-        if ( headerfile.hasNext() )
+            // Room for the identifier start and a line break on either side
+            if ( header.length < length + 5 )
+                header = Arrays.copyOf( header, length * 2 + 5 );
+            if ( !first )
+                headerLength = writeLineBreak( header, headerLength );
+            header[headerLength++] = getSequenceIdentifierStart();
+            headerIdentifierStart = headerLength;
+            System.arraycopy( identifier, 0, header, headerLength, length );
+            headerLength = writeLineBreak( header, headerLength + length );
+        } catch ( final IOException e )
         {
-            final String headerInfo = headerfile.nextLine() +
-                    ( containsCarriageReturns() ? (char) CARRIAGE_RETURN + "" + (char) NEWLINE
-                                                : (char) NEWLINE );
-            final String [] headInd = headerInfo.split( "\\" + PIPE, 2 );
-            headerPosition = Long.parseLong( headInd[0] );
-            header.replace(
-                ( containsCarriageReturns() ? (char) CARRIAGE_RETURN + "" + (char) NEWLINE
-                                            : (char) NEWLINE ) +
-                        "" + (char) getSequenceIdentifierStart() + headInd[1] );
-        } else header.replace( "" );
+            throw new UncheckedIOException( e );
+        }
     }
 
-    protected Properties getProperties( final File propertiesFile ) throws IOException
+    protected Properties getProperties( final InputStream in ) throws IOException
     {
         final Properties props = new Properties();
 
-        final InputStream in = new FileInputStream( propertiesFile );
         props.load( in );
 
         in.close();
@@ -229,6 +250,29 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
         return props;
     }
 
+    /**
+     * @return where the next sequence identifier starts, counting the line
+     *         break before it, which the <code>first</code> has none of
+     */
+    protected long getSequenceIdentifierLocation( final boolean first ) throws IOException
+    {
+        if ( locationfile != null )
+            return locationfile.next();
+
+        // Archives before the location index kept the locations as text
+        final long location = headerfile.readNumber( 10 );
+        headerfile.skip( NEWLINE );
+        return location;
+    }
+
+    /**
+     * Whether less than the whole FASTA/Q file has been written.
+     */
+    protected boolean hasRemainingOutput()
+    {
+        return outputPosition() < fastFileSize;
+    }
+
     @Override
     public synchronized File inflate(
             final Configuration configuration,
@@ -237,34 +281,29 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
     {
         assert fileIn.exists();
 
+        setIoMode( configuration );
+
         try
         {
-            // Inflate to Directory
-            final String outputDirectoryPath = fileOut.getPath().replaceAll(
-                "." + Files.getFileExtension( fileOut.getPath() ), FLICK_FAST_FILE_TMP_DIR_SUFFIX );
-
-            final File tmpOutputDirectory = new File( outputDirectoryPath );
-            if ( tmpOutputDirectory.exists() )
-                FileUtils.deleteDirectory( tmpOutputDirectory );
-
             final AtomicReference<Thread> cleanHookAtomic = new AtomicReference<Thread>();
 
-            final Thread inflateToDirectoryThread = new Thread( () -> {
-                try
+            final Thread inflateFromArchiveThread = new Thread( () -> {
+                try ( final ZipArchiveReader archive = new ZipArchiveReader( fileIn, ioMode ) )
                 {
-                    // Inflate Fast file to a temporary directory
-                    inflateFromFile( fileIn, tmpOutputDirectory );
+                    // Inflate Fast file straight from the archive
+                    openInputFiles( archive );
 
-                    // Inflate Directory to a zip file
-                    inflateFromDirectory( tmpOutputDirectory, fileOut );
+                    fastOut = ioMode.createOutput( fileOut, fastFileSize );
 
-                    // Clean up IO
-                    close();
-                    System.gc();
-                    Thread.sleep( 100 );
-
-                    // Clean up temporary directory
-                    FileUtils.deleteDirectory( tmpOutputDirectory );
+                    try
+                    {
+                        writeFastFile();
+                    } finally
+                    {
+                        // Clean up IO, unmapping the output before it is kept
+                        // or deleted
+                        close();
+                    }
 
                     Runtime.getRuntime().removeShutdownHook( cleanHookAtomic.get() );
                 } catch ( final Exception e )
@@ -281,27 +320,16 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
                 configuration.setFlag( DELETE_FLAG, false );
                 try
                 {
-                    if ( inflateToDirectoryThread.isAlive() )
-                        inflateToDirectoryThread.interrupt();
-
-                    // Clean up IO
-                    close();
-                    System.gc();
-                    Thread.sleep( 100 );
-
-                    synchronized ( this )
-                    {
-                        while ( inflateToDirectoryThread.isAlive() )
-                            this.wait();
-                    }
-
-                } catch ( final IOException | InterruptedException e )
+                    // The inflation thread stops and cleans up its own IO, as
+                    // its buffers cannot be unmapped while it writes to them
+                    if ( inflateFromArchiveThread.isAlive() )
+                        inflateFromArchiveThread.interrupt();
+                    inflateFromArchiveThread.join();
+                } catch ( final InterruptedException e )
                 {
                     e.printStackTrace();
                 } finally
                 {
-                    // Clean up temporary directory
-                    FileUtils.deleteQuietly( tmpOutputDirectory );
                     // Clean up INCOMPLETE output file
                     FileUtils.deleteQuietly( fileOut );
                     System.out.println();
@@ -313,10 +341,10 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
 
             Runtime.getRuntime().addShutdownHook( cleanHook );
 
-            inflateToDirectoryThread.start();
-            inflateToDirectoryThread.join();
+            inflateFromArchiveThread.start();
+            inflateFromArchiveThread.join();
 
-        } catch ( final IOException | InterruptedException e )
+        } catch ( final InterruptedException e )
         {
             e.printStackTrace();
         }
@@ -324,53 +352,47 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
         return fileOut;
     }
 
-    public File inflateFromDirectory( final File tmpOutputDirectory, final File fileOut )
-            throws IOException
+    /**
+     * Inflates the FASTA/Q file straight from the entries of
+     * <code>fileIn</code>, writing it to <code>out</code> in order as it is
+     * decoded.
+     *
+     * @throws UncheckedIOException
+     *             if <code>fileIn</code> can't be read or <code>out</code>
+     *             written, once everything opened is closed
+     */
+    @Override
+    public synchronized void inflate(
+            final Configuration configuration,
+            final File fileIn,
+            final WritableByteChannel out )
     {
-        createOutputFiles( tmpOutputDirectory.getPath() + File.separator, fileOut );
-
-        initializeInflator();
-
-        while ( getNextNucleotides() )
-            // Write sequence
-            nucleotides.chars().mapToObj( base -> (byte) base ).forEach( base -> {
-
-                // Check for headerPosition index
-                if ( fastOut.position() == headerPosition )
-                    writeNextHeader();
-
-                processSequence();
-
-                writeNucleotide( base );
-            } );
-
-        // Write tail
-        writeTail();
+        assert fileIn.exists();
 
-        return fileOut;
-    }
+        setIoMode( configuration );
 
-    protected File inflateFromFile( final File fileIn, final File tmpOutputDirectory )
-    {
-        tmpOutputDirectory.mkdirs();
-        ZipFile zipFile;
-        try
+        try ( final ZipArchiveReader archive = new ZipArchiveReader( fileIn, ioMode ) )
         {
-            zipFile = new ZipFile( fileIn );
+            openInputFiles( archive );
 
-            zipFile.extractAll( tmpOutputDirectory.getPath() );
-        } catch ( final ZipException e )
+            fastOut = new ChannelOutputStream( out );
+
+            try
+            {
+                writeFastFile();
+            } finally
+            {
+                close();
+            }
+        } catch ( final IOException e )
         {
-            if ( !interrupted )
-                System.err.println( e.getMessage() );
+            throw new UncheckedIOException( e );
         }
-
-        return tmpOutputDirectory;
     }
 
     protected void initializeInflator()
     {
-        header.replace( "" );
+        headerLength = headerIdentifierStart = 0;
 
         nStart = -1;
         consecNs = -1;
@@ -378,20 +400,11 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
         iupacPosition = -1;
         iupacBase = 0x0;
 
-        nucleotides.replace( "" );
         dnaPosition.reset();
         seqDnaPosition.set( 0 );
 
         // Get first sequence identifier
-        if ( headerfile.hasNext() )
-        {
-            final String headerInfo = headerfile.nextLine() +
-                    ( containsCarriageReturns() ? (char) CARRIAGE_RETURN + "" + (char) NEWLINE
-                                                : (char) NEWLINE );
-            final String [] headInd = headerInfo.split( "\\" + PIPE, 2 );
-            headerPosition = Long.parseLong( headInd[0] );
-            header.replace( (char) getSequenceIdentifierStart() + headInd[1] );
-        }
+        getNextSequenceIdentifier( true );
 
         // Get first N
         getNextNs();
@@ -406,8 +419,101 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
         return isRNAData;
     }
 
+    /**
+     * Reads the next of <code>events</code>.
+     *
+     * @return whether there was one
+     */
+    protected static boolean nextEvent( final SequenceEventReader events )
+    {
+        try
+        {
+            return events.next();
+        } catch ( final IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * @return how many positions from <code>position</code> on come before
+     *         <code>event</code>, short of the one just before it, or
+     *         {@link Long#MAX_VALUE} if it has passed
+     */
+    protected static long nucleotidesBefore( final long event, final long position )
+    {
+        return event < position ? Long.MAX_VALUE : event - position - 1;
+    }
+
+    /**
+     * Opens the files deflated from the FASTA/Q file, which are read in order
+     * from start to end.
+     */
+    @SuppressWarnings ( "resource" )
+    protected void openInputFiles( final ZipArchiveReader archive ) throws IOException
+    {
+        // The properties tell how the other files were written
+        metafile = getProperties( archive.openFile( META_FILE ) );
+
+        parseProperties();
+
+        datahcf = new BufferedInputStream( archive.openFile( SEQUENCE_DATA_FILE ),
+                INPUT_BUFFER_SIZE );
+        nfile = openRuns( archive, N_FILE );
+        headerfile = formatVersion == TEXT_FORMAT_VERSION
+                ? new TextFieldReader( archive.openFile( SEQUENCE_ID_FILE ) ) : null;
+        locationfile = formatVersion == TEXT_FORMAT_VERSION ? null
+                : new LocationIndexReader( archive.openFile( SEQUENCE_ID_INDEX_FILE ) );
+        identifierfile = formatVersion == TEXT_FORMAT_VERSION ? null
+                : openSequenceIdentifiers( archive );
+        iupacfile = formatVersion == TEXT_FORMAT_VERSION
+                ? SequenceEventReader.textSymbols( archive.openFile( IUPAC_CODE_FILE ) )
+                : SequenceEventReader.symbols( archive.openFile( IUPAC_CODE_FILE ) );
+        tailfile = new TextFieldReader( archive.openFile( SEQUENCE_TAIL_FILE ) );
+    }
+
+    /**
+     * Opens the runs of <code>file</code>, written as hex text by archives of
+     * the {@link #TEXT_FORMAT_VERSION}.
+     */
+    protected SequenceEventReader openRuns( final ZipArchiveReader archive, final String file )
+            throws IOException
+    {
+        return formatVersion == TEXT_FORMAT_VERSION
+                ? SequenceEventReader.textRuns( archive.openFile( file ) )
+                : SequenceEventReader.runs( archive.openFile( file ) );
+    }
+
+    /**
+     * Opens the sequence identifiers, written in columns by archives since
+     * the {@link #TEXT_FORMAT_VERSION}.
+     */
+    protected SequenceIdentifierReader openSequenceIdentifiers( final ZipArchiveReader archive )
+            throws IOException
+    {
+        final InputStream [] columns = new InputStream [Integer
+                .parseInt( metafile.getProperty( META_SEQUENCE_ID_COLUMNS ) )];
+        for ( int c = 0; c < columns.length; c++ )
+            columns[c] = archive.openFile( format( SEQUENCE_ID_COLUMN_FILE, c ) );
+        return new SequenceIdentifierReader( archive.openFile( SEQUENCE_ID_LAYOUT_FILE ),
+                columns );
+    }
+
+    protected long outputPosition()
+    {
+        try
+        {
+            return fastOut.position();
+        } catch ( final IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
     protected void parseProperties()
     {
+        formatVersion = Integer.parseInt(
+            metafile.getProperty( META_FORMAT_VERSION, "" + TEXT_FORMAT_VERSION ) );
         fastFileSize = Long.parseLong( (String) metafile.get( META_FILE_SIZE ) );
         containsCarriageReturns = Boolean
                 .parseBoolean( (String) metafile.get( META_CARRIAGE_RETURN ) );
@@ -425,6 +531,33 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
             writeNextIupacBase();
     }
 
+    private void setIoMode( final Configuration configuration )
+    {
+        if ( !configuration.optionIsNull( IO_MODE ) )
+            setIoMode( IoMode.parse( (String) configuration.getOption( IO_MODE ) ) );
+    }
+
+    /**
+     * Chooses how the archive is read and the FASTA/Q file is written.
+     */
+    public void setIoMode( final IoMode ioMode )
+    {
+        this.ioMode = ioMode;
+    }
+
+    /**
+     * Writes a line break into <code>bytes</code> at <code>offset</code>.
+     *
+     * @return the offset just past it
+     */
+    private int writeLineBreak( final byte [] bytes, int offset )
+    {
+        if ( containsCarriageReturns() )
+            bytes[offset++] = CARRIAGE_RETURN;
+        bytes[offset++] = NEWLINE;
+        return offset;
+    }
+
     protected void writeNewline() throws IOException
     {
         if ( containsCarriageReturns() )
@@ -438,13 +571,12 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
         {
             // Write header
             beforeSequence();
-            fastOut.put( header.toString().getBytes() );
-            getNextSequenceIdentifier();
+            fastOut.write( header, 0, headerLength );
+            getNextSequenceIdentifier( false );
             seqDnaPosition.set( 0 );
         } catch ( final IOException e )
         {
-            if ( !interrupted )
-                e.printStackTrace();
+            throw new UncheckedIOException( e );
         }
     }
 
@@ -475,22 +607,76 @@ public abstract class FastFileInflator implements FastFileArchiver, FileInflator
             fastOut.write( nucleotide );
         } catch ( final IOException e )
         {
-            if ( !interrupted )
-                System.err.println( e.getMessage() );
+            throw new UncheckedIOException( e );
         }
         dnaPosition.increment();
     }
 
+    /**
+     * Writes the <code>length</code> nucleotides at <code>offset</code> in
+     * <code>nucleotides</code> as they are, no more than
+     * {@link #clearNucleotides()} allows.
+     */
+    protected void writeNucleotides( final byte [] nucleotides, final int offset,
+            final int length ) throws IOException
+    {
+        fastOut.write( nucleotides, offset, length );
+        dnaPosition.add( length );
+        seqDnaPosition.addAndGet( length );
+    }
+
     protected void writeTail() throws IOException
     {
         if ( tailfile.hasNext() )
         {
-            final String tail = tailfile.next();
-            tail.chars().mapToObj( base -> (byte) base ).forEach( base -> {
-                writeNucleotide( base );
-            } );
+            final int length = tailfile.readField( NEWLINE );
+            final byte [] tail = tailfile.getField();
+            for ( int b = 0; b < length; b++ )
+                writeNucleotide( tail[b] );
         } else processSequence();
-        if ( fastOut.available() > 0 )
+        if ( hasRemainingOutput() )
             writeNewline();
     }
+
+    private void writeFastFile() throws IOException
+    {
+        initializeInflator();
+
+        final TwoBitNucleotideUnpacker unpacker = new TwoBitNucleotideUnpacker( isRNAData() );
+        final byte [] tetramers = new byte [INPUT_BUFFER_SIZE / NUCLEOTIDES_PER_BYTE];
+        final ByteBuffer nucleotides = ByteBuffer.allocate( INPUT_BUFFER_SIZE );
+        for ( int read; ( read = datahcf.read( tetramers ) ) >= 0; )
+        {
+            if ( interrupted )
+                throw new InterruptedIOException( "Inflation interrupted" );
+
+            nucleotides.clear();
+            unpacker.unpack( tetramers, 0, read, nucleotides );
+
+            // Write sequence, a nucleotide at a time only where something
+            // else is written with it
+            final byte [] bases = nucleotides.array();
+            for ( int n = 0; n < nucleotides.position(); )
+            {
+                final int clear = (int) Math.min( clearNucleotides(), nucleotides.position() - n );
+                if ( clear > 0 )
+                {
+                    writeNucleotides( bases, n, clear );
+                    n += clear;
+                    continue;
+                }
+
+                // Check for headerPosition index
+                if ( outputPosition() == headerPosition )
+                    writeNextHeader();
+
+                processSequence();
+
+                writeNucleotide( bases[n++] );
+            }
+        }
+
+        // Write tail
+        writeTail();
+    }
 }
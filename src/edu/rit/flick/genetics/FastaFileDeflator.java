@@ -8,15 +8,14 @@ package edu.rit.flick.genetics;
 
 import static java.lang.String.format;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileChannel.MapMode;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 
 import edu.rit.flick.genetics.util.ByteBufferOutputStream;
+import edu.rit.flick.genetics.util.SequenceEventWriter;
+import edu.rit.flick.genetics.util.ZipArchiveWriter;
 
 /**
  * @author Alex Aiezza
@@ -25,7 +24,7 @@ import edu.rit.flick.genetics.util.ByteBufferOutputStream;
 public class FastaFileDeflator extends FastFileDeflator implements FastaFileArchiver
 {
     // Output files
-    protected ByteBufferOutputStream tandemfile;
+    protected SequenceEventWriter    tandemfile;
 
     // Tracking fields
     protected boolean                writingTandemRepeat;
@@ -35,91 +34,83 @@ public class FastaFileDeflator extends FastFileDeflator implements FastaFileArch
     protected int                    fastaSequenceLineSize = DEFAULT_FASTA_SEQUENCE_LINE_SIZE;
 
     @Override
-    protected void beforeProcessNucleotide()
+    protected void closeOutputFiles() throws IOException
     {
-        try
-        {
-            switch ( dnaByte )
-            {
-            // Check for N
-            case N:
-                if ( writingTandemRepeat )
-                {
-                    final String tandemPositionStr = Long.toHexString( dnaPosition.longValue() )
-                            .toUpperCase() + PIPE;
-                    tandemfile.write( tandemPositionStr.getBytes() );
-                    writingTandemRepeat = false;
-                }
-                break;
-            // Check for lowercase nucleotides
-            case a:
-            case c:
-            case g:
-            case t:
-            case u:
-                if ( !writingTandemRepeat )
-                {
-                    writingTandemRepeat = true;
-                    final String tandemPositionStr = Long.toHexString( dnaPosition.longValue() )
-                            .toUpperCase() + RANGE;
+        super.closeOutputFiles();
 
-                    tandemfile.write( tandemPositionStr.getBytes() );
+        tandemfile.close();
 
-                }
-                stillInTandemRepeat = true;
-
-                dnaByte = (byte) Character.toUpperCase( (char) dnaByte );
-                // Check for uppercase nucleotides
-            case A:
-            case C:
-            case G:
-            case T:
-            case U:
-                if ( writingTandemRepeat && !stillInTandemRepeat )
-                {
-                    final String tandemPositionStr = Long.toHexString( dnaPosition.longValue() )
-                            .toUpperCase() + PIPE;
-                    tandemfile.write( tandemPositionStr.getBytes() );
-                    writingTandemRepeat = false;
-                }
+        tandemfile = null;
+    }
 
-                stillInTandemRepeat = false;
-                break;
-            default:
-                stillInTandemRepeat = Character.isLowerCase( dnaByte );
+    @Override
+    protected byte [] createByteClasses()
+    {
+        final byte [] classes = super.createByteClasses();
 
-                if ( writingTandemRepeat && !stillInTandemRepeat )
-                {
-                    final String tandemPositionStr = Long.toHexString( dnaPosition.longValue() )
-                            .toUpperCase() + PIPE;
-                    tandemfile.write( tandemPositionStr.getBytes() );
-                    writingTandemRepeat = false;
-                }
-            }
-        } catch ( final IOException e )
-        {
-            e.printStackTrace();
-        }
+        for ( final byte nucleotide : new byte [] { a, c, g, t, u } )
+            classes[nucleotide] = (byte) ( classes[Character.toUpperCase( nucleotide )] |
+                    SOFT_MASKED );
+
+        return classes;
     }
 
     @Override
-    protected void createOutputFiles( final File fastaFile, final String tempOutputDirectory )
+    protected void createRecordGroupOutputs()
+    {
+        super.createRecordGroupOutputs();
+
+        tandemfile = SequenceEventWriter.runs( ByteBufferOutputStream.grow() );
+    }
+
+    @Override
+    protected FastFileDeflator createRecordGroupDeflator()
+    {
+        return new FastaFileDeflator();
+    }
+
+    /**
+     * Groups may start anywhere; the state carried into them is found by
+     * {@link #summarizeRecordGroup(ByteBuffer, RecordGroup)}.
+     */
+    @Override
+    protected long findRecordGroupStart( final long position, final long size )
+    {
+        return Math.min( position, size );
+    }
+
+    @Override
+    protected void createOutputFiles( final long fastaFileSize, final ZipArchiveWriter archive )
             throws IOException
     {
-        super.createOutputFiles( fastaFile, tempOutputDirectory );
+        super.createOutputFiles( fastaFileSize, archive );
 
-        tandemfile = ByteBufferOutputStream.map(
-            new File( tempOutputDirectory + TANDEM_REPEAT_FILE ), MapMode.READ_WRITE,
-            (long) ( fastaFile.length() / ( EXPECTED_COMPRESSION_RATIO * 2 ) ) );
+        tandemfile = SequenceEventWriter.runs( archive.createFile( TANDEM_REPEAT_FILE ) );
     }
 
 
+    @Override
+    protected void endSoftMask() throws IOException
+    {
+        if ( writingTandemRepeat )
+        {
+            tandemfile.endRun( dnaPosition );
+            writingTandemRepeat = false;
+        }
+    }
+
     @Override
     public int getFastaSequenceLineSize()
     {
         return fastaSequenceLineSize;
     }
 
+    @Override
+    protected int getRecordGroupLineType()
+    {
+        return SEQUENCE_LINE;
+    }
+
     @Override
     protected List<Byte> getSequenceEscapes()
     {
@@ -138,6 +129,25 @@ public class FastaFileDeflator extends FastFileDeflator implements FastaFileArch
         fastaSequenceLineSize = DEFAULT_FASTA_SEQUENCE_LINE_SIZE;
     }
 
+    @Override
+    protected void initializeRecordGroup( final RecordGroup group )
+    {
+        super.initializeRecordGroup( group );
+
+        writingTandemRepeat = group.inSoftMask;
+        tandemfile.startRecordGroup( group.inSoftMask );
+    }
+
+    @Override
+    protected void mergeRecordGroup( final FastFileDeflator group ) throws IOException
+    {
+        super.mergeRecordGroup( group );
+
+        final FastaFileDeflator fastaGroup = (FastaFileDeflator) group;
+        tandemfile.merge( fastaGroup.tandemfile );
+        writingTandemRepeat = fastaGroup.writingTandemRepeat;
+    }
+
     @Override
     protected void processProperties() throws IOException
     {
@@ -158,16 +168,12 @@ public class FastaFileDeflator extends FastFileDeflator implements FastaFileArch
             if ( !writingTandemRepeat && stillInTandemRepeat )
             {
                 writingTandemRepeat = true;
-                final String tandemPositionStr = Long.toHexString( dnaPosition.longValue() )
-                        .toUpperCase() + RANGE;
-                tandemfile.write( tandemPositionStr.getBytes() );
+                tandemfile.startRun( dnaPosition );
             }
 
             if ( writingTandemRepeat && ( !stillInTandemRepeat || compressionCounter <= 0 ) )
             {
-                final String tandemPositionStr = Long.toHexString( dnaPosition.longValue() )
-                        .toUpperCase() + PIPE;
-                tandemfile.write( tandemPositionStr.getBytes() );
+                tandemfile.endRun( dnaPosition );
                 writingTandemRepeat = false;
             }
 
@@ -177,37 +183,107 @@ public class FastaFileDeflator extends FastFileDeflator implements FastaFileArch
 
         if ( writingTandemRepeat )
         {
-            final String tandemPositionStr = Long.toHexString( dnaPosition.longValue() )
-                    .toUpperCase() + PIPE;
-            tandemfile.write( tandemPositionStr.getBytes() );
+            tandemfile.endRun( dnaPosition );
             writingTandemRepeat = false;
         }
+
+        endNRun();
     }
 
-    @SuppressWarnings ( "resource" )
     @Override
-    public void removeUnusedBufferSpace( final String tmpOutputDirectory )
-            throws IOException, InterruptedException
+    public void setFastaSequenceLineSize( final int fastaSequenceLineSize )
     {
-        super.removeUnusedBufferSpace( tmpOutputDirectory );
+        useCustomFastaSequenceLineSize = true;
+        this.fastaSequenceLineSize = fastaSequenceLineSize;
+    }
 
-        final long actualTandemFileSize = tandemfile.position();
+    @Override
+    protected void startSoftMask() throws IOException
+    {
+        if ( !writingTandemRepeat )
+        {
+            writingTandemRepeat = true;
+            tandemfile.startRun( dnaPosition );
+        }
+    }
 
-        tandemfile.close();
+    @Override
+    protected void summarizeRecordGroup( final ByteBuffer in, final RecordGroup group )
+    {
+        final byte [] classes = byteClasses;
+        final int limit = in.limit();
 
-        tandemfile = null;
+        for ( int i = in.position(); i < limit; i++ )
+        {
+            // Skip whole words of nucleotides and Ns
+            while ( group.lineType == SEQUENCE_LINE && limit - i >= Long.BYTES )
+            {
+                final long word = in.getLong( i );
+                final long lanes = SwarByteClassifier.nucleotides( word ) |
+                        SwarByteClassifier.softMasked( word ) | SwarByteClassifier.n( word );
+                if ( SwarByteClassifier.leadingBytes( lanes ) < Long.BYTES )
+                    break;
+
+                final byte last = (byte) word;
+                final byte lastClass = classes[last];
+                group.sequenceLength += Long.BYTES;
+                group.lineSize += Long.BYTES;
+                group.endsInNRun = last == N;
+                group.softMaskChanged = true;
+                group.endsInSoftMask = lastClass >= 0 && ( lastClass & SOFT_MASKED ) != 0;
+                i += Long.BYTES;
+            }
+            if ( i == limit )
+                break;
 
-        final File tandemFile = new File( tmpOutputDirectory + TANDEM_REPEAT_FILE );
+            final byte b = in.get( i );
 
-        final FileChannel fc = new FileOutputStream( tandemFile, true ).getChannel();
-        fc.force( true );
-        fc.truncate( actualTandemFileSize ).close();
-    }
+            if ( group.lineType == SEQUENCE_IDENTIFIER_LINE )
+            {
+                if ( b == CARRIAGE_RETURN )
+                    group.containsCarriageReturns = true;
 
-    @Override
-    public void setFastaSequenceLineSize( final int fastaSequenceLineSize )
-    {
-        useCustomFastaSequenceLineSize = true;
-        this.fastaSequenceLineSize = fastaSequenceLineSize;
+                // The first byte of the line is the identifier start
+                if ( !group.lineStarted )
+                    group.lineStarted = true;
+                else if ( b == NEWLINE )
+                {
+                    group.lineType = SEQUENCE_LINE;
+                    group.lineStarted = false;
+                }
+                continue;
+            }
+
+            final byte byteClass = classes[b & 0xFF];
+            if ( byteClass == IUPAC_EVENT && Character.isLowerCase( b ) )
+            {
+                group.sequenceLength++;
+                group.lineSize++;
+                group.endsInNRun = false;
+                continue;
+            }
+
+            group.softMaskChanged = true;
+            group.endsInSoftMask = byteClass >= 0 && ( byteClass & SOFT_MASKED ) != 0;
+
+            switch ( byteClass )
+            {
+            case NEWLINE_EVENT:
+                group.lineSizeReset = true;
+                group.lineSize = 0;
+                break;
+            case CARRIAGE_RETURN_EVENT:
+                group.containsCarriageReturns = true;
+                break;
+            case ESCAPE_EVENT:
+                group.lineType = SEQUENCE_IDENTIFIER_LINE;
+                group.lineStarted = true;
+                break;
+            default:
+                group.sequenceLength++;
+                group.lineSize++;
+                group.endsInNRun = byteClass == N_EVENT;
+            }
+        }
     }
 }
@@ -6,14 +6,11 @@
  */
 package edu.rit.flick.genetics;
 
-import static org.apache.commons.io.FileUtils.getFile;
-
-import java.io.File;
 import java.io.IOException;
-import java.util.Scanner;
-import java.util.StringTokenizer;
+import java.io.UncheckedIOException;
 
-import edu.rit.flick.genetics.util.HexPrinter;
+import edu.rit.flick.genetics.util.SequenceEventReader;
+import edu.rit.flick.genetics.util.ZipArchiveReader;
 
 /**
  * @author Alex Aiezza
@@ -21,15 +18,20 @@ import edu.rit.flick.genetics.util.HexPrinter;
  */
 public class FastaFileInflator extends FastFileInflator implements FastaFileArchiver
 {
+    /**
+     * The bit that makes a nucleotide lower case.
+     */
+    private static final byte     LOWER_CASE            = 'a' - 'A';
+
     // Input files
-    protected Scanner tandemFile;
+    protected SequenceEventReader tandemFile;
 
     // Tracking fields
-    protected boolean useCustomSequenceLineSize;
-    protected int     fastaSequenceLineSize = DEFAULT_FASTA_SEQUENCE_LINE_SIZE;
+    protected boolean             useCustomSequenceLineSize;
+    protected int                 fastaSequenceLineSize = DEFAULT_FASTA_SEQUENCE_LINE_SIZE;
 
-    protected long    tandemStart           = -1, tandemEnd = -1;
-    protected boolean inTandemRepeat        = false;
+    protected long                tandemStart           = -1, tandemEnd = -1;
+    protected boolean             inTandemRepeat        = false;
 
     @Override
     protected void afterWriteNucleotide()
@@ -38,32 +40,36 @@ public class FastaFileInflator extends FastFileInflator implements FastaFileArch
         try
         {
             if ( seqDnaPosition.get() % fastaSequenceLineSize == 0 &&
-                    fastOut.position() != headerPosition )
+                    outputPosition() != headerPosition )
                 writeNewline();
         } catch ( final IOException e )
         {
-            e.printStackTrace();
+            throw new UncheckedIOException( e );
         }
     }
 
+    /**
+     * Nucleotides are not written together up to the end of their line, nor
+     * into or out of a tandem repeat.
+     */
     @Override
-    protected void close() throws IOException, InterruptedException
+    protected long clearNucleotides()
     {
-        super.close();
-        if ( tandemFile != null )
-            tandemFile.close();
+        final long position = dnaPosition.longValue();
+        final long lineEnd = ( seqDnaPosition.get() / fastaSequenceLineSize + 1 ) *
+                fastaSequenceLineSize;
+        return Math.max( 0, Math.min( super.clearNucleotides(),
+            Math.min( nucleotidesBefore( lineEnd, seqDnaPosition.get() ),
+                Math.min( nucleotidesBefore( tandemStart, position ),
+                    nucleotidesBefore( tandemEnd, position ) ) ) ) );
     }
 
-    @SuppressWarnings ( "resource" )
     @Override
-    protected void createOutputFiles( final String tempOutputDirectory, final File fastFile )
-            throws IOException
+    protected void close() throws IOException
     {
-        useCustomSequenceLineSize = false;
-        super.createOutputFiles( tempOutputDirectory, fastFile );
-
-        tandemFile = new Scanner( getFile( tempOutputDirectory, TANDEM_REPEAT_FILE ) )
-                .useDelimiter( "\\" + PIPE );
+        super.close();
+        if ( tandemFile != null )
+            tandemFile.close();
     }
 
     @Override
@@ -75,11 +81,10 @@ public class FastaFileInflator extends FastFileInflator implements FastaFileArch
     private void getNextTandemRepeatChunk()
     {
         inTandemRepeat = false;
-        if ( tandemFile.hasNext() )
+        if ( nextEvent( tandemFile ) )
         {
-            final StringTokenizer tandems = new StringTokenizer( tandemFile.next(), RANGE );
-            tandemStart = Long.parseLong( tandems.nextToken(), HexPrinter.RADIX );
-            tandemEnd = Long.parseLong( tandems.nextToken(), HexPrinter.RADIX );
+            tandemStart = tandemFile.getStart();
+            tandemEnd = tandemFile.getEnd();
         }
     }
 
@@ -96,6 +101,16 @@ public class FastaFileInflator extends FastFileInflator implements FastaFileArch
         getNextTandemRepeatChunk();
     }
 
+    @SuppressWarnings ( "resource" )
+    @Override
+    protected void openInputFiles( final ZipArchiveReader archive ) throws IOException
+    {
+        useCustomSequenceLineSize = false;
+        super.openInputFiles( archive );
+
+        tandemFile = openRuns( archive, TANDEM_REPEAT_FILE );
+    }
+
     @Override
     protected void parseProperties()
     {
@@ -134,4 +149,14 @@ public class FastaFileInflator extends FastFileInflator implements FastaFileArch
         nucleotide = isRNAData() && nucleotide == t ? u : nucleotide;
         super.writeNucleotide( nucleotide );
     }
+
+    @Override
+    protected void writeNucleotides( final byte [] nucleotides, final int offset,
+            final int length ) throws IOException
+    {
+        if ( inTandemRepeat )
+            for ( int n = offset; n < offset + length; n++ )
+                nucleotides[n] |= LOWER_CASE;
+        super.writeNucleotides( nucleotides, offset, length );
+    }
 }
@@ -27,6 +27,7 @@ import edu.rit.flick.genetics.config.FastqInflationOptionSet;
 public interface FastqFileArchiver extends FastFileArchiver
 {
     public static final String SEQUENCE_SCORE_FILE                     = "Scores.txt";
+    public static final String SEQUENCE_SCORE_MODEL_FILE               = "Scores.hcf";
     public static final String SEQUENCE_LENGTH_FILE                    = "Lengths.hcf";
     public static final String COMMENTS_FILE                           = "Comments.txt";
 
@@ -37,11 +38,14 @@ public interface FastqFileArchiver extends FastFileArchiver
 
     public static final String META_COMMENT_SAME_AS_SEQUENCE_ID        = "commentSameAsSequenceId";
     public static final String META_COMMENT_EMPTY                      = "commentEmpty";
+    public static final String META_QUALITY_BINNING                    = "qualityBinning";
 
     public static final String META_COMMENT_SAME_AS_SEQUENCE_ID_FORMAT = format( "%s=%%b%%n",
         META_COMMENT_SAME_AS_SEQUENCE_ID );
     public static final String META_COMMENT_EMPTY_FORMAT               = format( "%s=%%b%%n",
         META_COMMENT_EMPTY );
+    public static final String META_QUALITY_BINNING_FORMAT             = format( "%s=%%s%%n",
+        META_QUALITY_BINNING );
 
     @Override
     public default String getDefaultDeflatedExtension()
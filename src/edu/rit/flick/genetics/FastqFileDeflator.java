@@ -6,19 +6,23 @@
  */
 package edu.rit.flick.genetics;
 
+import static edu.rit.flick.genetics.config.FastqDeflationOptionSet.QUALITY_BINNING;
 import static java.lang.String.format;
 
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.Arrays;
 import java.util.List;
 
+import edu.rit.flick.config.Configuration;
 import edu.rit.flick.genetics.util.ByteBufferOutputStream;
-import edu.rit.flick.genetics.util.HexPrinter;
+import edu.rit.flick.genetics.util.MappedBuffers;
+import edu.rit.flick.genetics.util.QualityBinning;
+import edu.rit.flick.genetics.util.QualityScoreWriter;
+import edu.rit.flick.genetics.util.ReadLengthWriter;
+import edu.rit.flick.genetics.util.ZipArchiveWriter;
 
 /**
  * @author Alex Aiezza
@@ -28,38 +32,129 @@ public class FastqFileDeflator extends FastFileDeflator implements FastqFileArch
 {
     private final static int       COMMENT_LINE               = 3, SCORES_LINE = 0;
 
+    /**
+     * The number of binned quality scores written at a time, however long the
+     * read.
+     */
+    private final static int       SCORE_CHUNK_SIZE           = 1 << 12;
+
     // Output files
-    private ByteBufferOutputStream scorefile;
-    private BufferedOutputStream   lengthfile;
-    private BufferedOutputStream   commentsfile;
+    private QualityScoreWriter     scorefile;
+    private ReadLengthWriter       lengthfile;
+    private ByteBufferOutputStream commentsfile;
 
     // Tracking fields
     private boolean                commentTheSameAsSequenceId = false;
     private boolean                commentEmpty               = false;
     private boolean                encounteredFirstComment    = false;
+    private QualityBinning         qualityBinning             = null;
+
+    private long                   sequenceStart;
+    private byte []                comment                    = new byte [1 << 8];
+    private int                    commentLength;
+    private final byte []          scoreLine                  = new byte [SCORE_CHUNK_SIZE];
+    private final ByteBuffer       oneByte                    = ByteBuffer.allocate( 1 );
+    private long                   scoresWritten;
 
-    private String                 sequenceId;
+    // A view of the slice being processed, that lines are copied out of whole
+    private ByteBuffer             slice;
 
     @Override
     protected void afterProcessNucleotides() throws IOException
     {
-        HexPrinter.shortToFile( (short) seqLineSize, lengthfile );
+        lengthfile.write( dnaPosition - sequenceStart );
+    }
+
+    /**
+     * Groups only end between records, as the comment and scores lines cannot
+     * be picked up part way through.
+     */
+    @Override
+    protected boolean canEndRecordGroup( final RecordGroup group )
+    {
+        return group.lineType == SEQUENCE_IDENTIFIER_LINE && !group.lineStarted;
+    }
+
+    @Override
+    protected void closeOutputFiles() throws IOException
+    {
+        super.closeOutputFiles();
+
+        scorefile.close();
+        commentsfile.close();
+        lengthfile.close();
+
+        scorefile = null;
+        commentsfile = null;
+        lengthfile = null;
     }
 
     @Override
-    protected void createOutputFiles( final File fastqFile, final String tempOutputDirectory )
+    protected void configure( final Configuration configuration )
+    {
+        super.configure( configuration );
+
+        if ( !configuration.optionIsNull( QUALITY_BINNING ) )
+            setQualityBinning(
+                QualityBinning.parse( (String) configuration.getOption( QUALITY_BINNING ) ) );
+    }
+
+    @Override
+    protected void createRecordGroupOutputs()
+    {
+        super.createRecordGroupOutputs();
+
+        scorefile = new QualityScoreWriter( ByteBufferOutputStream.grow() );
+        lengthfile = new ReadLengthWriter( ByteBufferOutputStream.grow() );
+        commentsfile = ByteBufferOutputStream.grow();
+    }
+
+    @Override
+    protected FastFileDeflator createRecordGroupDeflator()
+    {
+        final FastqFileDeflator deflator = new FastqFileDeflator();
+        deflator.commentTheSameAsSequenceId = commentTheSameAsSequenceId;
+        deflator.commentEmpty = commentEmpty;
+        deflator.qualityBinning = qualityBinning;
+        return deflator;
+    }
+
+    @Override
+    protected void createOutputFiles( final long fastqFileSize, final ZipArchiveWriter archive )
             throws IOException
     {
-        super.createOutputFiles( fastqFile, tempOutputDirectory );
+        super.createOutputFiles( fastqFileSize, archive );
+
+        scorefile = new QualityScoreWriter( archive.createStoredFile( SEQUENCE_SCORE_MODEL_FILE ) );
+        lengthfile = new ReadLengthWriter( archive.createFile( SEQUENCE_LENGTH_FILE ) );
+        commentsfile = archive.createFile( COMMENTS_FILE );
+    }
+
+    /**
+     * Quality scores may start with {@link #SEQUENCE_ID_START} too, so a group
+     * only starts at one that is followed by a sequence line, a comment line
+     * and as many quality scores as there were nucleotides.
+     */
+    @Override
+    protected long findRecordGroupStart( long position, final long size ) throws IOException
+    {
+        while ( position < size )
+        {
+            final long recordStart = nextRecordStart( position, size );
+            if ( recordStart == size || isRecordStart( recordStart, size ) )
+                return recordStart;
+            position = recordStart + 1;
+        }
 
-        scorefile = ByteBufferOutputStream.map(
-            new File( tempOutputDirectory + SEQUENCE_SCORE_FILE ), MapMode.READ_WRITE,
-            (long) ( fastqFile.length() * 2 * EXPECTED_COMPRESSION_RATIO ) );
-        lengthfile = new BufferedOutputStream(
-                new FileOutputStream( tempOutputDirectory + SEQUENCE_LENGTH_FILE ),
-                DEFAULT_BUFFER );
-        commentsfile = new BufferedOutputStream(
-                new FileOutputStream( tempOutputDirectory + COMMENTS_FILE ), DEFAULT_BUFFER );
+        return size;
+    }
+
+    private byte get( final long position ) throws IOException
+    {
+        oneByte.clear();
+        if ( fastIn.read( oneByte, position ) != 1 )
+            throw new EOFException( "No byte at " + position );
+        return oneByte.get( 0 );
     }
 
     @Override
@@ -77,96 +172,354 @@ public class FastqFileDeflator extends FastFileDeflator implements FastqFileArch
     }
 
     @Override
-    protected void processLineType()
+    protected void initializeRecordGroup( final RecordGroup group )
+    {
+        super.initializeRecordGroup( group );
+
+        // The parent deflator has already seen the first comment
+        encounteredFirstComment = true;
+        scorefile.startRecordGroup();
+        lengthfile.startRecordGroup();
+    }
+
+    private boolean isRecordStart( final long recordStart, final long size ) throws IOException
+    {
+        final long sequence = nextLineStart( recordStart, size );
+        final long comment = nextLineStart( sequence, size );
+        if ( comment == size || get( comment ) != COMMENT_START )
+            return false;
+
+        final long scores = nextLineStart( comment, size );
+        final long nextRecord = nextLineStart( scores, size );
+        return nextRecord == size ||
+                nextRecord - scores == comment - sequence && get( nextRecord ) == SEQUENCE_ID_START;
+    }
+
+    @Override
+    protected void mergeRecordGroup( final FastFileDeflator group ) throws IOException
     {
-        try
+        super.mergeRecordGroup( group );
+
+        final FastqFileDeflator fastqGroup = (FastqFileDeflator) group;
+        scorefile.merge( fastqGroup.scorefile );
+        lengthfile.merge( fastqGroup.lengthfile );
+        writeRecordGroupOutput( fastqGroup.commentsfile, commentsfile );
+    }
+
+    /**
+     * Reads the first record's sequence identifier and comment, which decide
+     * how every group stores its comments.
+     */
+    @Override
+    protected void prepareRecordGroups( final long size ) throws IOException
+    {
+        final long sequence = nextLineStart( 0, size );
+        sequenceIdentifierLength = (int) sequence - 1;
+        if ( sequenceIdentifierLength > sequenceIdentifier.length )
+            sequenceIdentifier = new byte [sequenceIdentifierLength];
+        readFully( ByteBuffer.wrap( sequenceIdentifier, 0, sequenceIdentifierLength ), 1 );
+
+        for ( long position = sequence; position < size; position += RECORD_SEARCH_SIZE )
         {
-            switch ( lineType.get() )
+            final ByteBuffer in = fastIn.map( MapMode.READ_ONLY, position,
+                Math.min( RECORD_SEARCH_SIZE, size - position ) );
+            try
             {
-            case COMMENT_LINE:
-                assert dnaByte == COMMENT_START;
+                for ( int i = 0; i < in.limit(); i++ )
+                    if ( byteClasses[in.get( i ) & 0xFF] == ESCAPE_EVENT )
+                    {
+                        final long commentStart = position + i + 1;
+                        final long commentEnd = nextLineStart( commentStart, size );
+                        if ( commentEnd == commentStart || get( commentEnd - 1 ) != NEWLINE )
+                            return;
 
-                final StringBuilder comment = new StringBuilder();
-                while ( fastIn.available() > 0 && ( dnaByte = (byte) fastIn.read() ) != -1 )
-                {
-                    comment.append( (char) dnaByte );
-                    if ( dnaByte == NEWLINE )
-                        break;
-                }
+                        final ByteBuffer commentBytes = ByteBuffer
+                                .allocate( (int) ( commentEnd - commentStart ) );
+                        readFully( commentBytes, commentStart );
 
-                if ( !encounteredFirstComment )
-                {
-                    commentTheSameAsSequenceId = sequenceId.equals( comment.toString() );
-                    commentEmpty = comment.length() <= 1;
-                    metafile.write( format( META_COMMENT_SAME_AS_SEQUENCE_ID_FORMAT,
-                        commentTheSameAsSequenceId ) );
-                    metafile.write( format( META_COMMENT_EMPTY_FORMAT, commentEmpty ) );
-                    encounteredFirstComment = true;
-                }
+                        processFirstComment( commentBytes.array(), commentBytes.capacity() );
+                        return;
+                    }
+            } finally
+            {
+                MappedBuffers.unmap( in );
+            }
+        }
+    }
 
-                if ( !commentTheSameAsSequenceId && !commentEmpty )
-                    commentsfile.write( comment.toString().getBytes() );
+    /**
+     * Writes the comment lines out of <code>in</code> as they are, past their
+     * {@link #COMMENT_START}, unless they are left out of the archive.
+     *
+     * @return the index in <code>in</code> where processing stopped
+     */
+    private int processComment( final ByteBuffer in, int i, final int limit )
+            throws IOException
+    {
+        if ( !lineStarted )
+        {
+            assert in.get( i ) == COMMENT_START;
+            commentLength = 0;
+            lineStarted = true;
+            i++;
+        }
 
-                break;
-            case SCORES_LINE:
-                final StringBuilder scoreLine = new StringBuilder();
-                while ( fastIn.available() > 0 && ( dnaByte = (byte) fastIn.read() ) != -1 &&
-                        dnaByte != NEWLINE )
-                    scoreLine.append( (char) dnaByte );
+        final int newline = SwarByteClassifier.indexOf( in, i, limit, NEWLINE );
+        final int end = newline < limit ? newline + 1 : limit;
+        slice.limit( end );
+        slice.position( i );
 
-                assert scoreLine.length() == seqLineSize;
+        if ( !encounteredFirstComment )
+        {
+            // Kept until it is known whether comments are written at all
+            if ( commentLength + end - i > comment.length )
+                comment = Arrays.copyOf( comment,
+                    Math.max( comment.length * 2, commentLength + end - i ) );
+            slice.get( comment, commentLength, end - i );
+            commentLength += end - i;
+            if ( newline == limit )
+                return limit;
 
-                scorefile.write( scoreLine.toString().getBytes() );
+            processFirstComment( comment, commentLength );
+            if ( !commentTheSameAsSequenceId && !commentEmpty )
+                commentsfile.write( comment, 0, commentLength );
+        } else if ( !commentTheSameAsSequenceId && !commentEmpty )
+            commentsfile.write( slice );
 
-                dnaByte = (byte) fastIn.read();
-                break;
-            }
-        } catch ( final IOException e )
+        if ( newline < limit )
+            progressLineType();
+        return end;
+    }
+
+    /**
+     * Decides how comments are stored from the first, the
+     * <code>length</code> bytes of <code>comment</code> with its line break.
+     */
+    private void processFirstComment( final byte [] comment, final int length )
+            throws IOException
+    {
+        boolean same = length == sequenceIdentifierLength;
+        for ( int b = 0; same && b < length; b++ )
+            same = comment[b] == sequenceIdentifier[b];
+        commentTheSameAsSequenceId = same;
+        commentEmpty = length <= 1;
+        metafile.write( format( META_COMMENT_SAME_AS_SEQUENCE_ID_FORMAT,
+            commentTheSameAsSequenceId ) );
+        metafile.write( format( META_COMMENT_EMPTY_FORMAT, commentEmpty ) );
+        encounteredFirstComment = true;
+    }
+
+    @Override
+    protected int processLineType( final ByteBuffer in, final int i, final int limit )
+            throws IOException
+    {
+        switch ( lineType )
         {
-            e.printStackTrace();
+        case COMMENT_LINE:
+            return processComment( in, i, limit );
+        case SCORES_LINE:
+            return processScores( in, i, limit );
         }
+
+        return i;
     }
 
     @Override
-    protected String processSequenceIdentifier() throws IOException
+    protected void processProperties() throws IOException
     {
-        sequenceId = super.processSequenceIdentifier();
-        return sequenceId;
+        super.processProperties();
+
+        if ( qualityBinning != null )
+            metafile.write( format( META_QUALITY_BINNING_FORMAT, qualityBinning ) );
+    }
+
+    /**
+     * Writes the quality scores out of <code>in</code> up to the end of their
+     * line, binning them first if they are binned.
+     *
+     * @return the index in <code>in</code> where processing stopped
+     */
+    private int processScores( final ByteBuffer in, final int i, final int limit )
+            throws IOException
+    {
+        if ( !lineStarted )
+        {
+            scorefile.startRead( sequenceStart );
+            scoresWritten = 0;
+            lineStarted = true;
+        }
+
+        final int end = SwarByteClassifier.indexOf( in, i, limit, NEWLINE );
+        slice.limit( end );
+        slice.position( i );
+
+        if ( qualityBinning == null )
+            scorefile.writePart( slice );
+        else
+        {
+            final byte [] bins = qualityBinning.getBins();
+            while ( slice.hasRemaining() )
+            {
+                final int length = Math.min( slice.remaining(), scoreLine.length );
+                slice.get( scoreLine, 0, length );
+                for ( int s = 0; s < length; s++ )
+                    scoreLine[s] = bins[scoreLine[s] & 0xFF];
+                scorefile.writePart( scoreLine, 0, length );
+            }
+        }
+        scoresWritten += end - i;
+
+        if ( end == limit )
+            return limit;
+
+        assert scoresWritten == dnaPosition - sequenceStart;
+        progressLineType();
+        return end + 1;
+    }
+
+    @Override
+    protected void processSlice( final ByteBuffer in, final long offset ) throws IOException
+    {
+        slice = in.duplicate();
+        super.processSlice( in, offset );
     }
 
     @Override
     protected void progressLineType()
     {
-        if ( lineType.get() == SEQUENCE_LINE )
-            lineType.set( COMMENT_LINE );
-        else if ( lineType.get() == COMMENT_LINE )
-            lineType.set( SCORES_LINE );
-        else super.progressLineType();
+        if ( lineType == SEQUENCE_LINE )
+        {
+            lineStarted = false;
+            lineType = COMMENT_LINE;
+        } else if ( lineType == COMMENT_LINE )
+        {
+            lineStarted = false;
+            lineType = SCORES_LINE;
+        } else
+        {
+            super.progressLineType();
+            sequenceStart = dnaPosition;
+        }
+    }
+
+    /**
+     * Fills <code>bytes</code> from <code>position</code> on.
+     */
+    private void readFully( final ByteBuffer bytes, long position ) throws IOException
+    {
+        while ( bytes.hasRemaining() )
+        {
+            final int read = fastIn.read( bytes, position );
+            if ( read < 0 )
+                throw new EOFException( "No byte at " + position );
+            position += read;
+        }
+    }
+
+    /**
+     * Bins the quality scores by <code>qualityBinning</code> as they are
+     * read, or keeps them as they are if it is <code>null</code>.
+     */
+    public void setQualityBinning( final QualityBinning qualityBinning )
+    {
+        this.qualityBinning = qualityBinning;
     }
 
-    @SuppressWarnings ( "resource" )
     @Override
-    protected void removeUnusedBufferSpace( final String tmpOutputDirectory )
-            throws IOException, InterruptedException
+    protected void summarizeRecordGroup( final ByteBuffer in, final RecordGroup group )
     {
-        super.removeUnusedBufferSpace( tmpOutputDirectory );
+        final byte [] classes = byteClasses;
+        final int limit = in.limit();
 
-        final long actualScoreFileSize = scorefile.position();
+        for ( int i = in.position(); i < limit; i++ )
+        {
+            if ( group.lineType != SEQUENCE_LINE )
+            {
+                // The first byte of the line is the identifier or comment start
+                if ( !group.lineStarted && group.lineType != SCORES_LINE )
+                {
+                    group.lineStarted = true;
+                    continue;
+                }
+                group.lineStarted = true;
 
-        scorefile.close();
-        commentsfile.close();
-        lengthfile.close();
+                // Skip whole words without a newline
+                while ( limit - i >= Long.BYTES )
+                {
+                    final long word = in.getLong( i );
+                    if ( SwarByteClassifier.equal( word, NEWLINE ) != 0 )
+                        break;
+                    if ( group.lineType == SEQUENCE_IDENTIFIER_LINE &&
+                            SwarByteClassifier.equal( word, CARRIAGE_RETURN ) != 0 )
+                        group.containsCarriageReturns = true;
+                    i += Long.BYTES;
+                }
+                if ( i == limit )
+                    break;
 
-        scorefile = null;
+                final byte b = in.get( i );
+                if ( b == CARRIAGE_RETURN && group.lineType == SEQUENCE_IDENTIFIER_LINE )
+                    group.containsCarriageReturns = true;
+                else if ( b == NEWLINE )
+                {
+                    group.lineType = group.lineType == SEQUENCE_IDENTIFIER_LINE ? SEQUENCE_LINE
+                            : group.lineType == COMMENT_LINE ? SCORES_LINE
+                                    : SEQUENCE_IDENTIFIER_LINE;
+                    group.lineStarted = false;
+                }
+                continue;
+            }
 
-        // Give the last method a moment to garbage collect
-        System.gc();
-        Thread.sleep( 1000 );
+            // Skip whole words of nucleotides and Ns
+            while ( limit - i >= Long.BYTES )
+            {
+                final long word = in.getLong( i );
+                final long lanes = SwarByteClassifier.nucleotides( word ) |
+                        SwarByteClassifier.n( word );
+                if ( SwarByteClassifier.leadingBytes( lanes ) < Long.BYTES )
+                    break;
 
-        final File scoreFile = new File( tmpOutputDirectory + SEQUENCE_SCORE_FILE );
+                group.sequenceLength += Long.BYTES;
+                group.lineSize += Long.BYTES;
+                group.endsInNRun = (byte) word == N;
+                i += Long.BYTES;
+            }
+            if ( i == limit )
+                break;
 
-        final FileChannel fc = new FileOutputStream( scoreFile, true ).getChannel();
-        fc.force( true );
-        fc.truncate( actualScoreFileSize ).close();
+            switch ( classes[in.get( i ) & 0xFF] )
+            {
+            case NEWLINE_EVENT:
+                group.lineSizeReset = true;
+                group.lineSize = 0;
+                break;
+            case CARRIAGE_RETURN_EVENT:
+                group.containsCarriageReturns = true;
+                break;
+            case ESCAPE_EVENT:
+                // Picked up again as the first byte of the comment
+                group.lineType = COMMENT_LINE;
+                group.lineStarted = false;
+                i--;
+                break;
+            case N_EVENT:
+                group.sequenceLength++;
+                group.lineSize++;
+                group.endsInNRun = true;
+                break;
+            default:
+                group.sequenceLength++;
+                group.lineSize++;
+                group.endsInNRun = false;
+            }
+        }
     }
+
+    /**
+     * Every sequence identifier follows the quality scores of the record
+     * before it, so its location is never needed.
+     */
+    @Override
+    protected void writeSequenceIdentifierLocation()
+    {}
 }
@@ -6,16 +6,20 @@
  */
 package edu.rit.flick.genetics;
 
-import static org.apache.commons.io.FileUtils.getFile;
-
 import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.commons.io.IOUtils;
 
-import it.unimi.dsi.io.ByteBufferInputStream;
-import it.unimi.dsi.lang.MutableString;
+import edu.rit.flick.config.Configuration;
+import edu.rit.flick.genetics.util.QualityScoreReader;
+import edu.rit.flick.genetics.util.ReadLengthReader;
+import edu.rit.flick.genetics.util.TextFieldReader;
+import edu.rit.flick.genetics.util.ZipArchiveReader;
 
 /**
  * @author Alex Aiezza
@@ -23,28 +27,48 @@ import it.unimi.dsi.lang.MutableString;
  */
 public class FastqFileInflator extends FastFileInflator implements FastqFileArchiver
 {
+    private static final String     QUALITY_BINNING_WARNING_FORMAT =
+            "Quality scores of '%s' were binned by %s%n";
+
     // Input Files
-    protected BufferedInputStream   lengthfile;
-    protected Scanner               commentsfile;
-    protected ByteBufferInputStream scorefile;
+    protected ReadLengthReader      lengthfile;
+    protected TextFieldReader       commentsfile;
+    protected InputStream           scorefile;
+    protected QualityScoreReader    qualityfile;
 
     // Tracking fields
-    private short                   length;
-    private final MutableString     previousHeader = new MutableString();
+    private long                    length;
+    private byte []                 previousHeader = new byte [DEFAULT_BUFFER];
+    private int                     previousHeaderLength;
+    private final byte []           scores         = new byte [INPUT_BUFFER_SIZE];
 
     protected boolean               commentTheSameAsSequenceId;
     protected boolean               commentEmpty;
+    protected String                qualityBinning;
 
     @Override
     protected void beforeSequence() throws IOException
     {
-        previousHeader.replace(
-            header.substring( header.indexOf( (char) getSequenceIdentifierStart() ) + 1 ) );
+        previousHeaderLength = headerLength - headerIdentifierStart;
+        if ( previousHeader.length < previousHeaderLength )
+            previousHeader = new byte [header.length];
+        System.arraycopy( header, headerIdentifierStart, previousHeader, 0,
+            previousHeaderLength );
         getNextLength();
     }
 
+    /**
+     * Nucleotides are not written together up to the end of their read.
+     */
     @Override
-    protected void close() throws IOException, InterruptedException
+    protected long clearNucleotides()
+    {
+        return Math.max( 0, Math.min( super.clearNucleotides(),
+            nucleotidesBefore( length, seqDnaPosition.get() ) ) );
+    }
+
+    @Override
+    protected void close() throws IOException
     {
         if ( lengthfile != null )
             lengthfile.close();
@@ -52,42 +76,72 @@ public class FastqFileInflator extends FastFileInflator implements FastqFileArch
             commentsfile.close();
         if ( scorefile != null )
             scorefile.close();
+        if ( qualityfile != null )
+            qualityfile.close();
 
         scorefile = null;
+        qualityfile = null;
 
         super.close();
     }
 
-
-    @Override
-    protected void createOutputFiles( final String tempOutputDirectory, final File fastFile )
-            throws IOException
+    public void getNextLength() throws IOException
     {
-        super.createOutputFiles( tempOutputDirectory, fastFile );
+        if ( lengthfile.hasNext() )
+            length = lengthfile.next();
+    }
 
-        lengthfile = new BufferedInputStream(
-                new FileInputStream( getFile( tempOutputDirectory, SEQUENCE_LENGTH_FILE ) ),
-                DEFAULT_BUFFER )
-        {
-            @Override
-            public synchronized int read() throws IOException
-            {
-                return super.read() << 8 | super.read() & 0x00ff;
-            }
-        };
-        commentsfile = new Scanner( getFile( tempOutputDirectory, COMMENTS_FILE ) );
+    /**
+     * @return the name of the {@link edu.rit.flick.genetics.util.QualityBinning}
+     *         the quality scores were binned by, or <code>null</code> if they
+     *         were kept as they were
+     */
+    public String getQualityBinning()
+    {
+        return qualityBinning;
+    }
 
-        final FileInputStream scoreFis = new FileInputStream(
-                getFile( tempOutputDirectory, SEQUENCE_SCORE_FILE ) );
-        scorefile = ByteBufferInputStream.map( scoreFis.getChannel() );
+    /**
+     * Every sequence identifier but the first is written after the quality
+     * scores of the record before it, so archives with a location index keep
+     * no locations for them.
+     */
+    @Override
+    protected long getSequenceIdentifierLocation( final boolean first ) throws IOException
+    {
+        if ( formatVersion == TEXT_FORMAT_VERSION )
+            return super.getSequenceIdentifierLocation( first );
+        return first ? 0 : -1;
+    }
 
-        scoreFis.close();
+    /**
+     * Reports whether the quality scores were binned, as they cannot be
+     * inflated as they were.
+     */
+    @Override
+    public synchronized File inflate(
+            final Configuration configuration,
+            final File fileIn,
+            final File fileOut )
+    {
+        final File inflated = super.inflate( configuration, fileIn, fileOut );
+        reportQualityBinning( fileIn );
+        return inflated;
     }
 
-    public void getNextLength() throws IOException
+    /**
+     * Reports whether the quality scores were binned, as they cannot be
+     * inflated as they were, once they are all written; nothing is reported
+     * if inflating fails.
+     */
+    @Override
+    public synchronized void inflate(
+            final Configuration configuration,
+            final File fileIn,
+            final WritableByteChannel out )
     {
-        if ( lengthfile.available() > 0 )
-            length = (short) lengthfile.read();
+        super.inflate( configuration, fileIn, out );
+        reportQualityBinning( fileIn );
     }
 
     @Override
@@ -95,7 +149,23 @@ public class FastqFileInflator extends FastFileInflator implements FastqFileArch
     {
         super.initializeInflator();
 
-        previousHeader.replace( "" );
+        previousHeaderLength = 0;
+    }
+
+    @Override
+    protected void openInputFiles( final ZipArchiveReader archive ) throws IOException
+    {
+        super.openInputFiles( archive );
+
+        lengthfile = new ReadLengthReader( archive.openFile( SEQUENCE_LENGTH_FILE ),
+                formatVersion != TEXT_FORMAT_VERSION );
+        commentsfile = new TextFieldReader( archive.openFile( COMMENTS_FILE ) );
+        if ( formatVersion == TEXT_FORMAT_VERSION )
+            scorefile = new BufferedInputStream( archive.openFile( SEQUENCE_SCORE_FILE ),
+                    INPUT_BUFFER_SIZE );
+        else qualityfile = new QualityScoreReader(
+                new BufferedInputStream( archive.openFile( SEQUENCE_SCORE_MODEL_FILE ),
+                        INPUT_BUFFER_SIZE ) );
     }
 
     @Override
@@ -105,12 +175,13 @@ public class FastqFileInflator extends FastFileInflator implements FastqFileArch
         commentTheSameAsSequenceId = Boolean
                 .parseBoolean( (String) metafile.get( META_COMMENT_SAME_AS_SEQUENCE_ID ) );
         commentEmpty = Boolean.parseBoolean( (String) metafile.get( META_COMMENT_EMPTY ) );
+        qualityBinning = metafile.getProperty( META_QUALITY_BINNING );
     }
 
     @Override
     protected void processSequence()
     {
-        if ( fastOut.hasRemaining() && seqDnaPosition.get() == length )
+        if ( hasRemainingOutput() && seqDnaPosition.get() == length )
             try
             {
                 writeComment();
@@ -118,39 +189,65 @@ public class FastqFileInflator extends FastFileInflator implements FastqFileArch
                 writeNextHeader();
             } catch ( final IOException e )
             {
-                e.printStackTrace();
+                throw new UncheckedIOException( e );
             }
         super.processSequence();
     }
 
+    /**
+     * Warns on the standard error, so as never to mix in with a file inflated
+     * to the standard output, that the quality scores of <code>fileIn</code>
+     * were binned.
+     */
+    private void reportQualityBinning( final File fileIn )
+    {
+        if ( qualityBinning != null )
+            System.err.printf( QUALITY_BINNING_WARNING_FORMAT, fileIn.getName(), qualityBinning );
+    }
+
     protected void writeComment() throws IOException
     {
-        fastOut.put( NEWLINE );
+        fastOut.write( NEWLINE );
         // Write comment
-        if ( commentsfile.hasNextLine() )
+        if ( commentsfile.hasNext() )
         {
-            fastOut.put( COMMENT_START );
-            fastOut.put( commentsfile.nextLine().getBytes() );
-            fastOut.put( NEWLINE );
+            final int length = commentsfile.readField( NEWLINE );
+            fastOut.write( COMMENT_START );
+            fastOut.write( commentsfile.getField(), 0, length );
+            fastOut.write( NEWLINE );
         } else if ( commentEmpty )
         {
-            fastOut.put( COMMENT_START );
-            fastOut.put( NEWLINE );
+            fastOut.write( COMMENT_START );
+            fastOut.write( NEWLINE );
         } else if ( commentTheSameAsSequenceId )
         {
-            fastOut.put( COMMENT_START );
-            fastOut.put( previousHeader.toString().getBytes() );
+            fastOut.write( COMMENT_START );
+            fastOut.write( previousHeader, 0, previousHeaderLength );
         }
     }
 
+    /**
+     * Writes the quality scores of the read a part at a time, however long it
+     * is.
+     */
     protected void writeQualityScores() throws IOException
     {
-        // Write quality scores
-        if ( scorefile.available() > 0 )
+        if ( qualityfile != null )
+        {
+            qualityfile.startRead( length );
+            for ( int read; ( read = qualityfile.readPart( scores, 0, scores.length ) ) > 0; )
+                fastOut.write( scores, 0, read );
+            return;
+        }
+
+        for ( long remaining = length; remaining > 0; )
         {
-            final byte [] scores = new byte [length];
-            scorefile.read( scores );
-            fastOut.put( scores );
+            final int read = IOUtils.read( scorefile, scores, 0,
+                (int) Math.min( remaining, scores.length ) );
+            if ( read == 0 )
+                break;
+            fastOut.write( scores, 0, read );
+            remaining -= read;
         }
     }
 }
@@ -0,0 +1,142 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static edu.rit.flick.genetics.TwoBitNucleotideConverter.BITS_PER_NUCLEOTIDE;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Classifies eight input bytes at a time held in a big-endian
+ * <code>long</code> word, the first byte being the most significant.
+ * <p>
+ * Every classification returns a lane mask: the high bit of each byte lane is
+ * set when that byte belongs to the class and every other bit is clear.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public final class SwarByteClassifier
+{
+    private static final long ONES       = 0x0101_0101_0101_0101L;
+
+    private static final long HIGH_BITS  = 0x8080_8080_8080_8080L;
+
+    private static final long LOW_BITS   = 0x7F7F_7F7F_7F7F_7F7FL;
+
+    private static final long CASE_BIT   = 0x2020_2020_2020_2020L;
+
+    private static final long LETTER_A   = 'A' * ONES, LETTER_C = 'C' * ONES, LETTER_G = 'G' * ONES,
+            LETTER_T = 'T' * ONES, LETTER_U = 'U' * ONES, LETTER_N = 'N' * ONES;
+
+    /**
+     * @return the lanes of <code>word</code> holding <code>letter</code>
+     */
+    private static long equal( final long word, final long letter )
+    {
+        final long x = word ^ letter;
+        return ~( ( x & LOW_BITS ) + LOW_BITS | x ) & HIGH_BITS;
+    }
+
+    /**
+     * @return the lanes of <code>word</code> holding <code>b</code>
+     */
+    public static long equal( final long word, final byte b )
+    {
+        return equal( word, ( b & 0xFF ) * ONES );
+    }
+
+    /**
+     * @return the index of the first <code>b</code> in <code>in</code> from
+     *         <code>from</code> up to <code>to</code>, searched eight bytes at
+     *         a time, or <code>to</code> if there is none
+     */
+    public static int indexOf( final ByteBuffer in, int from, final int to, final byte b )
+    {
+        final long letter = ( b & 0xFF ) * ONES;
+        for ( ; to - from >= Long.BYTES; from += Long.BYTES )
+        {
+            final long lanes = equal( in.getLong( from ), letter );
+            if ( lanes != 0 )
+                return from + Long.numberOfLeadingZeros( lanes ) / Byte.SIZE;
+        }
+        while ( from < to && in.get( from ) != b )
+            from++;
+        return from;
+    }
+
+    /**
+     * @return the number of leading lanes set in <code>lanes</code>
+     */
+    public static int leadingBytes( final long lanes )
+    {
+        return Long.numberOfLeadingZeros( ~lanes & HIGH_BITS ) / Byte.SIZE;
+    }
+
+    /**
+     * @return the lanes holding <code>N</code>
+     */
+    public static long n( final long word )
+    {
+        return equal( word, LETTER_N );
+    }
+
+    /**
+     * @return the lanes holding an uppercase <code>A</code>, <code>C</code>,
+     *         <code>G</code>, <code>T</code> or <code>U</code>
+     */
+    public static long nucleotides( final long word )
+    {
+        return equal( word, LETTER_A ) | equal( word, LETTER_C ) | equal( word, LETTER_G ) |
+                equal( word, LETTER_T ) | equal( word, LETTER_U );
+    }
+
+    /**
+     * @return the lanes holding a lowercase <code>a</code>, <code>c</code>,
+     *         <code>g</code>, <code>t</code> or <code>u</code>
+     */
+    public static long softMasked( final long word )
+    {
+        return nucleotides( word ^ CASE_BIT );
+    }
+
+    /**
+     * @return the lanes holding a <code>U</code> of either case
+     */
+    public static long rna( final long word )
+    {
+        return equal( word | CASE_BIT, LETTER_U | CASE_BIT );
+    }
+
+    /**
+     * @return a mask of the first <code>bytes</code> lanes
+     */
+    public static long leadingLanes( final int bytes )
+    {
+        return bytes == Long.BYTES ? HIGH_BITS : HIGH_BITS & ~( -1L >>> bytes * Byte.SIZE );
+    }
+
+    /**
+     * Gathers the 2-bit codes of eight nucleotides of either case into the low
+     * 16 bits of the result, the first nucleotide in the highest bits. Lanes
+     * that do not hold a nucleotide produce meaningless codes.
+     */
+    public static int toBits( final long word )
+    {
+        // A=00, C=01, G=10, T=U=11 from bits 1, 2 and 3 of the ASCII code
+        long bits = word >>> 1 & 0x0303_0303_0303_0303L ^ word >>> 2 & ONES;
+
+        bits = ( bits | bits >>> Byte.SIZE - BITS_PER_NUCLEOTIDE ) & 0x000F_000F_000F_000FL;
+        bits = ( bits | bits >>> Short.SIZE - 2 * BITS_PER_NUCLEOTIDE ) & 0x0000_00FF_0000_00FFL;
+        bits = ( bits | bits >>> Integer.SIZE - 4 * BITS_PER_NUCLEOTIDE ) & 0xFFFFL;
+
+        return (int) bits;
+    }
+
+    private SwarByteClassifier()
+    {}
+}
@@ -0,0 +1,68 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import java.util.Arrays;
+
+/**
+ * Static lookup tables for the 2-bit nucleotide encoding.
+ * <p>
+ * A tetramer byte is the four 2-bit codes of its nucleotides (first
+ * nucleotide in the high bits) offset by {@link Byte#MIN_VALUE}, which is
+ * exactly the byte the {@link ByteConverterBiMapFactory} assigns to that
+ * tetramer.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public final class TwoBitNucleotideConverter
+{
+    public static final int     BITS_PER_NUCLEOTIDE     = 2;
+
+    public static final int     NUCLEOTIDES_PER_BYTE    = Byte.SIZE / BITS_PER_NUCLEOTIDE;
+
+    /**
+     * The value every tetramer byte is offset by, matching the
+     * {@link Byte#MIN_VALUE} origin of the legacy byte converter.
+     */
+    public static final int     TETRAMER_BYTE_OFFSET    = 0x80;
+
+    public static final int     NOT_A_NUCLEOTIDE        = -1;
+
+    private static final byte [] NUCLEOTIDES            = { 'A', 'C', 'G', 'T' };
+
+    /**
+     * 2-bit code of every byte value, or {@link #NOT_A_NUCLEOTIDE}. Both cases
+     * of <code>U</code> share the code of <code>T</code>.
+     */
+    public static final byte [] NUCLEOTIDE_BITS         = new byte [1 << Byte.SIZE];
+
+    static
+    {
+        Arrays.fill( NUCLEOTIDE_BITS, (byte) NOT_A_NUCLEOTIDE );
+        for ( int bits = 0; bits < NUCLEOTIDES.length; bits++ )
+        {
+            NUCLEOTIDE_BITS[NUCLEOTIDES[bits]] = (byte) bits;
+            NUCLEOTIDE_BITS[Character.toLowerCase( NUCLEOTIDES[bits] )] = (byte) bits;
+        }
+        NUCLEOTIDE_BITS[FastFileArchiver.U] = NUCLEOTIDE_BITS[FastFileArchiver.T];
+        NUCLEOTIDE_BITS[FastFileArchiver.u] = NUCLEOTIDE_BITS[FastFileArchiver.T];
+    }
+
+    public static int toBits( final byte nucleotide )
+    {
+        return NUCLEOTIDE_BITS[nucleotide & 0xFF];
+    }
+
+    public static byte toNucleotide( final int bits )
+    {
+        return NUCLEOTIDES[bits & 0b11];
+    }
+
+    private TwoBitNucleotideConverter()
+    {}
+}
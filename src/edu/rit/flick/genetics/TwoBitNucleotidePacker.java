@@ -0,0 +1,152 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static edu.rit.flick.genetics.TwoBitNucleotideConverter.BITS_PER_NUCLEOTIDE;
+import static edu.rit.flick.genetics.TwoBitNucleotideConverter.NOT_A_NUCLEOTIDE;
+import static edu.rit.flick.genetics.TwoBitNucleotideConverter.NUCLEOTIDES_PER_BYTE;
+import static edu.rit.flick.genetics.TwoBitNucleotideConverter.TETRAMER_BYTE_OFFSET;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.rit.flick.genetics.util.ByteBufferOutputStream;
+
+/**
+ * Packs nucleotides into a 64-bit register two bits at a time and writes 32
+ * nucleotides per <code>long</code> to the underlying stream. Whatever does not
+ * fill a whole tetramer is held back until {@link #flush(byte[])} hands it
+ * out as the tail.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class TwoBitNucleotidePacker
+{
+    public static final int     NUCLEOTIDES_PER_REGISTER = Long.SIZE / BITS_PER_NUCLEOTIDE;
+
+    private static final long   TETRAMER_BYTE_OFFSETS    = 0x8080_8080_8080_8080L;
+
+    private final ByteBufferOutputStream out;
+
+    private long                         register;
+
+    private int                          count;
+
+    public TwoBitNucleotidePacker( final ByteBufferOutputStream out )
+    {
+        this.out = out;
+    }
+
+    /**
+     * Writes every complete tetramer still held in the register.
+     *
+     * @param tail
+     *            receives the nucleotides that do not make up a whole
+     *            tetramer
+     * @return the number of nucleotides placed in <code>tail</code>
+     */
+    public int flush( final byte [] tail ) throws IOException
+    {
+        final int tailLength = count % NUCLEOTIDES_PER_BYTE;
+
+        for ( int shift = ( count - NUCLEOTIDES_PER_BYTE ) *
+                BITS_PER_NUCLEOTIDE; shift >= tailLength * BITS_PER_NUCLEOTIDE; shift -= Byte.SIZE )
+            out.put( (byte) ( ( register >>> shift ^ TETRAMER_BYTE_OFFSET ) & 0xFF ) );
+
+        for ( int t = 0; t < tailLength; t++ )
+            tail[t] = TwoBitNucleotideConverter.toNucleotide(
+                (int) ( register >>> ( tailLength - 1 - t ) * BITS_PER_NUCLEOTIDE ) );
+
+        reset();
+
+        return tailLength;
+    }
+
+    public void pack( final byte nucleotide ) throws IOException
+    {
+        final int bits = TwoBitNucleotideConverter.toBits( nucleotide );
+        if ( bits == NOT_A_NUCLEOTIDE )
+            throw new TetramerNotFoundException( String.valueOf( (char) nucleotide ) );
+
+        packBits( bits );
+    }
+
+    public void packBits( final int bits ) throws IOException
+    {
+        register = register << BITS_PER_NUCLEOTIDE | bits;
+        if ( ++count == NUCLEOTIDES_PER_REGISTER )
+        {
+            out.putLong( register ^ TETRAMER_BYTE_OFFSETS );
+            register = 0;
+            count = 0;
+        }
+    }
+
+    /**
+     * Packs up to 16 nucleotides at once.
+     *
+     * @param bits
+     *            the 2-bit codes of the nucleotides, the first nucleotide in
+     *            the highest bits
+     * @param nucleotides
+     *            the number of codes held in the low bits of <code>bits</code>
+     */
+    public void packBits( final int bits, final int nucleotides ) throws IOException
+    {
+        final long codes = bits & 0xFFFF_FFFFL;
+        final int free = NUCLEOTIDES_PER_REGISTER - count;
+        if ( nucleotides < free )
+        {
+            register = register << nucleotides * BITS_PER_NUCLEOTIDE | codes;
+            count += nucleotides;
+            return;
+        }
+
+        final int rest = nucleotides - free;
+        out.putLong( ( register << free * BITS_PER_NUCLEOTIDE | codes >>> rest *
+                BITS_PER_NUCLEOTIDE ) ^ TETRAMER_BYTE_OFFSETS );
+        register = codes & ( 1L << rest * BITS_PER_NUCLEOTIDE ) - 1;
+        count = rest;
+    }
+
+    /**
+     * Packs tetramer bytes as written by this packer, shifting them into place
+     * when the register does not hold a whole number of tetramers.
+     */
+    public void packTetramers( final byte [] tetramers, int offset, final int length )
+            throws IOException
+    {
+        final int end = offset + length;
+
+        if ( count == 0 )
+        {
+            out.write( tetramers, offset, length );
+            return;
+        }
+
+        // Every register written keeps the same number of nucleotides behind
+        final ByteBuffer words = ByteBuffer.wrap( tetramers );
+        final int shift = count * BITS_PER_NUCLEOTIDE;
+        for ( ; end - offset >= Long.BYTES; offset += Long.BYTES )
+        {
+            final long codes = words.getLong( offset ) ^ TETRAMER_BYTE_OFFSETS;
+            out.putLong( ( register << Long.SIZE - shift | codes >>> shift ) ^
+                    TETRAMER_BYTE_OFFSETS );
+            register = codes & ( 1L << shift ) - 1;
+        }
+
+        while ( offset < end )
+            packBits( ( tetramers[offset++] ^ TETRAMER_BYTE_OFFSET ) & 0xFF, NUCLEOTIDES_PER_BYTE );
+    }
+
+    public void reset()
+    {
+        register = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static edu.rit.flick.genetics.TwoBitNucleotideConverter.BITS_PER_NUCLEOTIDE;
+import static edu.rit.flick.genetics.TwoBitNucleotideConverter.NUCLEOTIDES_PER_BYTE;
+import static edu.rit.flick.genetics.TwoBitNucleotideConverter.TETRAMER_BYTE_OFFSET;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Unpacks tetramer bytes as written by the {@link TwoBitNucleotidePacker}
+ * into their nucleotides, looking up the four of every byte as one
+ * <code>int</code> and storing them at once.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class TwoBitNucleotideUnpacker
+{
+    /**
+     * The four nucleotides of every tetramer byte, the first in the highest
+     * byte.
+     */
+    private final int [] tetramers = new int [1 << Byte.SIZE];
+
+    /**
+     * @param rna
+     *            whether <code>T</code> is unpacked as <code>U</code>
+     */
+    public TwoBitNucleotideUnpacker( final boolean rna )
+    {
+        for ( int b = 0; b < tetramers.length; b++ )
+        {
+            final int codes = b ^ TETRAMER_BYTE_OFFSET;
+            for ( int n = 0; n < NUCLEOTIDES_PER_BYTE; n++ )
+            {
+                byte nucleotide = TwoBitNucleotideConverter.toNucleotide(
+                    codes >>> ( NUCLEOTIDES_PER_BYTE - 1 - n ) * BITS_PER_NUCLEOTIDE );
+                if ( rna && nucleotide == FastFileArchiver.T )
+                    nucleotide = FastFileArchiver.U;
+                tetramers[b] = tetramers[b] << Byte.SIZE | nucleotide;
+            }
+        }
+    }
+
+    /**
+     * Puts the nucleotides of the <code>length</code> tetramer bytes at
+     * <code>offset</code> in <code>tetramers</code> into
+     * <code>nucleotides</code>, four for each.
+     */
+    public void unpack(
+            final byte [] tetramers,
+            final int offset,
+            final int length,
+            final ByteBuffer nucleotides )
+    {
+        final int [] table = this.tetramers;
+        for ( int t = offset; t < offset + length; t++ )
+            nucleotides.putInt( table[tetramers[t] & 0xFF] );
+    }
+}
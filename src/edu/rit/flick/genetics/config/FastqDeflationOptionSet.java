@@ -9,17 +9,25 @@ package edu.rit.flick.genetics.config;
 import edu.rit.flick.config.DefaultFlag;
 import edu.rit.flick.config.DeflationOptionSet;
 import edu.rit.flick.config.Flag;
+import edu.rit.flick.config.Option;
+import edu.rit.flick.config.StringOption;
 
 /**
  * @author Alex Aiezza
  *
  */
+@SuppressWarnings ( { "rawtypes", "unchecked" } )
 public class FastqDeflationOptionSet extends DeflationOptionSet
 {
-    public static final Flag NO_ZIP_FQ = new DefaultFlag( "no zip fq", "no-zip-fq", "", false );
+    public static final Flag           NO_ZIP_FQ       = new DefaultFlag( "no zip fq", "no-zip-fq",
+            "", false );
+
+    public static final Option<String> QUALITY_BINNING = new StringOption( "quality binning",
+            "quality-binning", "", null );
 
     {
         options.add( NO_ZIP_FQ );
+        options.add( (Option) QUALITY_BINNING );
     }
 
 }
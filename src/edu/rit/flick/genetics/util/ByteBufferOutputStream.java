@@ -8,9 +8,10 @@ package edu.rit.flick.genetics.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
-import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.Arrays;
@@ -24,7 +25,7 @@ import it.unimi.dsi.fastutil.io.RepositionableStream;
  */
 public class ByteBufferOutputStream extends MeasurableOutputStream implements RepositionableStream
 {
-    private static int       CHUNK_SHIFT = 30;
+    private static final int CHUNK_SHIFT = 30;
 
     /**
      * The size of a chunk created by
@@ -32,6 +33,48 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
      */
     public static final long CHUNK_SIZE  = 1L << CHUNK_SHIFT;
 
+    /**
+     * The log of the size of a chunk added by {@link #grow()}.
+     */
+    private static final int GROWING_CHUNK_SHIFT = 16;
+
+    /**
+     * The size a stream created by {@link #drain(int, Sink)} starts with.
+     */
+    private static final int INITIAL_DRAIN_SIZE  = 1 << 13;
+
+    /**
+     * Creates a stream that keeps what is written to it on the heap, doubling
+     * its buffer up to <code>capacity</code> bytes, and hands the whole buffer
+     * to <code>sink</code> whenever it fills up and once more when it is
+     * closed, so it never needs more than <code>capacity</code> bytes however
+     * much is written to it. Nothing can be read back from it.
+     */
+    public static ByteBufferOutputStream drain( final int capacity, final Sink sink )
+    {
+        final ByteBufferOutputStream out = new ByteBufferOutputStream(
+                ByteBuffer.allocate( Math.min( capacity, INITIAL_DRAIN_SIZE ) ) );
+        out.capacity = capacity;
+        out.sink = sink;
+        return out;
+    }
+
+    /**
+     * Creates a stream that keeps what is written to it on the heap, adding a
+     * small chunk whenever the last one fills up, so it never takes much more
+     * memory than has been written to it and never copies what it holds.
+     *
+     * @see #writeTo(OutputStream)
+     */
+    public static ByteBufferOutputStream grow()
+    {
+        final ByteBufferOutputStream out = new ByteBufferOutputStream(
+                ByteBuffer.allocate( 1 << GROWING_CHUNK_SHIFT ) );
+        out.chunkShift = GROWING_CHUNK_SHIFT;
+        out.growing = true;
+        return out;
+    }
+
     public static ByteBufferOutputStream map(
             final File file,
             final MapMode mapMode,
@@ -52,7 +95,7 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
         Arrays.fill( readyToUse, true );
         raf.close();
         fileChannel.close();
-        return new ByteBufferOutputStream( byteBuffer, size, 0, readyToUse );
+        return mapped( new ByteBufferOutputStream( byteBuffer, size, 0, readyToUse ) );
     }
 
     /**
@@ -92,7 +135,7 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
         byteBuffer[0].position( 0 );
         final boolean [] readyToUse = new boolean [chunks];
         Arrays.fill( readyToUse, true );
-        return new ByteBufferOutputStream( byteBuffer, size, 0, readyToUse );
+        return mapped( new ByteBufferOutputStream( byteBuffer, size, 0, readyToUse ) );
     }
 
     public static ByteBufferOutputStream map(
@@ -109,33 +152,66 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
         byteBuffer[0].position( 0 );
         final boolean [] readyToUse = new boolean [chunks];
         Arrays.fill( readyToUse, true );
-        return new ByteBufferOutputStream( byteBuffer, size, 0, readyToUse );
+        return mapped( new ByteBufferOutputStream( byteBuffer, size, 0, readyToUse ) );
+    }
+
+    private static ByteBufferOutputStream mapped( final ByteBufferOutputStream out )
+    {
+        out.mapped = true;
+        return out;
     }
 
     /** The underlying byte buffers. */
-    private final ByteBuffer [] byteBuffer;
+    private ByteBuffer []       byteBuffer;
 
     /**
      * An array parallel to {@link #byteBuffer} specifying which buffers do not
      * need to be {@linkplain ByteBuffer#duplicate() duplicated} before being
      * used.
      */
-    private final boolean []    readyToUse;
+    private boolean []          readyToUse;
 
     /** The number of byte buffers. */
-    private final int           n;
+    private int                 n;
 
     /** The current buffer. */
     private int                 curr;
 
+    /**
+     * The current buffer itself, so writes only deal with buffers when one
+     * fills up.
+     */
+    private ByteBuffer          currBuffer;
+
+    /** The position of the start of the current buffer. */
+    private long                currStart;
+
     /** The current mark as a position, or -1 if there is no mark. */
     private long                mark;
 
     /** The overall size of this input stream. */
-    private final long          size;
+    private long                size;
 
     /** The capacity of the last buffer. */
-    private final int           lastBufferCapacity;
+    private int                 lastBufferCapacity;
+
+    /** Where a full buffer goes, if this stream drains. */
+    private Sink                sink;
+
+    /** The largest the buffer of a draining stream grows to. */
+    private int                 capacity;
+
+    /** The log of the size of every buffer but the last. */
+    private int                 chunkShift = CHUNK_SHIFT;
+
+    /** Whether chunks are added as they are needed. */
+    private boolean             growing;
+
+    /** Whether the buffers were mapped by this stream, to be unmapped. */
+    private boolean             mapped;
+
+    /** The number of bytes handed to the sink so far. */
+    private long                drained;
 
     /**
      * Creates a new byte-buffer input stream from a single {@link ByteBuffer}.
@@ -176,7 +252,6 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
     {
         this.byteBuffer = byteBuffer;
         n = byteBuffer.length;
-        this.curr = curr;
         this.size = size;
         this.readyToUse = readyToUse;
 
@@ -186,6 +261,8 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
             if ( i < n - 1 && byteBuffer[i].capacity() != CHUNK_SIZE )
                 throw new IllegalArgumentException();
         lastBufferCapacity = byteBuffer[n - 1].capacity();
+
+        select( curr );
     }
 
     public int available()
@@ -206,31 +283,40 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
     @Override
     public synchronized void close() throws IOException
     {
+        if ( sink != null )
+        {
+            // Every draining stream drains once, if only to say it is empty
+            if ( currBuffer != null && ( drained == 0 || currBuffer.position() > 0 ) )
+                drain();
+            byteBuffer[curr] = currBuffer = null;
+            return;
+        }
+
         for ( int b = 0; b < byteBuffer.length; b++ )
         {
-            // we could use this type cast and call functions without reflection
-            // code,
-            // but static import from sun.* package is risky for non-SUN virtual
-            // machine.
-            // try { ((sun.nio.ch.DirectBuffer)cb).cleaner().clean(); } catch
-            // (Exception ex) { }
-            try
-            {
-                final Method cleaner = byteBuffer[b].getClass().getMethod( "cleaner" );
-                cleaner.setAccessible( true );
-                final Method clean = Class.forName( "sun.misc.Cleaner" ).getMethod( "clean" );
-                clean.setAccessible( true );
-                // clean.invoke( cleaner.invoke( byteBuffer[b] ) );
-            } catch ( final Exception ex )
-            {}
-            byteBuffer[b].flip();
-            byteBuffer[b].clear();
+            if ( byteBuffer[b] == null )
+                continue;
+
+            // Release the file now, not whenever the buffer is collected
+            if ( mapped )
+                MappedBuffers.unmap( byteBuffer[b] );
             byteBuffer[b] = null;
         }
-        System.gc();
+        currBuffer = null;
         super.close();
     }
 
+    /**
+     * Hands the current buffer to the sink and empties it.
+     */
+    private void drain() throws IOException
+    {
+        currBuffer.flip();
+        drained += currBuffer.remaining();
+        sink.drain( currBuffer );
+        currBuffer.clear();
+    }
+
     public ByteBufferOutputStream copy()
     {
         return new ByteBufferOutputStream( byteBuffer.clone(), size, curr, new boolean [n] );
@@ -262,10 +348,44 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
         return true;
     }
 
+    /**
+     * Moves on to the next buffer, adding it if this stream grows, or makes
+     * room in the buffer of a draining stream.
+     */
+    private void nextBuffer() throws IOException
+    {
+        if ( sink != null )
+        {
+            if ( currBuffer.capacity() < capacity )
+            {
+                currBuffer.flip();
+                byteBuffer[curr] = currBuffer = ByteBuffer
+                        .allocate( (int) Math.min( capacity, 2L * currBuffer.capacity() ) )
+                        .put( currBuffer );
+                size = lastBufferCapacity = currBuffer.capacity();
+            } else drain();
+            return;
+        }
+
+        if ( curr == n - 1 && growing )
+        {
+            byteBuffer = Arrays.copyOf( byteBuffer, n + 1 );
+            readyToUse = Arrays.copyOf( readyToUse, n + 1 );
+            byteBuffer[n] = ByteBuffer.allocate( 1 << chunkShift );
+            size += 1 << chunkShift;
+            n++;
+        }
+
+        if ( curr == n - 1 )
+            throw new IOException( "Reached Limit!" );
+
+        select( curr + 1 ).position( 0 );
+    }
+
     @Override
     public long position()
     {
-        return ( (long) curr << CHUNK_SHIFT ) + byteBuffer( curr ).position();
+        return drained + currStart + currBuffer.position();
     }
 
     @Override
@@ -274,44 +394,44 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
         newPosition = Math.min( newPosition, length() );
         if ( newPosition == length() )
         {
-            final ByteBuffer buffer = byteBuffer( curr = n - 1 );
+            final ByteBuffer buffer = select( n - 1 );
             buffer.position( buffer.capacity() );
             return;
         }
 
-        curr = (int) ( newPosition >>> CHUNK_SHIFT );
-        byteBuffer( curr ).position( (int) ( newPosition - ( (long) curr << CHUNK_SHIFT ) ) );
+        select( (int) ( newPosition >>> chunkShift ) )
+                .position( (int) ( newPosition - currStart ) );
     }
 
     public void put( final byte b ) throws IOException
     {
-        if ( !byteBuffer( curr ).hasRemaining() )
-            if ( curr < n - 1 )
-                byteBuffer( ++curr ).position( 0 );
-            else throw new IOException( "Reached Limit!" );
+        if ( !currBuffer.hasRemaining() )
+            nextBuffer();
 
-        byteBuffer[curr].put( b );
+        currBuffer.put( b );
     }
 
     public void put( final byte [] b ) throws IOException
     {
-        if ( !byteBuffer( curr ).hasRemaining() )
-            if ( curr < n - 1 )
-                byteBuffer( ++curr ).position( 0 );
-            else throw new IOException( "Reached Limit!" );
+        write( b, 0, b.length );
+    }
 
-        for ( final byte subB : b )
-            put( subB );
+    public void putLong( final long l ) throws IOException
+    {
+        if ( currBuffer.remaining() >= Long.BYTES )
+            currBuffer.putLong( l );
+        else for ( int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE )
+            put( (byte) ( l >>> shift ) );
     }
 
     public int read()
     {
-        if ( !byteBuffer( curr ).hasRemaining() )
+        if ( !currBuffer.hasRemaining() )
             if ( curr < n - 1 )
-                byteBuffer( ++curr ).position( 0 );
+                select( curr + 1 ).position( 0 );
             else return -1;
 
-        return byteBuffer[curr].get() & 0xFF;
+        return currBuffer.get() & 0xFF;
     }
 
     public int read( final byte [] b, final int offset, final int length )
@@ -325,13 +445,13 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
         int read = 0;
         while ( read < realLength )
         {
-            int rem = byteBuffer( curr ).remaining();
+            int rem = currBuffer.remaining();
             if ( rem == 0 )
             {
-                byteBuffer( ++curr ).position( 0 );
-                rem = byteBuffer( curr ).remaining();
+                select( curr + 1 ).position( 0 );
+                rem = currBuffer.remaining();
             }
-            byteBuffer[curr].get( b, offset + read, Math.min( realLength - read, rem ) );
+            currBuffer.get( b, offset + read, Math.min( realLength - read, rem ) );
             read += Math.min( realLength - read, rem );
         }
         return realLength;
@@ -339,8 +459,8 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
 
     private long remaining()
     {
-        return curr == n - 1 ? byteBuffer( curr ).remaining() : byteBuffer( curr ).remaining() +
-                ( (long) ( n - 2 - curr ) << CHUNK_SHIFT ) + lastBufferCapacity;
+        return curr == n - 1 ? currBuffer.remaining() : currBuffer.remaining() +
+                ( (long) ( n - 2 - curr ) << chunkShift ) + lastBufferCapacity;
     }
 
     public synchronized void reset() throws IOException
@@ -350,6 +470,18 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
         position( mark );
     }
 
+    /**
+     * Makes buffer <code>n</code> the current one.
+     *
+     * @return the current buffer
+     */
+    private ByteBuffer select( final int n )
+    {
+        curr = n;
+        currStart = (long) n << chunkShift;
+        return currBuffer = byteBuffer( n );
+    }
+
     public long skip( final long n ) throws IOException
     {
         final long toSkip = Math.min( remaining(), n );
@@ -368,14 +500,76 @@ public class ByteBufferOutputStream extends MeasurableOutputStream implements Re
         return out.toString();
     }
 
+    /**
+     * Writes the bytes of <code>b</code> from its position to its limit,
+     * leaving its position at its limit.
+     */
+    public void write( final ByteBuffer b ) throws IOException
+    {
+        final int limit = b.limit();
+        while ( b.hasRemaining() )
+        {
+            if ( !currBuffer.hasRemaining() )
+                nextBuffer();
+
+            b.limit( b.position() + Math.min( b.remaining(), currBuffer.remaining() ) );
+            currBuffer.put( b );
+            b.limit( limit );
+        }
+    }
+
+    @Override
+    public void write( final byte [] b, int offset, int length ) throws IOException
+    {
+        while ( length > 0 )
+        {
+            if ( !currBuffer.hasRemaining() )
+                nextBuffer();
+
+            final int put = Math.min( length, currBuffer.remaining() );
+            currBuffer.put( b, offset, put );
+            offset += put;
+            length -= put;
+        }
+    }
+
     @Override
     public void write( final int b ) throws IOException
     {
-        if ( !byteBuffer( curr ).hasRemaining() )
-            if ( curr < n - 1 )
-                byteBuffer( ++curr ).position( 0 );
-            else throw new IOException( "Reached Limit!" );
+        if ( !currBuffer.hasRemaining() )
+            nextBuffer();
+
+        currBuffer.put( (byte) b );
+    }
 
-        byteBuffer[curr].put( (byte) b );
+    /**
+     * Writes everything before the position of this stream to
+     * <code>out</code>.
+     */
+    public void writeTo( final OutputStream out ) throws IOException
+    {
+        for ( int b = 0; b <= curr; b++ )
+        {
+            final ByteBuffer written = byteBuffer( b ).duplicate();
+            written.flip();
+            if ( written.hasArray() )
+                out.write( written.array(), written.arrayOffset(), written.limit() );
+            else Channels.newChannel( out ).write( written );
+        }
+    }
+
+    /**
+     * Takes the bytes of a draining stream.
+     *
+     * @see ByteBufferOutputStream#drain(int, Sink)
+     */
+    @FunctionalInterface
+    public static interface Sink
+    {
+        /**
+         * Takes the bytes from the position of <code>bytes</code> to its
+         * limit, which are only good until this returns.
+         */
+        void drain( ByteBuffer bytes ) throws IOException;
     }
 }
@@ -0,0 +1,106 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import it.unimi.dsi.fastutil.io.MeasurableOutputStream;
+
+/**
+ * Writes sequentially to a {@link WritableByteChannel}, such as the standard
+ * output, through a buffer of bounded size.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class ChannelOutputStream extends MeasurableOutputStream
+{
+    /**
+     * The size of a pipe buffer, so a reader on the other end of a pipe is
+     * kept busy from the first records on.
+     */
+    public static final int             DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    protected final WritableByteChannel channel;
+
+    protected final ByteBuffer          buffer;
+
+    /** The number of bytes written to the channel so far. */
+    protected long                      written;
+
+    public ChannelOutputStream( final WritableByteChannel channel )
+    {
+        this( channel, DEFAULT_BUFFER_SIZE );
+    }
+
+    public ChannelOutputStream( final WritableByteChannel channel, final int bufferSize )
+    {
+        this( channel, ByteBuffer.allocate( bufferSize ) );
+    }
+
+    protected ChannelOutputStream( final WritableByteChannel channel, final ByteBuffer buffer )
+    {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Flushes this stream, leaving the channel open for its owner to close.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        flush();
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        buffer.flip();
+        while ( buffer.hasRemaining() )
+            written += channel.write( buffer );
+        buffer.clear();
+    }
+
+    @Override
+    public long length()
+    {
+        return position();
+    }
+
+    @Override
+    public long position()
+    {
+        return written + buffer.position();
+    }
+
+    @Override
+    public void write( final byte [] b, int offset, int length ) throws IOException
+    {
+        while ( length > 0 )
+        {
+            if ( !buffer.hasRemaining() )
+                flush();
+
+            final int put = Math.min( length, buffer.remaining() );
+            buffer.put( b, offset, put );
+            offset += put;
+            length -= put;
+        }
+    }
+
+    @Override
+    public void write( final int b ) throws IOException
+    {
+        if ( !buffer.hasRemaining() )
+            flush();
+
+        buffer.put( (byte) b );
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static edu.rit.flick.genetics.util.IoMode.DIRECT_ALIGNMENT;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a file sequentially through a large buffer, with direct I/O if
+ * {@link IoMode#DIRECT} is used.
+ * <p>
+ * Direct I/O only writes whole aligned blocks, so the last block is padded
+ * when the stream is closed and the file is then cut back to its length.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class FileChannelOutputStream extends ChannelOutputStream
+{
+    private final boolean direct;
+
+    public FileChannelOutputStream( final File file, final IoMode ioMode ) throws IOException
+    {
+        super( ioMode.open( file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING ), ioMode.allocate( IoMode.BUFFER_SIZE ) );
+        direct = ioMode == IoMode.DIRECT;
+    }
+
+    /**
+     * Writes what is left and closes the file.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if ( !channel.isOpen() )
+            return;
+
+        try
+        {
+            if ( direct )
+            {
+                final long length = position();
+                while ( buffer.position() % DIRECT_ALIGNMENT != 0 )
+                    buffer.put( (byte) 0 );
+                super.flush();
+                ( (FileChannel) channel ).truncate( length );
+            } else super.flush();
+        } finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes every whole block buffered so far, keeping the rest back with
+     * direct I/O until there is a block of it or the stream is closed.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        if ( !direct )
+        {
+            super.flush();
+            return;
+        }
+
+        buffer.flip();
+        final int limit = buffer.limit();
+        buffer.limit( limit - limit % DIRECT_ALIGNMENT );
+        while ( buffer.hasRemaining() )
+            written += channel.write( buffer );
+        buffer.limit( limit );
+        buffer.compact();
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.sun.nio.file.ExtendedOpenOption;
+
+import it.unimi.dsi.fastutil.io.MeasurableOutputStream;
+
+/**
+ * How the larger files, the FASTA/Q files and the archives, are read and
+ * written.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public enum IoMode
+{
+    /**
+     * Maps the FASTA/Q files into memory.
+     */
+    MMAP,
+
+    /**
+     * Reads and writes through large buffers, one sequential transfer at a
+     * time.
+     */
+    CHANNEL,
+
+    /**
+     * Reads and writes through large aligned buffers with direct I/O,
+     * bypassing the page cache.
+     */
+    DIRECT;
+
+    /**
+     * The size of the buffers transfers go through.
+     */
+    public static final int BUFFER_SIZE = 1 << 22;
+
+    /**
+     * What the buffers, file positions and lengths of direct transfers are
+     * aligned to: a page, which is a multiple of the block size of any device
+     * in use.
+     */
+    public static final int DIRECT_ALIGNMENT = 1 << 12;
+
+    /**
+     * @return the mode named <code>name</code>, in any case
+     */
+    public static IoMode parse( final String name )
+    {
+        for ( final IoMode ioMode : values() )
+            if ( ioMode.name().equalsIgnoreCase( name ) )
+                return ioMode;
+
+        throw new IllegalArgumentException( format( "unknown I/O mode '%s', expected one of %s",
+            name, Arrays.toString( values() ).toLowerCase() ) );
+    }
+
+    /**
+     * @return a buffer of <code>size</code> bytes for transfers in this mode,
+     *         aligned for direct I/O if need be
+     */
+    public ByteBuffer allocate( final int size )
+    {
+        if ( this != DIRECT )
+            return ByteBuffer.allocateDirect( size );
+
+        try
+        {
+            // ByteBuffer.alignedSlice is only there from Java 9 on
+            final Method alignedSlice = ByteBuffer.class.getMethod( "alignedSlice", int.class );
+            return (ByteBuffer) alignedSlice.invoke(
+                ByteBuffer.allocateDirect( size + DIRECT_ALIGNMENT ), DIRECT_ALIGNMENT );
+        } catch ( final ReflectiveOperationException e )
+        {
+            throw new UnsupportedOperationException( "direct I/O needs Java 10 or later", e );
+        }
+    }
+
+    /**
+     * Creates the FASTA/Q file <code>file</code>, which will be
+     * <code>size</code> bytes long.
+     */
+    public MeasurableOutputStream createOutput( final File file, final long size )
+            throws IOException
+    {
+        if ( this == MMAP )
+            return ByteBufferOutputStream.map( file, MapMode.READ_WRITE, size );
+        return new FileChannelOutputStream( file, this );
+    }
+
+    /**
+     * Opens <code>file</code> for transfers in this mode.
+     */
+    public FileChannel open( final File file, final OpenOption... options ) throws IOException
+    {
+        if ( this != DIRECT )
+            return FileChannel.open( file.toPath(), options );
+
+        final OpenOption [] directOptions = Arrays.copyOf( options, options.length + 1 );
+        try
+        {
+            // ExtendedOpenOption.DIRECT is only there from Java 10 on
+            directOptions[options.length] = ExtendedOpenOption.valueOf( "DIRECT" );
+        } catch ( final IllegalArgumentException e )
+        {
+            throw new UnsupportedOperationException( "direct I/O needs Java 10 or later", e );
+        }
+        return FileChannel.open( file.toPath(), directOptions );
+    }
+
+    /**
+     * Opens <code>file</code> for reading in this mode.
+     */
+    public FileChannel openInput( final File file ) throws IOException
+    {
+        return open( file, StandardOpenOption.READ );
+    }
+
+    @Override
+    public String toString()
+    {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the locations written by a {@link LocationIndexWriter} back in order,
+ * decoding them a block at a time into an array of its own.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class LocationIndexReader implements Closeable
+{
+    /**
+     * The number of bytes read at a time.
+     */
+    private static final int  BUFFER_SIZE = 1 << 14;
+
+    /**
+     * The number of locations decoded at a time.
+     */
+    private static final int  BLOCK_SIZE  = 1 << 12;
+
+    private final InputStream in;
+
+    private final byte []     buffer      = new byte [BUFFER_SIZE];
+    private int               position, limit;
+
+    private final long []     locations   = new long [BLOCK_SIZE];
+    private int               index, count;
+
+    private long              last        = 0, lastDistance = 0;
+
+    public LocationIndexReader( final InputStream in )
+    {
+        this.in = in;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+    /**
+     * @return whether there is anything left to read in the buffer, once it
+     *         is refilled if need be
+     */
+    private boolean fill() throws IOException
+    {
+        while ( position == limit )
+        {
+            limit = in.read( buffer );
+            position = 0;
+            if ( limit < 0 )
+            {
+                limit = 0;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether there is another location
+     */
+    public boolean hasNext() throws IOException
+    {
+        if ( index == count )
+            readBlock();
+        return index < count;
+    }
+
+    /**
+     * @return the next location
+     * @throws EOFException
+     *             if there are no more
+     */
+    public long next() throws IOException
+    {
+        if ( !hasNext() )
+            throw new EOFException( "No more locations" );
+        return locations[index++];
+    }
+
+    /**
+     * Decodes as many of the locations left as fit in the block.
+     */
+    private void readBlock() throws IOException
+    {
+        index = count = 0;
+        while ( count < BLOCK_SIZE && fill() )
+        {
+            long value = 0;
+            for ( int shift = 0;; shift += 7 )
+            {
+                if ( !fill() )
+                    throw new EOFException( "Location cut short" );
+                final byte b = buffer[position++];
+                value |= (long) ( b & 0x7F ) << shift;
+                if ( b >= 0 )
+                    break;
+            }
+
+            lastDistance += value >>> 1 ^ -( value & 1 );
+            last += lastDistance;
+            locations[count++] = last;
+        }
+    }
+}
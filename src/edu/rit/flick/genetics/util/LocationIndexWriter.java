@@ -0,0 +1,119 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes increasing locations in a file, such as where each record starts, as
+ * varints of how far each distance between them strays from the distance
+ * before it. Records of the same size take a byte each.
+ * <p>
+ * A writer for one group of records does not know the locations before its
+ * first two, so it holds them back until it is
+ * {@link #merge(LocationIndexWriter) merged}.
+ *
+ * @author Alex Aiezza
+ *
+ * @see LocationIndexReader
+ */
+public class LocationIndexWriter implements Closeable
+{
+    /**
+     * The locations of a group held back until it is merged.
+     */
+    private static final int   HELD_LOCATIONS  = 2;
+
+    /**
+     * The most bytes a location is written as.
+     */
+    private static final int   MAX_VARINT_SIZE = Long.SIZE / 7 + 1;
+
+    private final OutputStream out;
+
+    private final byte []      varint          = new byte [MAX_VARINT_SIZE];
+
+    private long               last            = 0, lastDistance = 0;
+
+    private final long []      held            = new long [HELD_LOCATIONS];
+    private int                heldCount       = HELD_LOCATIONS;
+
+    public LocationIndexWriter( final OutputStream out )
+    {
+        this.out = out;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+
+    /**
+     * Writes how far the distance to <code>location</code> strays from the
+     * distance before it.
+     */
+    private void encode( final long location ) throws IOException
+    {
+        final long distance = location - last;
+        final long stray = distance - lastDistance;
+
+        long value = stray << 1 ^ stray >> 63;
+        int size = 0;
+        while ( ( value & ~0x7FL ) != 0 )
+        {
+            varint[size++] = (byte) ( value | 0x80 );
+            value >>>= 7;
+        }
+        varint[size++] = (byte) value;
+        out.write( varint, 0, size );
+
+        last = location;
+        lastDistance = distance;
+    }
+
+    /**
+     * Writes the locations of <code>group</code>, the group of records
+     * following those written so far, after them.
+     */
+    public void merge( final LocationIndexWriter group ) throws IOException
+    {
+        for ( int h = 0; h < group.heldCount; h++ )
+            encode( group.held[h] );
+        ( (ByteBufferOutputStream) group.out ).writeTo( out );
+
+        if ( group.heldCount == HELD_LOCATIONS )
+        {
+            last = group.last;
+            lastDistance = group.lastDistance;
+        }
+    }
+
+    /**
+     * Starts writing a group of records. The locations before the group are
+     * not known until it is merged.
+     */
+    public void startRecordGroup()
+    {
+        heldCount = 0;
+    }
+
+    /**
+     * Writes <code>location</code>, which is after any written before it.
+     */
+    public void write( final long location ) throws IOException
+    {
+        if ( heldCount < HELD_LOCATIONS )
+        {
+            held[heldCount++] = location;
+            lastDistance = location - last;
+            last = location;
+        } else encode( location );
+    }
+}
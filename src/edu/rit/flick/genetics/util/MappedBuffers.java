@@ -0,0 +1,86 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Releases mapped buffers as soon as they are done with, so the files behind
+ * them can be truncated or deleted without waiting on the garbage collector.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public final class MappedBuffers
+{
+    private static final Unmapper UNMAPPER = createUnmapper();
+
+    /**
+     * @return what unmaps a buffer on this JVM, or <code>null</code> if
+     *         buffers are left to the garbage collector
+     */
+    private static Unmapper createUnmapper()
+    {
+        try
+        {
+            // Java 9 and later
+            final Class<?> unsafeClass = Class.forName( "sun.misc.Unsafe" );
+            final Method invokeCleaner = unsafeClass.getMethod( "invokeCleaner",
+                ByteBuffer.class );
+            final Field theUnsafe = unsafeClass.getDeclaredField( "theUnsafe" );
+            theUnsafe.setAccessible( true );
+            final Object unsafe = theUnsafe.get( null );
+            return buffer -> invokeCleaner.invoke( unsafe, buffer );
+        } catch ( final ReflectiveOperationException | RuntimeException e )
+        {}
+
+        try
+        {
+            // Java 8
+            final Method cleaner = Class.forName( "sun.nio.ch.DirectBuffer" )
+                    .getMethod( "cleaner" );
+            final Method clean = Class.forName( "sun.misc.Cleaner" ).getMethod( "clean" );
+            return buffer -> {
+                final Object bufferCleaner = cleaner.invoke( buffer );
+                if ( bufferCleaner != null )
+                    clean.invoke( bufferCleaner );
+            };
+        } catch ( final ReflectiveOperationException | RuntimeException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Unmaps <code>buffer</code> now rather than whenever it is garbage
+     * collected. Neither it nor anything sharing its contents may be used
+     * afterwards. Buffers that are not direct, or that cannot be unmapped
+     * here, are left as they are.
+     */
+    public static void unmap( final ByteBuffer buffer )
+    {
+        if ( buffer == null || !buffer.isDirect() || UNMAPPER == null )
+            return;
+
+        try
+        {
+            UNMAPPER.unmap( buffer );
+        } catch ( final ReflectiveOperationException | RuntimeException e )
+        {}
+    }
+
+    private MappedBuffers()
+    {}
+
+    @FunctionalInterface
+    private static interface Unmapper
+    {
+        void unmap( ByteBuffer buffer ) throws ReflectiveOperationException;
+    }
+}
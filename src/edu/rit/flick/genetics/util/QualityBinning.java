@@ -0,0 +1,139 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static java.lang.String.format;
+
+/**
+ * A scheme for binning Phred+33 quality scores into a few levels, losing their
+ * exact values for the sake of space. Scores below <code>Q2</code>, given to
+ * bases that were not called, and bytes that are not Phred+33 scores are never
+ * binned.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public final class QualityBinning
+{
+    /**
+     * The byte of a score of <code>Q0</code>.
+     */
+    public static final int     PHRED_OFFSET      = '!';
+
+    /**
+     * The threshold of {@link #THRESHOLD} unless one is given.
+     */
+    public static final int     DEFAULT_THRESHOLD = 20;
+
+    /*
+     * Names of the schemes
+     */
+    public static final String  EIGHT_BIN         = "8-bin", FOUR_BIN = "4-bin",
+            THRESHOLD = "threshold";
+
+    private static final int    MIN_BINNED        = 2, MAX_SCORE = '~' - PHRED_OFFSET;
+
+    /**
+     * @return Illumina's 8 level scheme
+     */
+    public static QualityBinning eightBin()
+    {
+        return new QualityBinning( EIGHT_BIN, new int [] { 2, 10, 20, 25, 30, 35, 40 },
+                new int [] { 6, 15, 22, 27, 33, 37, 40 } );
+    }
+
+    /**
+     * @return a 4 level scheme, of the levels of the NovaSeq
+     */
+    public static QualityBinning fourBin()
+    {
+        return new QualityBinning( FOUR_BIN, new int [] { 2, 3, 18, 30 },
+                new int [] { 2, 12, 23, 37 } );
+    }
+
+    /**
+     * @return the scheme named <code>name</code>, {@link #THRESHOLD} followed
+     *         by <code>:Q</code> for a threshold other than
+     *         {@link #DEFAULT_THRESHOLD}
+     */
+    public static QualityBinning parse( final String name )
+    {
+        if ( name.equalsIgnoreCase( EIGHT_BIN ) )
+            return eightBin();
+        if ( name.equalsIgnoreCase( FOUR_BIN ) )
+            return fourBin();
+        if ( name.equalsIgnoreCase( THRESHOLD ) )
+            return threshold( DEFAULT_THRESHOLD );
+        if ( name.regionMatches( true, 0, THRESHOLD + ":", 0, THRESHOLD.length() + 1 ) )
+            try
+            {
+                return threshold( Integer.parseInt( name.substring( THRESHOLD.length() + 1 ) ) );
+            } catch ( final NumberFormatException e )
+            {}
+
+        throw new IllegalArgumentException( format(
+            "unknown quality binning '%s', expected one of [%s, %s, %s[:Q]]", name, EIGHT_BIN,
+            FOUR_BIN, THRESHOLD ) );
+    }
+
+    /**
+     * @return a 2 level scheme, scores below <code>threshold</code> becoming
+     *         <code>Q2</code> and the rest <code>Q37</code>, or the threshold
+     *         if it is higher
+     */
+    public static QualityBinning threshold( final int threshold )
+    {
+        if ( threshold <= MIN_BINNED || threshold > MAX_SCORE )
+            throw new IllegalArgumentException( format(
+                "quality threshold %d is not between %d and %d", threshold, MIN_BINNED + 1,
+                MAX_SCORE ) );
+
+        return new QualityBinning( THRESHOLD + ":" + threshold,
+                new int [] { MIN_BINNED, threshold },
+                new int [] { MIN_BINNED, Math.max( threshold, 37 ) } );
+    }
+
+    private final String  name;
+
+    // The byte every byte is binned to
+    private final byte [] bins = new byte [1 << Byte.SIZE];
+
+    /**
+     * Bins the scores from each of <code>lows</code> up to the next to the
+     * score in <code>levels</code> at the same index.
+     */
+    private QualityBinning( final String name, final int [] lows, final int [] levels )
+    {
+        this.name = name;
+
+        for ( int b = 0; b < bins.length; b++ )
+            bins[b] = (byte) b;
+        for ( int l = 0; l < lows.length; l++ )
+        {
+            final int high = l + 1 < lows.length ? lows[l + 1] - 1 : MAX_SCORE;
+            for ( int score = lows[l]; score <= high; score++ )
+                bins[PHRED_OFFSET + score] = (byte) ( PHRED_OFFSET + levels[l] );
+        }
+    }
+
+    /**
+     * @return the byte every byte of a quality line is binned to
+     */
+    public byte [] getBins()
+    {
+        return bins;
+    }
+
+    /**
+     * @return the name it is parsed from
+     */
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
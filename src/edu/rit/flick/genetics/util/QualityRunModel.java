@@ -0,0 +1,272 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.util.Arrays;
+
+/**
+ * An adaptive model of the quality scores of a read drawn from a small
+ * alphabet, such as binned scores, coding them as runs of the same score
+ * rather than one at a time. The score of each run is coded in the context of
+ * the two runs before it and where it is in the read, and its length as the
+ * number of bits in it, the highest bit below those and the rest as they are.
+ * The last run of a read is coded as running to its end. A read may be decoded
+ * a part at a time.
+ *
+ * @author Alex Aiezza
+ *
+ */
+final class QualityRunModel
+{
+    /**
+     * The most scores an alphabet coded as runs may have.
+     */
+    static final int         MAX_SYMBOLS = 8;
+
+    /**
+     * The length of a run that goes on to the end of the read.
+     */
+    private static final int TO_END      = 0;
+
+    private static final int MAX_BITS    = Integer.SIZE - 1;
+
+    /**
+     * The most bits of a run's length coded as they are at a time.
+     */
+    private static final int RAW_BITS    = 16;
+
+    /**
+     * The number of parts a read is split into for context.
+     */
+    private static final int PARTS       = 8;
+
+    private final Table      symbols     = new Table( ( MAX_SYMBOLS + 1 ) * ( MAX_SYMBOLS + 1 ) *
+            PARTS, MAX_SYMBOLS );
+    private final Table      lengths     = new Table( MAX_SYMBOLS * ( MAX_SYMBOLS + 1 ) * PARTS,
+            MAX_BITS + 1 );
+    private final Table      highBits    = new Table( MAX_SYMBOLS * ( MAX_BITS + 1 ) * PARTS,
+            2 );
+
+    // The symbol of every byte, and the score of every symbol
+    private final int []     codes       = new int [1 << Byte.SIZE];
+    private final byte []    scores      = new byte [MAX_SYMBOLS];
+
+    // The read being decoded, and what is left of its run being decoded
+    private int              length, position, before, beforeThat;
+    private int              symbol, run;
+
+    /**
+     * @return the part of the read <code>position</code> is in
+     */
+    private static int part( final int position )
+    {
+        return Math.min( position >> 4, PARTS - 1 );
+    }
+
+    /**
+     * Reads the next <code>count</code> scores of the read started last with
+     * <code>decoder</code> into <code>scores</code> from
+     * <code>offset</code> on.
+     */
+    void decode( final RangeDecoder decoder, final byte [] scores, final int offset,
+            final int count )
+    {
+        for ( int s = offset; s < offset + count; )
+        {
+            if ( run == 0 )
+                decodeRun( decoder );
+
+            final int fill = Math.min( run, offset + count - s );
+            Arrays.fill( scores, s, s + fill, this.scores[symbol] );
+            s += fill;
+            run -= fill;
+        }
+    }
+
+    /**
+     * Reads the score and length of the next run with <code>decoder</code>.
+     */
+    private void decodeRun( final RangeDecoder decoder )
+    {
+        final int part = part( position );
+        symbol = symbols.decode( decoder,
+            ( before * ( MAX_SYMBOLS + 1 ) + beforeThat ) * PARTS + part );
+
+        final int bits = lengths.decode( decoder,
+            ( symbol * ( MAX_SYMBOLS + 1 ) + before ) * PARTS + part );
+        if ( bits == TO_END )
+            run = length - position;
+        else if ( bits == 1 )
+            run = 1;
+        else
+        {
+            run = 1 << bits - 1 | highBits.decode( decoder,
+                ( symbol * ( MAX_BITS + 1 ) + bits ) * PARTS + part ) << bits - 2;
+            for ( int low = bits - 2; low > 0; low -= RAW_BITS )
+            {
+                final int width = Math.min( low, RAW_BITS );
+                final int value = decoder.getFrequency( 1 << width );
+                decoder.decode( value, 1 );
+                run |= value << low - width;
+            }
+        }
+
+        beforeThat = before;
+        before = symbol;
+        position += run;
+    }
+
+    /**
+     * Writes the <code>length</code> scores at <code>offset</code> in
+     * <code>scores</code> of a read with <code>encoder</code>.
+     */
+    void encode( final RangeEncoder encoder, final byte [] scores, final int offset,
+            final int length )
+    {
+        int before = MAX_SYMBOLS, beforeThat = MAX_SYMBOLS;
+        for ( int position = 0; position < length; )
+        {
+            final byte score = scores[offset + position];
+            int run = 1;
+            while ( position + run < length && scores[offset + position + run] == score )
+                run++;
+
+            final int part = part( position );
+            final int symbol = codes[score & 0xFF];
+            symbols.encode( encoder, ( before * ( MAX_SYMBOLS + 1 ) + beforeThat ) * PARTS + part,
+                symbol );
+
+            final int lengthContext = ( symbol * ( MAX_SYMBOLS + 1 ) + before ) * PARTS + part;
+            if ( position + run == length )
+                lengths.encode( encoder, lengthContext, TO_END );
+            else
+            {
+                final int bits = Integer.SIZE - Integer.numberOfLeadingZeros( run );
+                lengths.encode( encoder, lengthContext, bits );
+                if ( bits > 1 )
+                    highBits.encode( encoder, ( symbol * ( MAX_BITS + 1 ) + bits ) * PARTS + part,
+                        run >> bits - 2 & 1 );
+                for ( int low = bits - 2; low > 0; low -= RAW_BITS )
+                {
+                    final int width = Math.min( low, RAW_BITS );
+                    encoder.encode( run >> low - width & ( 1 << width ) - 1, 1, 1 << width );
+                }
+            }
+
+            beforeThat = before;
+            before = symbol;
+            position += run;
+        }
+    }
+
+    /**
+     * Forgets everything learned, for the scores of a new block, which are
+     * only ever the first <code>size</code> bytes of <code>alphabet</code>.
+     */
+    void reset( final byte [] alphabet, final int size )
+    {
+        for ( int s = 0; s < size; s++ )
+        {
+            codes[alphabet[s] & 0xFF] = s;
+            scores[s] = alphabet[s];
+        }
+        symbols.reset( size );
+        lengths.reset( MAX_BITS + 1 );
+        highBits.reset( 2 );
+    }
+
+    /**
+     * Starts decoding a read of <code>length</code> scores.
+     */
+    void startRead( final int length )
+    {
+        this.length = length;
+        position = run = 0;
+        before = beforeThat = MAX_SYMBOLS;
+    }
+
+    /**
+     * Adaptive frequency tables of a few symbols each, one per context.
+     */
+    private static class Table
+    {
+        /**
+         * How much a symbol's frequency grows each time it is coded.
+         */
+        private static final int STEP      = 24;
+
+        /**
+         * The greatest total frequency of a table before it is halved.
+         */
+        private static final int MAX_TOTAL = RangeEncoder.MAX_TOTAL - STEP;
+
+        // Each table is its total frequency followed by those of its symbols
+        private final int []     frequencies;
+        private final int        tableSize;
+
+        Table( final int contexts, final int symbols )
+        {
+            tableSize = symbols + 1;
+            frequencies = new int [contexts * tableSize];
+        }
+
+        int decode( final RangeDecoder decoder, final int context )
+        {
+            final int [] frequencies = this.frequencies;
+            final int table = context * tableSize;
+
+            final int target = decoder.getFrequency( frequencies[table] );
+            int symbol = 0, cumulative = 0;
+            while ( cumulative + frequencies[table + 1 + symbol] <= target )
+                cumulative += frequencies[table + 1 + symbol++];
+            decoder.decode( cumulative, frequencies[table + 1 + symbol] );
+
+            update( table, symbol );
+            return symbol;
+        }
+
+        void encode( final RangeEncoder encoder, final int context, final int symbol )
+        {
+            final int [] frequencies = this.frequencies;
+            final int table = context * tableSize;
+
+            int cumulative = 0;
+            for ( int s = table + 1; s < table + 1 + symbol; s++ )
+                cumulative += frequencies[s];
+            encoder.encode( cumulative, frequencies[table + 1 + symbol], frequencies[table] );
+
+            update( table, symbol );
+        }
+
+        /**
+         * Starts every table anew with the first <code>symbols</code> symbols
+         * equally likely and the rest never coded.
+         */
+        void reset( final int symbols )
+        {
+            for ( int table = 0; table < frequencies.length; table += tableSize )
+            {
+                frequencies[table] = symbols;
+                Arrays.fill( frequencies, table + 1, table + 1 + symbols, 1 );
+                Arrays.fill( frequencies, table + 1 + symbols, table + tableSize, 0 );
+            }
+        }
+
+        private void update( final int table, final int symbol )
+        {
+            final int [] frequencies = this.frequencies;
+            frequencies[table + 1 + symbol] += STEP;
+            if ( ( frequencies[table] += STEP ) > MAX_TOTAL )
+            {
+                int total = 0;
+                for ( int s = table + 1; s < table + tableSize; s++ )
+                    total += frequencies[s] -= frequencies[s] >> 1;
+                frequencies[table] = total;
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+/**
+ * An adaptive model of the quality scores of a read, coding each score with a
+ * frequency table picked by the context it is in: the score before it, the
+ * higher of the two before that, where it is in the read and how much the
+ * scores have changed along the read so far.
+ * <p>
+ * A block's scores are known up front, so its tables hold only those, and a
+ * score is told apart in the contexts by its place among them; the tables of
+ * a block of forty scores take a fifth of the memory those of every possible
+ * score would. Every table keeps its scores in order of frequency, so the few
+ * common ones are found after a step or two, and a score is decoded with a
+ * single division.
+ *
+ * @author Alex Aiezza
+ *
+ */
+final class QualityScoreModel
+{
+    /**
+     * How much a score's frequency grows each time it is coded.
+     */
+    private static final int STEP        = 16;
+
+    /**
+     * The greatest total frequency of a table before it is halved.
+     */
+    private static final int MAX_TOTAL   = RangeEncoder.MAX_TOTAL - STEP;
+
+    /**
+     * The most scores any context tells apart.
+     */
+    private static final int MAX_CONTEXT = 64;
+
+    /**
+     * The number of parts a read is split into, and of ranges of how much its
+     * scores have changed, for context.
+     */
+    private static final int PARTS       = 8, CHANGES = 4;
+
+    /**
+     * Each table is its total frequency followed by its scores in order of
+     * frequency, each with its frequency in the bits above it.
+     */
+    private int []           tables      = new int [0];
+    private int              tableSize;
+
+    // The score of every symbol and the symbol of every score
+    private final byte []    scores      = new byte [1 << Byte.SIZE];
+    private final int []     symbols     = new int [1 << Byte.SIZE];
+    private int              size;
+
+    // How many values the higher of the two scores before the last can take
+    private int              befores;
+
+    // Tables of an older generation are reset when they are next used
+    private int []           generations = new int [0];
+    private int              generation  = 0;
+
+    // The scores before this one in the read
+    private int              last, before, beforeThat;
+    private int              position, changes;
+
+    /**
+     * @return the index of the table of the context of the next score, reset
+     *         if it is of an older generation
+     */
+    private int context()
+    {
+        final int changeBits = 32 - Integer.numberOfLeadingZeros( changes >> 3 );
+        final int context = ( ( Math.min( last, MAX_CONTEXT - 1 ) * befores +
+                ( Math.min( Math.max( before, beforeThat ), MAX_CONTEXT - 1 ) >> 2 ) ) * PARTS +
+                Math.min( position >> 5, PARTS - 1 ) ) * CHANGES +
+                Math.min( changeBits, CHANGES - 1 );
+
+        final int table = context * tableSize;
+        if ( generations[context] != generation )
+        {
+            generations[context] = generation;
+            tables[table] = size;
+            for ( int s = 0; s < size; s++ )
+                tables[table + 1 + s] = 1 << Byte.SIZE | s;
+        }
+        return table;
+    }
+
+    /**
+     * @return the next score read by <code>decoder</code>
+     */
+    byte decode( final RangeDecoder decoder )
+    {
+        final int [] tables = this.tables;
+        final int table = context();
+
+        // Compare the offset with each end of a score's range, rather than
+        // divide it down to a frequency
+        final long range = decoder.scale( tables[table] );
+        final long offset = decoder.getOffset();
+        final int end = table + size;
+        int index = table + 1, cumulative = 0;
+        while ( index < end && ( cumulative + ( tables[index] >>> Byte.SIZE ) ) * range <= offset )
+            cumulative += tables[index++] >>> Byte.SIZE;
+        decoder.decode( cumulative, tables[index] >>> Byte.SIZE );
+
+        return scores[update( table, index )];
+    }
+
+    /**
+     * Writes <code>score</code> with <code>encoder</code>.
+     */
+    void encode( final RangeEncoder encoder, final byte score )
+    {
+        final int [] tables = this.tables;
+        final int table = context();
+
+        final int symbol = symbols[score & 0xFF];
+
+        int index = table + 1, cumulative = 0, entry;
+        while ( ( ( entry = tables[index] ) & 0xFF ) != symbol )
+        {
+            cumulative += entry >>> Byte.SIZE;
+            index++;
+        }
+        encoder.encode( cumulative, entry >>> Byte.SIZE, tables[table] );
+
+        update( table, index );
+    }
+
+    /**
+     * Forgets everything learned, for the scores of a new block, which are
+     * only ever the first <code>size</code> bytes of <code>alphabet</code>.
+     */
+    void reset( final byte [] alphabet, final int size )
+    {
+        for ( int s = 0; s < size; s++ )
+        {
+            symbols[alphabet[s] & 0xFF] = s;
+            scores[s] = alphabet[s];
+        }
+        this.size = size;
+
+        final int lasts = Math.min( size, MAX_CONTEXT );
+        befores = lasts + 3 >> 2;
+        final int contexts = lasts * befores * PARTS * CHANGES;
+        tableSize = size + 1;
+        if ( generations.length < contexts || tables.length < contexts * tableSize )
+        {
+            generations = new int [contexts];
+            tables = new int [contexts * tableSize];
+        }
+        generation++;
+    }
+
+    /**
+     * Starts on the scores of a new read.
+     */
+    void startRead()
+    {
+        last = before = beforeThat = 0;
+        position = changes = 0;
+    }
+
+    /**
+     * Counts the score at <code>index</code> in the table at
+     * <code>table</code>, and moves on past it in the read.
+     *
+     * @return its symbol
+     */
+    private int update( final int table, final int index )
+    {
+        final int [] tables = this.tables;
+        final int entry = tables[index] + ( STEP << Byte.SIZE );
+        final int symbol = entry & 0xFF;
+
+        // Keep the table in order of frequency
+        if ( index > table + 1 && entry > tables[index - 1] )
+        {
+            tables[index] = tables[index - 1];
+            tables[index - 1] = entry;
+        } else tables[index] = entry;
+
+        if ( ( tables[table] += STEP ) > MAX_TOTAL )
+        {
+            int total = 0;
+            for ( int s = table + 1; s <= table + size; s++ )
+            {
+                final int frequency = tables[s] >>> Byte.SIZE;
+                tables[s] = frequency - ( frequency >> 1 ) << Byte.SIZE | tables[s] & 0xFF;
+                total += frequency - ( frequency >> 1 );
+            }
+            tables[table] = total;
+        }
+
+        if ( position > 0 )
+            changes += Math.abs( symbol - last );
+        beforeThat = before;
+        before = last;
+        last = symbol;
+        position++;
+        return symbol;
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads back the quality scores written by a {@link QualityScoreWriter}, a
+ * read or a part of one at a time.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class QualityScoreReader implements Closeable
+{
+    private final InputStream       in;
+
+    private final QualityScoreModel model    = new QualityScoreModel();
+    private QualityRunModel         runModel;
+    private boolean                 runs;
+    private final RangeDecoder      decoder  = new RangeDecoder();
+
+    private byte []                 block    = new byte [1 << 16];
+    private final byte []           alphabet = new byte [1 << Byte.SIZE];
+    private long                    remaining;
+
+    // What is left of the read started last, and of its part in this block
+    private long                    readRemaining;
+    private int                     partRemaining;
+
+    public QualityScoreReader( final InputStream in )
+    {
+        this.in = in;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+    /**
+     * Starts reading the next block.
+     *
+     * @return <code>false</code> if there are no more
+     */
+    private boolean nextBlock() throws IOException
+    {
+        final int first = in.read();
+        if ( first < 0 )
+            return false;
+        remaining = readVarLong( first );
+        final int scores = in.read() + 1;
+        if ( scores == 0 )
+            throw new EOFException( "Quality score block cut short" );
+        readFully( alphabet, scores );
+        runs = scores <= QualityRunModel.MAX_SYMBOLS;
+        if ( runs )
+        {
+            if ( runModel == null )
+                runModel = new QualityRunModel();
+            runModel.reset( alphabet, scores );
+        } else model.reset( alphabet, scores );
+
+        final int size = (int) readVarLong( in.read() );
+        if ( block.length < size )
+            block = new byte [Math.max( size, block.length * 2 )];
+        readFully( block, size );
+        decoder.reset( block, 0, size );
+        return true;
+    }
+
+    /**
+     * Reads the scores of the next read, of <code>length</code> scores, into
+     * <code>scores</code> from <code>offset</code> on.
+     *
+     * @return the number of scores read, fewer than <code>length</code> only
+     *         if there are no more
+     */
+    public int read( final byte [] scores, final int offset, final int length )
+            throws IOException
+    {
+        startRead( length );
+        int read = 0;
+        for ( int r; ( r = readPart( scores, offset + read, length - read ) ) > 0; )
+            read += r;
+        return read;
+    }
+
+    /**
+     * Reads up to <code>length</code> more scores of the read started last
+     * into <code>scores</code> from <code>offset</code> on.
+     *
+     * @return the number of scores read, <code>0</code> once there are no
+     *         more of the read
+     */
+    public int readPart( final byte [] scores, final int offset, final int length )
+            throws IOException
+    {
+        if ( partRemaining == 0 )
+            startPart();
+
+        final int read = Math.min( length, partRemaining );
+        if ( runs )
+            runModel.decode( decoder, scores, offset, read );
+        else for ( int s = offset; s < offset + read; s++ )
+            scores[s] = model.decode( decoder );
+        partRemaining -= read;
+        readRemaining -= read;
+        return read;
+    }
+
+    private void readFully( final byte [] bytes, final int length ) throws IOException
+    {
+        for ( int read = 0, r; read < length; read += r )
+            if ( ( r = in.read( bytes, read, length - read ) ) < 0 )
+                throw new EOFException( "Quality score block cut short" );
+    }
+
+    /**
+     * Reads a varint starting with the byte <code>b</code>.
+     */
+    private long readVarLong( int b ) throws IOException
+    {
+        long value = 0;
+        for ( int shift = 0;; shift += 7 )
+        {
+            if ( b < 0 )
+                throw new EOFException( "Quality score block cut short" );
+            value |= (long) ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+                return value;
+            b = in.read();
+        }
+    }
+
+    /**
+     * Starts on the part of the read started last in the next block that has
+     * any scores, as a read of its own, unless there is no more of the read.
+     */
+    private void startPart() throws IOException
+    {
+        if ( readRemaining == 0 )
+            return;
+        while ( remaining == 0 )
+            if ( !nextBlock() )
+            {
+                readRemaining = 0;
+                return;
+            }
+
+        partRemaining = (int) Math.min( readRemaining, remaining );
+        remaining -= partRemaining;
+        if ( runs )
+            runModel.startRead( partRemaining );
+        else model.startRead();
+    }
+
+    /**
+     * Starts reading the scores of the next read, of <code>length</code>
+     * scores, or of fewer if there are no more.
+     */
+    public void startRead( final long length )
+    {
+        readRemaining = length;
+        partRemaining = 0;
+    }
+}
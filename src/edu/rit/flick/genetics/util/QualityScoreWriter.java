@@ -0,0 +1,359 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes the quality scores of reads with a range coder and an adaptive
+ * {@link QualityScoreModel}, in blocks that each start the model anew. A block
+ * ends at every multiple of {@link #BLOCK_SIZE} scores in the file, splitting
+ * the read it ends in, so where blocks split does not depend on how the file
+ * was split into groups of records, and no more than a block of scores is
+ * ever held however long a read is. The part of a read in each block is coded
+ * as a read of its own. Each block is written as a varint of its number of
+ * scores, a byte of the number of distinct scores in it less one, those
+ * scores, a varint of its size and its bytes. The scores of a block are coded
+ * from only those it holds, and those of a block of no more than
+ * {@link QualityRunModel#MAX_SYMBOLS}, such as binned scores, as runs with a
+ * {@link QualityRunModel} instead. The scores of a long read may be written a
+ * part at a time.
+ * <p>
+ * A writer for one group of records does not know whether its first block
+ * started in the group before it, or whether its last goes on into the group
+ * after it, so it holds the scores of both back until it is
+ * {@link #merge(QualityScoreWriter) merged}.
+ *
+ * @author Alex Aiezza
+ *
+ * @see QualityScoreReader
+ */
+public class QualityScoreWriter implements Closeable
+{
+    /**
+     * The number of scores a block starts at a multiple of.
+     */
+    public static final int   BLOCK_SIZE      = 1 << 22;
+
+    /**
+     * The most bytes a varint is written as.
+     */
+    private static final int  MAX_VARINT_SIZE = Long.SIZE / 7 + 1;
+
+    private final OutputStream out;
+    private final int          blockSize;
+
+    private final byte []      varint          = new byte [MAX_VARINT_SIZE];
+    private final byte []      alphabet        = new byte [1 << Byte.SIZE];
+
+    private QualityScoreModel  model;
+    private QualityRunModel    runModel;
+    private final RangeEncoder encoder         = new RangeEncoder();
+
+    // The reads of the block being written, coded once it ends
+    private Block              pending         = new Block();
+    private long               position;
+
+    // The first block of a group of records, held back until it is merged
+    private boolean            holding         = false;
+    private Block              held;
+
+    public QualityScoreWriter( final OutputStream out )
+    {
+        this( out, BLOCK_SIZE );
+    }
+
+    /**
+     * Writes to <code>out</code> in blocks starting at multiples of
+     * <code>blockSize</code> scores instead.
+     */
+    QualityScoreWriter( final OutputStream out, final int blockSize )
+    {
+        this.out = out;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Adds the reads of <code>block</code> to the block being written,
+     * ending that first if <code>block</code> is not a part of it.
+     */
+    private void append( final Block block ) throws IOException
+    {
+        if ( block.reads == 0 )
+            return;
+        if ( pending.reads > 0 && pending.index != block.index )
+            endBlock();
+        pending.index = block.index;
+        pending.add( block );
+    }
+
+    /**
+     * Writes what is left of the last block.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if ( pending.reads > 0 )
+            encode( pending );
+        out.close();
+    }
+
+    /**
+     * Writes <code>block</code> from a new model.
+     */
+    private void encode( final Block block ) throws IOException
+    {
+        if ( block.size == 0 )
+            return;
+
+        // The distinct scores of the block, in order
+        final byte [] scores = block.scores;
+        final boolean [] seen = new boolean [alphabet.length];
+        for ( int s = 0; s < block.size; s++ )
+            seen[scores[s] & 0xFF] = true;
+        int size = 0;
+        for ( int b = 0; b < seen.length; b++ )
+            if ( seen[b] )
+                alphabet[size++] = (byte) b;
+
+        encoder.reset();
+        if ( size <= QualityRunModel.MAX_SYMBOLS )
+        {
+            if ( runModel == null )
+                runModel = new QualityRunModel();
+            runModel.reset( alphabet, size );
+            for ( int r = 0, s = 0; r < block.reads; s += block.lengths[r++] )
+                runModel.encode( encoder, scores, s, block.lengths[r] );
+        } else
+        {
+            if ( model == null )
+                model = new QualityScoreModel();
+            model.reset( alphabet, size );
+            for ( int r = 0, s = 0; r < block.reads; r++ )
+            {
+                model.startRead();
+                for ( final int end = s + block.lengths[r]; s < end; s++ )
+                    model.encode( encoder, scores[s] );
+            }
+        }
+        encoder.finish();
+
+        writeVarLong( block.size );
+        out.write( size - 1 );
+        out.write( alphabet, 0, size );
+        writeVarLong( encoder.size() );
+        out.write( encoder.getBytes(), 0, encoder.size() );
+    }
+
+    /**
+     * Ends the block being written, holding it back if it is the first of a
+     * group of records.
+     */
+    private void endBlock() throws IOException
+    {
+        if ( holding )
+        {
+            held = pending;
+            pending = new Block();
+            holding = false;
+        } else
+        {
+            encode( pending );
+            pending.clear();
+        }
+    }
+
+    /**
+     * Writes the scores of <code>group</code>, the group of records following
+     * those written so far, after them.
+     */
+    public void merge( final QualityScoreWriter group ) throws IOException
+    {
+        if ( group.held != null )
+        {
+            append( group.held );
+            endBlock();
+            ( (ByteBufferOutputStream) group.out ).writeTo( out );
+        }
+        append( group.pending );
+    }
+
+    /**
+     * Ends the block being written if the next score is past its end.
+     *
+     * @return how many more scores the block being written can take
+     */
+    private int room() throws IOException
+    {
+        final long end = ( pending.index + 1 ) * blockSize;
+        if ( position < end )
+            return (int) ( end - position );
+
+        // The read goes on in the next block
+        endBlock();
+        pending.index = position / blockSize;
+        pending.startRead();
+        return blockSize;
+    }
+
+    /**
+     * Starts writing the scores of the read whose first score is the
+     * <code>position</code>th in the file.
+     */
+    public void startRead( final long position ) throws IOException
+    {
+        final long index = position / blockSize;
+        if ( pending.reads > 0 && pending.index != index )
+            endBlock();
+        pending.index = index;
+        pending.startRead();
+        this.position = position;
+    }
+
+    /**
+     * Starts writing a group of records. Whether its first block started
+     * before the group is not known until it is merged.
+     */
+    public void startRecordGroup()
+    {
+        holding = true;
+        held = null;
+    }
+
+    /**
+     * Writes the <code>length</code> scores at <code>offset</code> in
+     * <code>scores</code> of the read whose first score is the
+     * <code>position</code>th in the file.
+     */
+    public void write( final long position, final byte [] scores, final int offset,
+            final int length ) throws IOException
+    {
+        startRead( position );
+        writePart( scores, offset, length );
+    }
+
+    /**
+     * Writes the <code>length</code> scores at <code>offset</code> in
+     * <code>scores</code> after those of the read started last.
+     */
+    public void writePart( final byte [] scores, final int offset, final int length )
+            throws IOException
+    {
+        for ( int written = 0, part; written < length; written += part )
+        {
+            part = Math.min( length - written, room() );
+            pending.append( scores, offset + written, part );
+            position += part;
+        }
+    }
+
+    /**
+     * Writes the scores of <code>scores</code> from its position to its limit
+     * after those of the read started last.
+     */
+    public void writePart( final ByteBuffer scores ) throws IOException
+    {
+        while ( scores.hasRemaining() )
+        {
+            final int part = Math.min( scores.remaining(), room() );
+            pending.append( scores, part );
+            position += part;
+        }
+    }
+
+    private void writeVarLong( long value ) throws IOException
+    {
+        int size = 0;
+        while ( ( value & ~0x7FL ) != 0 )
+        {
+            varint[size++] = (byte) ( value | 0x80 );
+            value >>>= 7;
+        }
+        varint[size++] = (byte) value;
+        out.write( varint, 0, size );
+    }
+
+    /**
+     * The scores of the reads of one block, as they are, and the number of
+     * them in the block of each read.
+     */
+    private static class Block
+    {
+        long    index;
+        byte [] scores  = new byte [1 << 12];
+        int     size;
+        int []  lengths = new int [1 << 6];
+        int     reads;
+
+        /**
+         * Adds the reads of <code>block</code>.
+         */
+        void add( final Block block )
+        {
+            reserve( block.size, block.reads );
+            System.arraycopy( block.scores, 0, scores, size, block.size );
+            size += block.size;
+            System.arraycopy( block.lengths, 0, lengths, reads, block.reads );
+            reads += block.reads;
+        }
+
+        /**
+         * Adds the <code>length</code> scores at <code>offset</code> in
+         * <code>scores</code> to the last read.
+         */
+        void append( final byte [] scores, final int offset, final int length )
+        {
+            reserve( length, 0 );
+            System.arraycopy( scores, offset, this.scores, size, length );
+            size += length;
+            lengths[reads - 1] += length;
+        }
+
+        /**
+         * Adds the next <code>length</code> scores of <code>scores</code> to
+         * the last read.
+         */
+        void append( final ByteBuffer scores, final int length )
+        {
+            reserve( length, 0 );
+            scores.get( this.scores, size, length );
+            size += length;
+            lengths[reads - 1] += length;
+        }
+
+        void clear()
+        {
+            size = 0;
+            reads = 0;
+        }
+
+        /**
+         * Adds a read with no scores yet.
+         */
+        void startRead()
+        {
+            reserve( 0, 1 );
+            lengths[reads++] = 0;
+        }
+
+        /**
+         * Makes room for <code>length</code> more scores of
+         * <code>more</code> more reads.
+         */
+        private void reserve( final int length, final int more )
+        {
+            if ( size + length > scores.length )
+                scores = Arrays.copyOf( scores, Math.max( size + length, scores.length * 2 ) );
+            if ( reads + more > lengths.length )
+                lengths = Arrays.copyOf( lengths, Math.max( reads + more, lengths.length * 2 ) );
+        }
+    }
+}
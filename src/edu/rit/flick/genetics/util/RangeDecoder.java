@@ -0,0 +1,107 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static edu.rit.flick.genetics.util.RangeEncoder.BOTTOM;
+import static edu.rit.flick.genetics.util.RangeEncoder.MASK;
+import static edu.rit.flick.genetics.util.RangeEncoder.TOP;
+
+/**
+ * Reads back the symbols written by a {@link RangeEncoder}. Each is read by
+ * finding the {@link #getFrequency(int) frequency} it covers, then
+ * {@link #decode(int, int) decoding} the symbol that covers it. A symbol may
+ * instead be found by {@link #scale(int) scaling} the range and comparing the
+ * {@link #getOffset() offset} with the ends of each symbol's range, without
+ * dividing the offset down to a frequency.
+ *
+ * @author Alex Aiezza
+ *
+ */
+final class RangeDecoder
+{
+    private long    low, range, code;
+
+    private byte [] bytes;
+    private int     position, limit;
+
+    /**
+     * Moves past the symbol starting at <code>cumulative</code> with
+     * <code>frequency</code>.
+     */
+    void decode( final int cumulative, final int frequency )
+    {
+        low += cumulative * range;
+        range *= frequency;
+
+        for ( ;; )
+        {
+            if ( ( low ^ low + range ) >= TOP )
+            {
+                if ( range >= BOTTOM )
+                    return;
+                range = -low & BOTTOM - 1;
+            }
+            code = ( code << 8 | nextByte() ) & MASK;
+            low = low << 8 & MASK;
+            range = range << 8 & MASK;
+        }
+    }
+
+    /**
+     * @return the frequency out of <code>total</code> the next symbol covers
+     */
+    int getFrequency( final int total )
+    {
+        scale( total );
+        final long frequency = getOffset() / range;
+        return frequency < total ? (int) frequency : total - 1;
+    }
+
+    /**
+     * @return how far into the range the next symbol is, which is past the
+     *         start of the symbol at <code>cumulative</code> if no less than
+     *         <code>cumulative</code> times the {@link #scale(int) scaled}
+     *         range
+     */
+    long getOffset()
+    {
+        return code - low & MASK;
+    }
+
+    private int nextByte()
+    {
+        return position < limit ? bytes[position++] & 0xFF : 0;
+    }
+
+    /**
+     * Scales the range to a frequency of one out of <code>total</code>, for
+     * the next symbol to be decoded out of <code>total</code>.
+     *
+     * @return the scaled range
+     */
+    long scale( final int total )
+    {
+        return range /= total;
+    }
+
+    /**
+     * Starts reading the <code>length</code> bytes at <code>offset</code> in
+     * <code>bytes</code>.
+     */
+    void reset( final byte [] bytes, final int offset, final int length )
+    {
+        this.bytes = bytes;
+        position = offset;
+        limit = offset + length;
+
+        low = 0;
+        range = MASK;
+        code = 0;
+        for ( int b = 0; b < Integer.BYTES; b++ )
+            code = code << 8 | nextByte();
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.util.Arrays;
+
+/**
+ * A carryless range coder, writing symbols of a given frequency out of a total
+ * no greater than {@link #MAX_TOTAL} into a buffer of its own a byte at a time.
+ *
+ * @author Alex Aiezza
+ *
+ * @see RangeDecoder
+ */
+final class RangeEncoder
+{
+    /**
+     * The greatest total frequency a symbol can be written out of.
+     */
+    static final int    MAX_TOTAL = 1 << 16;
+
+    static final long   MASK      = 0xFFFFFFFFL, TOP = 1L << 24, BOTTOM = MAX_TOTAL;
+
+    private long        low, range;
+
+    private byte []     bytes     = new byte [1 << 16];
+    private int         size;
+
+    /**
+     * Writes the symbol starting at <code>cumulative</code> with
+     * <code>frequency</code> out of <code>total</code>.
+     */
+    void encode( final int cumulative, final int frequency, final int total )
+    {
+        range /= total;
+        low += cumulative * range;
+        range *= frequency;
+
+        for ( ;; )
+        {
+            if ( ( low ^ low + range ) >= TOP )
+            {
+                if ( range >= BOTTOM )
+                    return;
+                range = -low & BOTTOM - 1;
+            }
+            if ( size == bytes.length )
+                bytes = Arrays.copyOf( bytes, size * 2 );
+            bytes[size++] = (byte) ( low >>> 24 );
+            low = low << 8 & MASK;
+            range = range << 8 & MASK;
+        }
+    }
+
+    /**
+     * Writes out what is left of the last symbol.
+     */
+    void finish()
+    {
+        if ( size + Integer.BYTES > bytes.length )
+            bytes = Arrays.copyOf( bytes, size * 2 + Integer.BYTES );
+        for ( int shift = 24; shift >= 0; shift -= 8 )
+            bytes[size++] = (byte) ( low >>> shift );
+    }
+
+    /**
+     * @return the bytes written, from index <code>0</code> up to the
+     *         {@link #size()}
+     */
+    byte [] getBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * Starts writing anew.
+     */
+    void reset()
+    {
+        low = 0;
+        range = MASK;
+        size = 0;
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    int size()
+    {
+        return size;
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads the lengths written by a {@link ReadLengthWriter} back in order,
+ * decoding them a block at a time into an array of its own, or those of older
+ * archives written as two bytes each.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class ReadLengthReader implements Closeable
+{
+    /**
+     * The number of bytes read at a time.
+     */
+    private static final int  BUFFER_SIZE = 1 << 14;
+
+    /**
+     * The number of lengths decoded at a time.
+     */
+    private static final int  BLOCK_SIZE  = 1 << 12;
+
+    private final InputStream in;
+    private final boolean     varints;
+
+    private final byte []     buffer      = new byte [BUFFER_SIZE];
+    private int               position, limit;
+
+    private final long []     lengths     = new long [BLOCK_SIZE];
+    private int               index, count;
+
+    // The reads of the same length the file starts with, not yet read
+    private long              first, firstCount;
+    private boolean           started     = false;
+
+    public ReadLengthReader( final InputStream in )
+    {
+        this( in, true );
+    }
+
+    /**
+     * Reads lengths written as varints only if <code>varints</code>; older
+     * archives wrote each as two bytes, the highest first.
+     */
+    public ReadLengthReader( final InputStream in, final boolean varints )
+    {
+        this.in = in;
+        this.varints = varints;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+    /**
+     * @return whether there is anything left to read in the buffer, once it
+     *         is refilled if need be
+     */
+    private boolean fill() throws IOException
+    {
+        while ( position == limit )
+        {
+            limit = in.read( buffer );
+            position = 0;
+            if ( limit < 0 )
+            {
+                limit = 0;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether there is another length
+     */
+    public boolean hasNext() throws IOException
+    {
+        if ( index == count )
+            readBlock();
+        return index < count;
+    }
+
+    /**
+     * @return the next length
+     * @throws EOFException
+     *             if there are no more
+     */
+    public long next() throws IOException
+    {
+        if ( !hasNext() )
+            throw new EOFException( "No more read lengths" );
+        return lengths[index++];
+    }
+
+    /**
+     * Decodes as many of the lengths left as fit in the block.
+     */
+    private void readBlock() throws IOException
+    {
+        index = count = 0;
+        if ( !varints )
+        {
+            while ( count < BLOCK_SIZE && fill() )
+                lengths[count++] = readByte() << 8 | readByte();
+            return;
+        }
+
+        if ( !started && fill() )
+        {
+            first = readVarLong();
+            firstCount = readVarLong();
+            started = true;
+        }
+        if ( firstCount > 0 )
+        {
+            count = (int) Math.min( firstCount, BLOCK_SIZE );
+            Arrays.fill( lengths, 0, count, first );
+            firstCount -= count;
+            return;
+        }
+
+        while ( count < BLOCK_SIZE && fill() )
+            lengths[count++] = readVarLong();
+    }
+
+    private int readByte() throws IOException
+    {
+        if ( !fill() )
+            throw new EOFException( "Read length cut short" );
+        return buffer[position++] & 0xFF;
+    }
+
+    private long readVarLong() throws IOException
+    {
+        long value = 0;
+        for ( int shift = 0;; shift += 7 )
+        {
+            final int b = readByte();
+            value |= (long) ( b & 0x7F ) << shift;
+            if ( b < 0x80 )
+                return value;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the lengths of reads as a varint of the first length and a varint of
+ * how many reads in a row start with it, followed by a varint of each length
+ * after those. A file of reads all of the same length takes no more than
+ * those two varints.
+ * <p>
+ * A writer for one group of records does not know the lengths before its
+ * first, so it holds back the reads it starts with of the same length until
+ * it is {@link #merge(ReadLengthWriter) merged}.
+ *
+ * @author Alex Aiezza
+ *
+ * @see ReadLengthReader
+ */
+public class ReadLengthWriter implements Closeable
+{
+    /**
+     * The most bytes a varint is written as.
+     */
+    private static final int   MAX_VARINT_SIZE = Long.SIZE / 7 + 1;
+
+    private final OutputStream out;
+
+    private final byte []      varint          = new byte [MAX_VARINT_SIZE];
+
+    // The reads of the same length the file starts with, until one differs
+    private long               first, count;
+    private boolean            varying         = false;
+
+    // Whether the reads started with are held back until they are merged
+    private boolean            holding         = false;
+
+    public ReadLengthWriter( final OutputStream out )
+    {
+        this.out = out;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if ( !varying && count > 0 )
+            writeFirst();
+        out.close();
+    }
+
+    /**
+     * Writes the lengths of <code>group</code>, the group of records
+     * following those written so far, after them.
+     */
+    public void merge( final ReadLengthWriter group ) throws IOException
+    {
+        write( group.first, group.count );
+        if ( group.varying )
+        {
+            if ( !varying )
+                writeFirst();
+            ( (ByteBufferOutputStream) group.out ).writeTo( out );
+        }
+    }
+
+    /**
+     * Starts writing a group of records. The lengths before the group are not
+     * known until it is merged.
+     */
+    public void startRecordGroup()
+    {
+        holding = true;
+    }
+
+    /**
+     * Writes the length of the next read.
+     */
+    public void write( final long length ) throws IOException
+    {
+        write( length, 1 );
+    }
+
+    /**
+     * Writes <code>length</code> as the length of the next <code>reads</code>
+     * reads.
+     */
+    private void write( final long length, final long reads ) throws IOException
+    {
+        if ( reads == 0 )
+            return;
+        if ( !varying && ( count == 0 || first == length ) )
+        {
+            first = length;
+            count += reads;
+            return;
+        }
+
+        if ( !varying )
+            writeFirst();
+        for ( long r = 0; r < reads; r++ )
+            writeVarLong( length );
+    }
+
+    /**
+     * Writes the reads of the same length the file starts with, unless they
+     * are held back, and starts writing each length after them.
+     */
+    private void writeFirst() throws IOException
+    {
+        if ( !holding )
+        {
+            writeVarLong( first );
+            writeVarLong( count );
+        }
+        varying = true;
+    }
+
+    private void writeVarLong( long value ) throws IOException
+    {
+        int size = 0;
+        while ( ( value & ~0x7FL ) != 0 )
+        {
+            varint[size++] = (byte) ( value | 0x80 );
+            value >>>= 7;
+        }
+        varint[size++] = (byte) value;
+        out.write( varint, 0, size );
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static edu.rit.flick.genetics.util.SequenceEventWriter.SYMBOLS;
+import static edu.rit.flick.genetics.util.SequenceEventWriter.SYMBOL_CODE_BITS;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the events written by a {@link SequenceEventWriter} back in order, one
+ * at a time, or those of older archives written out as hex text.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public abstract class SequenceEventReader implements Closeable
+{
+    /**
+     * The number of bytes read at a time.
+     */
+    private static final int BUFFER_SIZE = 1 << 12;
+
+    /**
+     * @return a reader of the runs in <code>in</code>
+     */
+    public static SequenceEventReader runs( final InputStream in )
+    {
+        return new VarIntReader( in, false );
+    }
+
+    /**
+     * @return a reader of the symbols in <code>in</code>
+     */
+    public static SequenceEventReader symbols( final InputStream in )
+    {
+        return new VarIntReader( in, true );
+    }
+
+    /**
+     * @return a reader of the runs in <code>in</code>, written as
+     *         <code>start-end|</code> in hex
+     */
+    public static SequenceEventReader textRuns( final InputStream in )
+    {
+        return new TextReader( in, false );
+    }
+
+    /**
+     * @return a reader of the symbols in <code>in</code>, written as
+     *         <code>position-symbol|</code> with the position in hex
+     */
+    public static SequenceEventReader textSymbols( final InputStream in )
+    {
+        return new TextReader( in, true );
+    }
+
+    protected long start  = -1;
+    protected long end    = 0;
+    protected byte symbol = 0;
+
+    /**
+     * @return where the last event read ends, just past its last position
+     */
+    public long getEnd()
+    {
+        return end;
+    }
+
+    /**
+     * @return where the last event read starts
+     */
+    public long getStart()
+    {
+        return start;
+    }
+
+    /**
+     * @return the symbol of the last event read
+     */
+    public byte getSymbol()
+    {
+        return symbol;
+    }
+
+    /**
+     * Reads the next event.
+     *
+     * @return <code>false</code> if there are no more events, leaving the
+     *         last one as it was
+     */
+    public abstract boolean next() throws IOException;
+
+    /**
+     * Reads events written out as hex text, a byte at a time.
+     */
+    private static class TextReader extends SequenceEventReader
+    {
+        private static final byte     RANGE = '-', PIPE = '|';
+
+        private final TextFieldReader events;
+        private final boolean         symbols;
+
+        TextReader( final InputStream in, final boolean symbols )
+        {
+            events = new TextFieldReader( in );
+            this.symbols = symbols;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            events.close();
+        }
+
+        @Override
+        public boolean next() throws IOException
+        {
+            // Runs were trimmed of whitespace, and empty ones skipped
+            if ( !symbols )
+                do
+                    events.skipWhitespace();
+                while ( events.skip( PIPE ) );
+            if ( !events.hasNext() )
+                return false;
+
+            start = events.readNumber( 16 );
+            events.skip( RANGE );
+            if ( symbols )
+            {
+                symbol = (byte) events.read();
+                end = start + 1;
+            } else end = events.readNumber( 16 );
+            events.skip( PIPE );
+
+            return true;
+        }
+    }
+
+    /**
+     * Reads events written as varints through a buffer of its own, without
+     * allocating anything per event.
+     */
+    private static class VarIntReader extends SequenceEventReader
+    {
+        private final InputStream in;
+        private final boolean     symbols;
+
+        private final byte []     buffer = new byte [BUFFER_SIZE];
+        private int               position, limit;
+
+        VarIntReader( final InputStream in, final boolean symbols )
+        {
+            this.in = in;
+            this.symbols = symbols;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            in.close();
+        }
+
+        /**
+         * @return whether there is anything left to read in the buffer, once
+         *         it is refilled if need be
+         */
+        private boolean fill() throws IOException
+        {
+            while ( position == limit )
+            {
+                limit = in.read( buffer );
+                position = 0;
+                if ( limit < 0 )
+                {
+                    limit = 0;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean next() throws IOException
+        {
+            if ( !fill() )
+                return false;
+
+            final long distance = readVarLong();
+            if ( symbols )
+            {
+                final int code = (int) distance & ( 1 << SYMBOL_CODE_BITS ) - 1;
+                start = end + ( distance >>> SYMBOL_CODE_BITS );
+                symbol = code == 0 ? readByte() : (byte) SYMBOLS.charAt( code - 1 );
+                end = start + 1;
+            } else
+            {
+                start = end + distance;
+                end = start + readVarLong();
+            }
+            return true;
+        }
+
+        private byte readByte() throws IOException
+        {
+            if ( !fill() )
+                throw new EOFException( "Sequence event cut short" );
+            return buffer[position++];
+        }
+
+        private long readVarLong() throws IOException
+        {
+            long value = 0;
+            for ( int shift = 0;; shift += 7 )
+            {
+                final byte b = readByte();
+                value |= (long) ( b & 0x7F ) << shift;
+                if ( b >= 0 )
+                    return value;
+            }
+        }
+    }
+}
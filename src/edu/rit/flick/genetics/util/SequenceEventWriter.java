@@ -0,0 +1,202 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes events found along the sequence, such as runs of <code>N</code>s or
+ * IUPAC codes, in the order they are found. Every event is written as varints:
+ * its distance from the end of the event before it, then the length of a run,
+ * or, sharing the distance's varint, the code of a symbol from
+ * {@link #SYMBOLS}. Code <code>0</code> is followed by the symbol itself.
+ * <p>
+ * A writer for one group of records does not know where the groups before it
+ * left off, so it holds its first event back until it is
+ * {@link #merge(SequenceEventWriter) merged}.
+ *
+ * @author Alex Aiezza
+ *
+ * @see SequenceEventReader
+ */
+public class SequenceEventWriter implements Closeable
+{
+    /**
+     * The symbols with codes of their own, the first having code
+     * <code>1</code>.
+     */
+    public static final String   SYMBOLS          = "nRYKMSWBDHVrykm";
+
+    /**
+     * The low bits of a symbol's varint holding its code.
+     */
+    public static final int      SYMBOL_CODE_BITS = 4;
+
+    /**
+     * The most bytes an event is written as.
+     */
+    private static final int     MAX_EVENT_SIZE   = 2 * ( Long.SIZE / 7 + 1 );
+
+    /*
+     * Positions of events not in progress and not yet known
+     */
+    private static final long    NONE             = -1, UNKNOWN = -2;
+
+    private static final byte [] SYMBOL_CODES     = new byte [1 << Byte.SIZE];
+
+    static
+    {
+        for ( int s = 0; s < SYMBOLS.length(); s++ )
+            SYMBOL_CODES[SYMBOLS.charAt( s )] = (byte) ( s + 1 );
+    }
+
+    private final OutputStream out;
+    private final boolean      symbols;
+
+    private final byte []      event    = new byte [MAX_EVENT_SIZE];
+
+    private long               last     = 0;
+    private long               runStart = NONE;
+
+    // The first event of a group of records, held back until it is merged
+    private long               heldStart, heldEnd = NONE;
+    private byte               heldSymbol;
+
+    private SequenceEventWriter( final OutputStream out, final boolean symbols )
+    {
+        this.out = out;
+        this.symbols = symbols;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+
+    /**
+     * Ends the run in progress at <code>position</code>.
+     */
+    public void endRun( final long position ) throws IOException
+    {
+        writeEvent( runStart, position, (byte) 0 );
+        runStart = NONE;
+    }
+
+    /**
+     * Writes the events of <code>group</code>, the group of records following
+     * those written so far, after them.
+     */
+    public void merge( final SequenceEventWriter group ) throws IOException
+    {
+        if ( group.heldEnd != NONE )
+        {
+            // The group may have ended a run started before it
+            writeEvent( group.heldStart == UNKNOWN ? runStart : group.heldStart, group.heldEnd,
+                group.heldSymbol );
+            ( (ByteBufferOutputStream) group.out ).writeTo( out );
+            last = group.last;
+        }
+
+        if ( group.runStart != UNKNOWN )
+            runStart = group.runStart;
+    }
+
+    /**
+     * @return a writer of runs to <code>out</code>
+     */
+    public static SequenceEventWriter runs( final OutputStream out )
+    {
+        return new SequenceEventWriter( out, false );
+    }
+
+    /**
+     * Starts writing a group of records, part way through a run if
+     * <code>inRun</code>. The events before the group are not known until it
+     * is merged.
+     */
+    public void startRecordGroup( final boolean inRun )
+    {
+        last = UNKNOWN;
+        runStart = inRun ? UNKNOWN : NONE;
+        heldEnd = NONE;
+    }
+
+    /**
+     * Starts a run at <code>position</code>.
+     */
+    public void startRun( final long position )
+    {
+        runStart = position;
+    }
+
+    /**
+     * @return a writer of symbols to <code>out</code>
+     */
+    public static SequenceEventWriter symbols( final OutputStream out )
+    {
+        return new SequenceEventWriter( out, true );
+    }
+
+    private void writeEvent( final long start, final long end, final byte symbol )
+            throws IOException
+    {
+        if ( last == UNKNOWN )
+        {
+            heldStart = start;
+            heldEnd = end;
+            heldSymbol = symbol;
+            last = end;
+            return;
+        }
+
+        assert start >= last && end >= start;
+
+        int size;
+        if ( symbols )
+        {
+            final int code = SYMBOL_CODES[symbol & 0xFF];
+            size = writeVarLong( 0, ( start - last ) << SYMBOL_CODE_BITS | code );
+            if ( code == 0 )
+                event[size++] = symbol;
+        } else
+        {
+            size = writeVarLong( 0, start - last );
+            size = writeVarLong( size, end - start );
+        }
+        out.write( event, 0, size );
+
+        last = end;
+    }
+
+    /**
+     * Writes the symbol <code>symbol</code> found at <code>position</code>.
+     */
+    public void writeSymbol( final long position, final byte symbol ) throws IOException
+    {
+        writeEvent( position, position + 1, symbol );
+    }
+
+    /**
+     * Writes <code>value</code> into the event from <code>size</code> on,
+     * seven bits at a time from the lowest.
+     *
+     * @return the size of the event with it
+     */
+    private int writeVarLong( int size, long value )
+    {
+        while ( ( value & ~0x7FL ) != 0 )
+        {
+            event[size++] = (byte) ( value | 0x80 );
+            value >>>= 7;
+        }
+        event[size++] = (byte) value;
+        return size;
+    }
+}
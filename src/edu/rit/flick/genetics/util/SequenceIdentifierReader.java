@@ -0,0 +1,237 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static edu.rit.flick.genetics.util.SequenceIdentifierWriter.DELTA;
+import static edu.rit.flick.genetics.util.SequenceIdentifierWriter.MATCH;
+import static edu.rit.flick.genetics.util.SequenceIdentifierWriter.NUMBER;
+import static edu.rit.flick.genetics.util.SequenceIdentifierWriter.SAME_LAYOUT;
+import static edu.rit.flick.genetics.util.SequenceIdentifierWriter.STRING;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import edu.rit.flick.genetics.util.SequenceIdentifierWriter.Fields;
+
+/**
+ * Reads the identifiers written by a {@link SequenceIdentifierWriter} back in
+ * order, one at a time, putting each together field by field in a buffer that
+ * is kept from one to the next.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class SequenceIdentifierReader implements Closeable
+{
+    /**
+     * The number of bytes read at a time from each column.
+     */
+    private static final int BUFFER_SIZE = 1 << 12;
+
+    private final Column     layout;
+    private final Column []  columns;
+
+    private Fields           current     = new Fields(), previous = new Fields();
+    private boolean          started     = false;
+
+    /**
+     * Reads the layouts and kinds of fields from <code>layout</code> and the
+     * values of the fields from <code>columns</code>.
+     */
+    public SequenceIdentifierReader( final InputStream layout, final InputStream [] columns )
+    {
+        this.layout = new Column( layout );
+        this.columns = new Column [columns.length];
+        for ( int c = 0; c < columns.length; c++ )
+            this.columns[c] = new Column( columns[c] );
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        layout.in.close();
+        for ( final Column column : columns )
+            column.in.close();
+    }
+
+    /**
+     * @return the bytes of the last identifier read, from index
+     *         <code>0</code> up to its {@link #getLength() length}
+     */
+    public byte [] getIdentifier()
+    {
+        return previous.bytes;
+    }
+
+    /**
+     * @return the length of the last identifier read
+     */
+    public int getLength()
+    {
+        return previous.ends[previous.count - 1];
+    }
+
+    /**
+     * Reads the next identifier.
+     *
+     * @return <code>false</code> if there are no more, leaving the last one as
+     *         it was
+     */
+    public boolean next() throws IOException
+    {
+        if ( !layout.fill() )
+            return false;
+
+        final Fields before = started ? previous : null;
+        final Fields identifier = current;
+        if ( layout.readByte() == SAME_LAYOUT )
+        {
+            if ( before == null )
+                throw new IOException( "Sequence identifier layout missing" );
+            identifier.reserveFields( before.count );
+            identifier.count = before.count;
+            System.arraycopy( before.delimiters, 0, identifier.delimiters, 0, before.count );
+        } else
+        {
+            identifier.count = (int) layout.readVarLong();
+            identifier.reserveFields( identifier.count );
+            for ( int d = 0; d < identifier.count - 1; d++ )
+                identifier.delimiters[d] = layout.readByte();
+        }
+
+        int length = 0;
+        for ( int f = 0; f < identifier.count; f++ )
+        {
+            final Column column = columns[SequenceIdentifierWriter.column( f )];
+            identifier.starts[f] = length;
+            final byte kind = layout.readByte();
+            if ( kind == MATCH )
+            {
+                final int match = before.ends[f] - before.starts[f];
+                identifier.reserveBytes( length + match + 1 );
+                System.arraycopy( before.bytes, before.starts[f], identifier.bytes, length,
+                    match );
+                identifier.numbers[f] = before.numbers[f];
+                length += match;
+            } else if ( kind == DELTA || kind == NUMBER )
+            {
+                long number = column.readVarLong();
+                if ( kind == DELTA )
+                    number = before.numbers[f] + ( number >>> 1 ^ -( number & 1 ) );
+                identifier.numbers[f] = number;
+                length = writeNumber( identifier, length, number );
+            } else if ( kind == STRING )
+            {
+                final int string = (int) column.readVarLong();
+                identifier.reserveBytes( length + string + 1 );
+                column.readBytes( identifier.bytes, length, string );
+                identifier.numbers[f] = -1;
+                length += string;
+            } else throw new IOException( "Unknown sequence identifier field " + kind );
+
+            identifier.ends[f] = length;
+            if ( f < identifier.count - 1 )
+                identifier.bytes[length++] = identifier.delimiters[f];
+        }
+
+        current = previous;
+        previous = identifier;
+        started = true;
+        return true;
+    }
+
+    /**
+     * Writes the digits of <code>number</code> into the bytes of
+     * <code>identifier</code> from <code>offset</code> on.
+     *
+     * @return the offset just past them
+     */
+    private static int writeNumber( final Fields identifier, final int offset, long number )
+    {
+        int digits = 1;
+        for ( long n = number; n >= 10; n /= 10 )
+            digits++;
+
+        identifier.reserveBytes( offset + digits + 1 );
+        for ( int d = offset + digits - 1; d >= offset; d-- )
+        {
+            identifier.bytes[d] = (byte) ( '0' + number % 10 );
+            number /= 10;
+        }
+        return offset + digits;
+    }
+
+    /**
+     * Reads one column through a buffer of its own.
+     */
+    private static class Column
+    {
+        private final InputStream in;
+
+        private final byte []     buffer = new byte [BUFFER_SIZE];
+        private int               position, limit;
+
+        Column( final InputStream in )
+        {
+            this.in = in;
+        }
+
+        /**
+         * @return whether there is anything left to read in the buffer, once
+         *         it is refilled if need be
+         */
+        boolean fill() throws IOException
+        {
+            while ( position == limit )
+            {
+                limit = in.read( buffer );
+                position = 0;
+                if ( limit < 0 )
+                {
+                    limit = 0;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        byte readByte() throws IOException
+        {
+            if ( !fill() )
+                throw new EOFException( "Sequence identifier cut short" );
+            return buffer[position++];
+        }
+
+        void readBytes( final byte [] bytes, int offset, int length ) throws IOException
+        {
+            while ( length > 0 )
+            {
+                if ( !fill() )
+                    throw new EOFException( "Sequence identifier cut short" );
+                final int read = Math.min( length, limit - position );
+                System.arraycopy( buffer, position, bytes, offset, read );
+                position += read;
+                offset += read;
+                length -= read;
+            }
+        }
+
+        long readVarLong() throws IOException
+        {
+            long value = 0;
+            for ( int shift = 0;; shift += 7 )
+            {
+                final byte b = readByte();
+                value |= (long) ( b & 0x7F ) << shift;
+                if ( b >= 0 )
+                    return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Writes sequence identifiers split into fields, each field ending at a byte
+ * that is neither a letter nor a digit. The layout of every identifier, the
+ * number of its fields and the bytes between them, is written only when it
+ * differs from the identifier before it, followed by the kind of each field:
+ * <ul>
+ * <li>{@link #MATCH}, the same as the field of the identifier before it,
+ * <li>{@link #DELTA}, a number written as its difference from the number in
+ * the field of the identifier before it,
+ * <li>{@link #NUMBER}, a number written as a varint, or
+ * <li>{@link #STRING}, its length and bytes.
+ * </ul>
+ * The value of each field is written to a column of its own, so fields such as
+ * the tile and coordinates of an Illumina read name deflate apart.
+ * <p>
+ * A writer for one group of records does not know the identifier before its
+ * first, so it holds the first back until it is
+ * {@link #merge(SequenceIdentifierWriter) merged}.
+ *
+ * @author Alex Aiezza
+ *
+ * @see SequenceIdentifierReader
+ */
+public class SequenceIdentifierWriter implements Closeable
+{
+    /**
+     * The most columns written; fields past the last share it.
+     */
+    public static final int         MAX_COLUMNS     = 16;
+
+    /*
+     * Layouts of an identifier
+     */
+    static final byte               SAME_LAYOUT     = 0, NEW_LAYOUT = 1;
+
+    /*
+     * Kinds of field
+     */
+    static final byte               MATCH           = 0, DELTA = 1, NUMBER = 2, STRING = 3;
+
+    /**
+     * The most digits of a field written as a number.
+     */
+    static final int                MAX_DIGITS      = 18;
+
+    /**
+     * The most bytes a varint is written as.
+     */
+    private static final int        MAX_VARINT_SIZE = Long.SIZE / 7 + 1;
+
+    private static final boolean [] DELIMITERS      = new boolean [1 << Byte.SIZE];
+
+    static
+    {
+        for ( int b = 0; b < DELIMITERS.length; b++ )
+            DELIMITERS[b] = !( b >= '0' && b <= '9' || b >= 'A' && b <= 'Z' ||
+                    b >= 'a' && b <= 'z' );
+    }
+
+    /**
+     * @return the column the values of field <code>field</code> are written
+     *         to
+     */
+    static int column( final int field )
+    {
+        return Math.min( field, MAX_COLUMNS - 1 );
+    }
+
+    private final OutputStream              layout;
+    private final List<OutputStream>        columns = new ArrayList<OutputStream>();
+    private final IntFunction<OutputStream> columnFactory;
+
+    private final byte []                   varint  = new byte [MAX_VARINT_SIZE];
+    private byte []                         record  = new byte [MAX_VARINT_SIZE];
+
+    private Fields                          current = new Fields(), previous = new Fields();
+    private boolean                         started = false;
+
+    // The first identifier of a group of records, held back until it is merged
+    private boolean                         holding = false;
+    private Fields                          held;
+
+    /**
+     * Writes the layouts and kinds of fields to <code>layout</code>, and the
+     * values of the fields to the columns made by <code>columnFactory</code>
+     * as they are needed.
+     */
+    public SequenceIdentifierWriter(
+            final OutputStream layout,
+            final IntFunction<OutputStream> columnFactory )
+    {
+        this.layout = layout;
+        this.columnFactory = columnFactory;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        layout.close();
+        for ( final OutputStream column : columns )
+            column.close();
+    }
+
+    /**
+     * Writes <code>identifier</code> against the one before it.
+     */
+    private void encode( final Fields identifier ) throws IOException
+    {
+        final Fields before = started ? previous : null;
+        final int fields = identifier.count;
+
+        // Kinds of field, after the layout if it changed
+        if ( record.length < fields * 2 + MAX_VARINT_SIZE + 1 )
+            record = new byte [fields * 2 + MAX_VARINT_SIZE + 1];
+        int size = 0;
+        if ( before != null && sameLayout( before, identifier ) )
+            record[size++] = SAME_LAYOUT;
+        else
+        {
+            record[size++] = NEW_LAYOUT;
+            size = writeVarLong( record, size, fields );
+            System.arraycopy( identifier.delimiters, 0, record, size, fields - 1 );
+            size += fields - 1;
+        }
+
+        for ( int f = 0; f < fields; f++ )
+        {
+            final OutputStream column = getColumn( column( f ) );
+            final long number = identifier.numbers[f];
+            final boolean inBefore = before != null && f < before.count;
+            if ( inBefore && identifier.equals( f, before ) )
+                record[size++] = MATCH;
+            else if ( number >= 0 && inBefore && before.numbers[f] >= 0 )
+            {
+                record[size++] = DELTA;
+                final long delta = number - before.numbers[f];
+                column.write( varint, 0, writeVarLong( varint, 0, delta << 1 ^ delta >> 63 ) );
+            } else if ( number >= 0 )
+            {
+                record[size++] = NUMBER;
+                column.write( varint, 0, writeVarLong( varint, 0, number ) );
+            } else
+            {
+                record[size++] = STRING;
+                final int length = identifier.ends[f] - identifier.starts[f];
+                column.write( varint, 0, writeVarLong( varint, 0, length ) );
+                column.write( identifier.bytes, identifier.starts[f], length );
+            }
+        }
+        layout.write( record, 0, size );
+    }
+
+    private OutputStream getColumn( final int column )
+    {
+        while ( columns.size() <= column )
+            columns.add( columnFactory.apply( columns.size() ) );
+        return columns.get( column );
+    }
+
+    /**
+     * @return the number of columns written to
+     */
+    public int getColumns()
+    {
+        return columns.size();
+    }
+
+    /**
+     * Writes the identifiers of <code>group</code>, the group of records
+     * following those written so far, after them.
+     */
+    public void merge( final SequenceIdentifierWriter group ) throws IOException
+    {
+        if ( group.held == null )
+            return;
+
+        encode( group.held );
+        ( (ByteBufferOutputStream) group.layout ).writeTo( layout );
+        for ( int c = 0; c < group.columns.size(); c++ )
+            ( (ByteBufferOutputStream) group.columns.get( c ) ).writeTo( getColumn( c ) );
+
+        final Fields last = previous;
+        previous = group.previous;
+        group.previous = last;
+        started = true;
+    }
+
+    /**
+     * @return whether <code>a</code> and <code>b</code> have the same
+     *         layout
+     */
+    private static boolean sameLayout( final Fields a, final Fields b )
+    {
+        if ( a.count != b.count )
+            return false;
+        for ( int d = 0; d < a.count - 1; d++ )
+            if ( a.delimiters[d] != b.delimiters[d] )
+                return false;
+        return true;
+    }
+
+    /**
+     * Starts writing a group of records. The identifier before the group is
+     * not known until it is merged.
+     */
+    public void startRecordGroup()
+    {
+        started = false;
+        holding = true;
+        held = null;
+    }
+
+    /**
+     * Writes the identifier of <code>length</code> bytes at
+     * <code>offset</code> in <code>identifier</code>, without its line break.
+     */
+    public void write( final byte [] identifier, final int offset, final int length )
+            throws IOException
+    {
+        current.parse( identifier, offset, length );
+        if ( holding )
+        {
+            held = new Fields();
+            held.parse( identifier, offset, length );
+            holding = false;
+        } else encode( current );
+
+        final Fields written = current;
+        current = previous;
+        previous = written;
+        started = true;
+    }
+
+    /**
+     * Writes <code>value</code> into <code>bytes</code> from
+     * <code>size</code> on, seven bits at a time from the lowest.
+     *
+     * @return the size of <code>bytes</code> with it
+     */
+    private static int writeVarLong( final byte [] bytes, int size, long value )
+    {
+        while ( ( value & ~0x7FL ) != 0 )
+        {
+            bytes[size++] = (byte) ( value | 0x80 );
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+        return size;
+    }
+
+    /**
+     * The fields of one identifier.
+     */
+    static class Fields
+    {
+        byte [] bytes      = new byte [1 << 8];
+        int     count;
+        int []  starts     = new int [16], ends = new int [16];
+        long [] numbers    = new long [16];
+        byte [] delimiters = new byte [16];
+
+        /**
+         * Adds the field from <code>start</code> to <code>end</code> in the
+         * bytes, with the number it is, or <code>-1</code> if it is none.
+         */
+        void add( final int start, final int end, final long number )
+        {
+            reserveFields( count + 1 );
+            starts[count] = start;
+            ends[count] = end;
+            numbers[count] = number;
+            count++;
+        }
+
+        /**
+         * @return whether field <code>field</code> holds the same bytes as it
+         *         does in <code>other</code>
+         */
+        boolean equals( final int field, final Fields other )
+        {
+            final int length = ends[field] - starts[field];
+            if ( length != other.ends[field] - other.starts[field] )
+                return false;
+            for ( int b = 0; b < length; b++ )
+                if ( bytes[starts[field] + b] != other.bytes[other.starts[field] + b] )
+                    return false;
+            return true;
+        }
+
+        /**
+         * Splits the identifier of <code>length</code> bytes at
+         * <code>offset</code> in <code>identifier</code> into fields.
+         */
+        void parse( final byte [] identifier, final int offset, final int length )
+        {
+            reserveBytes( length );
+            System.arraycopy( identifier, offset, bytes, 0, length );
+
+            count = 0;
+            int start = 0;
+            long number = 0;
+            for ( int i = 0;; i++ )
+            {
+                if ( i == length || DELIMITERS[bytes[i] & 0xFF] )
+                {
+                    // Leading zeros would be lost from a number
+                    final int digits = i - start;
+                    add( start, i, number < 0 || digits == 0 || digits > MAX_DIGITS ||
+                            digits > 1 && bytes[start] == '0' ? -1 : number );
+                    if ( i == length )
+                        return;
+                    delimiters[count - 1] = bytes[i];
+                    start = i + 1;
+                    number = 0;
+                } else if ( number >= 0 )
+                    number = bytes[i] >= '0' && bytes[i] <= '9' && i - start < MAX_DIGITS
+                            ? number * 10 + bytes[i] - '0' : -1;
+            }
+        }
+
+        /**
+         * Makes room for <code>length</code> bytes, keeping those there are.
+         */
+        void reserveBytes( final int length )
+        {
+            if ( bytes.length < length )
+                bytes = Arrays.copyOf( bytes, Math.max( length, bytes.length * 2 ) );
+        }
+
+        /**
+         * Makes room for <code>fields</code> fields, keeping those there are.
+         */
+        void reserveFields( final int fields )
+        {
+            if ( starts.length < fields )
+            {
+                final int size = Math.max( fields, starts.length * 2 );
+                starts = Arrays.copyOf( starts, size );
+                ends = Arrays.copyOf( ends, size );
+                numbers = Arrays.copyOf( numbers, size );
+                delimiters = Arrays.copyOf( delimiters, size );
+            }
+        }
+    }
+}
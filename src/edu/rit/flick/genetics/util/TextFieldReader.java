@@ -0,0 +1,185 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads the numbers and fields of a text file a byte at a time, through a
+ * buffer of its own and without creating a <code>String</code> for any of
+ * them.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class TextFieldReader implements Closeable
+{
+    /**
+     * The number of bytes read at a time.
+     */
+    private static final int     BUFFER_SIZE = 1 << 14;
+
+    /**
+     * The value of every byte as a digit, or <code>-1</code> if it is none.
+     */
+    private static final byte [] DIGITS      = new byte [1 << Byte.SIZE];
+
+    static
+    {
+        Arrays.fill( DIGITS, (byte) -1 );
+        for ( int digit = 0; digit < 16; digit++ )
+        {
+            DIGITS[Character.forDigit( digit, 16 )] = (byte) digit;
+            DIGITS[Character.toUpperCase( Character.forDigit( digit, 16 ) )] = (byte) digit;
+        }
+    }
+
+    private final InputStream in;
+
+    private final byte []     buffer = new byte [BUFFER_SIZE];
+    private int               position, limit;
+
+    private byte []           field  = new byte [1 << 8];
+
+    public TextFieldReader( final InputStream in )
+    {
+        this.in = in;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+    /**
+     * @return whether there is anything left to read in the buffer, once it
+     *         is refilled if need be
+     */
+    private boolean fill() throws IOException
+    {
+        while ( position == limit )
+        {
+            limit = in.read( buffer );
+            position = 0;
+            if ( limit < 0 )
+            {
+                limit = 0;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the bytes of the last field read, from index <code>0</code> up
+     *         to the length it was read with
+     */
+    public byte [] getField()
+    {
+        return field;
+    }
+
+    /**
+     * @return whether there is anything left to read
+     */
+    public boolean hasNext() throws IOException
+    {
+        return fill();
+    }
+
+    /**
+     * @return the next byte, or <code>-1</code> if there is none
+     */
+    public int read() throws IOException
+    {
+        return fill() ? buffer[position++] & 0xFF : -1;
+    }
+
+    /**
+     * Reads the bytes up to <code>delimiter</code>, or to the end of the file,
+     * into the {@link #getField() field}. The delimiter is skipped.
+     *
+     * @return the length of the field
+     */
+    public int readField( final byte delimiter ) throws IOException
+    {
+        int length = 0;
+        while ( fill() )
+        {
+            int end = position;
+            while ( end < limit && buffer[end] != delimiter )
+                end++;
+
+            if ( length + end - position > field.length )
+                field = Arrays.copyOf( field,
+                    Math.max( field.length * 2, length + end - position ) );
+            System.arraycopy( buffer, position, field, length, end - position );
+            length += end - position;
+
+            position = end;
+            if ( end < limit )
+            {
+                position++;
+                break;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Reads the digits of a number in <code>radix</code>, stopping at the
+     * first byte that is not one.
+     *
+     * @throws IOException
+     *             if there are no digits
+     */
+    public long readNumber( final int radix ) throws IOException
+    {
+        long value = 0;
+        int digits = 0;
+        while ( fill() )
+        {
+            final int digit = DIGITS[buffer[position] & 0xFF];
+            if ( digit < 0 || digit >= radix )
+                break;
+            value = value * radix + digit;
+            position++;
+            digits++;
+        }
+
+        if ( digits == 0 )
+            throw new IOException( "Expected a number at " +
+                    ( fill() ? "'" + (char) buffer[position] + "'" : "the end of the file" ) );
+        return value;
+    }
+
+    /**
+     * Skips the next byte if it is <code>b</code>.
+     *
+     * @return whether it was skipped
+     */
+    public boolean skip( final byte b ) throws IOException
+    {
+        if ( !fill() || buffer[position] != b )
+            return false;
+        position++;
+        return true;
+    }
+
+    /**
+     * Skips any whitespace and control characters.
+     */
+    public void skipWhitespace() throws IOException
+    {
+        while ( fill() && ( buffer[position] & 0xFF ) <= ' ' )
+            position++;
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static edu.rit.flick.genetics.util.ZipArchiveWriter.getPartName;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import it.unimi.dsi.io.ByteBufferInputStream;
+import net.lingala.zip4j.core.ZipFile;
+import net.lingala.zip4j.exception.ZipException;
+import net.lingala.zip4j.model.FileHeader;
+import net.lingala.zip4j.util.Zip4jConstants;
+
+/**
+ * Reads the files of an archive written by {@link ZipArchiveWriter} in place,
+ * without extracting them. Stored entries are mapped straight from the
+ * archive, unless {@link IoMode#MMAP} is not used; deflated entries are
+ * inflated as they are read.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class ZipArchiveReader implements Closeable
+{
+    /*
+     * The fixed size of a local file header and where the lengths of the
+     * variable fields that follow it are kept.
+     */
+    private static final int  LOCAL_FILE_HEADER_SIZE = 30, FILE_NAME_LENGTH_OFFSET = 26,
+            EXTRA_FIELD_LENGTH_OFFSET = 28;
+
+    private final ZipFile                 zipFile;
+
+    private final Map<String, FileHeader> entries = new HashMap<String, FileHeader>();
+
+    private final FileChannel             channel;
+
+    private final boolean                 mapping;
+
+    public ZipArchiveReader( final File file ) throws IOException
+    {
+        this( file, IoMode.MMAP );
+    }
+
+    public ZipArchiveReader( final File file, final IoMode ioMode ) throws IOException
+    {
+        try
+        {
+            zipFile = new ZipFile( file );
+            for ( final Object entry : zipFile.getFileHeaders() )
+                entries.put( ( (FileHeader) entry ).getFileName(), (FileHeader) entry );
+        } catch ( final ZipException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+        channel = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+        mapping = ioMode == IoMode.MMAP;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Maps the data of a stored entry, which starts after its local file
+     * header. The data is unmapped once the stream is closed.
+     */
+    private InputStream map( final FileHeader entry ) throws IOException
+    {
+        final ByteBuffer localHeader = ByteBuffer.allocate( LOCAL_FILE_HEADER_SIZE )
+                .order( ByteOrder.LITTLE_ENDIAN );
+        while ( localHeader.hasRemaining() )
+            if ( channel.read( localHeader,
+                entry.getOffsetLocalHeader() + localHeader.position() ) < 0 )
+                throw new IOException( "Truncated entry " + entry.getFileName() );
+
+        final long start = entry.getOffsetLocalHeader() + LOCAL_FILE_HEADER_SIZE +
+                ( localHeader.getShort( FILE_NAME_LENGTH_OFFSET ) & 0xFFFF ) +
+                ( localHeader.getShort( EXTRA_FIELD_LENGTH_OFFSET ) & 0xFFFF );
+
+        final ByteBuffer data = channel.map( MapMode.READ_ONLY, start,
+            entry.getCompressedSize() );
+        return new ByteBufferInputStream( data )
+        {
+            @Override
+            public void close() throws IOException
+            {
+                super.close();
+                MappedBuffers.unmap( data );
+            }
+        };
+    }
+
+    /**
+     * @return the entry <code>name</code>, or <code>null</code> if there is
+     *         none
+     */
+    public InputStream openEntry( final String name ) throws IOException
+    {
+        try
+        {
+            final FileHeader entry = entries.get( name );
+            if ( entry == null )
+                return null;
+
+            if ( mapping && entry.getCompressionMethod() == Zip4jConstants.COMP_STORE &&
+                    !entry.isEncrypted() && entry.getCompressedSize() <= Integer.MAX_VALUE )
+                return map( entry );
+            return zipFile.getInputStream( entry );
+        } catch ( final ZipException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Opens a file written in parts by {@link ZipArchiveWriter} as one stream,
+     * opening each part once the one before it has been read. Every part is
+     * found in a map of the entries, so a file of many parts is opened as
+     * quickly as a file of one.
+     */
+    public InputStream openFile( final String name ) throws IOException
+    {
+        final InputStream first = openEntry( name );
+        if ( first == null )
+            throw new FileNotFoundException( name );
+
+        return new SequenceInputStream( new Enumeration<InputStream>()
+        {
+            private int         part = 0;
+            private InputStream next = first;
+
+            @Override
+            public boolean hasMoreElements()
+            {
+                if ( next == null )
+                    try
+                    {
+                        next = openEntry( getPartName( name, part ) );
+                    } catch ( final IOException e )
+                    {
+                        throw new UncheckedIOException( e );
+                    }
+                return next != null;
+            }
+
+            @Override
+            public InputStream nextElement()
+            {
+                if ( !hasMoreElements() )
+                    throw new NoSuchElementException();
+                final InputStream current = next;
+                next = null;
+                part++;
+                return current;
+            }
+        } );
+    }
+}
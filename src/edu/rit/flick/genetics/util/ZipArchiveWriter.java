@@ -0,0 +1,139 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.lingala.zip4j.exception.ZipException;
+import net.lingala.zip4j.io.ZipOutputStream;
+import net.lingala.zip4j.model.ZipParameters;
+import net.lingala.zip4j.util.Zip4jConstants;
+
+/**
+ * Writes files straight into a zip archive while they are being produced.
+ * <p>
+ * A zip archive holds one entry after another, so a file is kept in memory
+ * until {@link #PART_SIZE} bytes of it are written and is then written as an
+ * entry of its own. A file is therefore stored as one or more parts, named by
+ * {@link #getPartName(String, int)}, that are read back one after the other.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class ZipArchiveWriter implements Closeable
+{
+    /**
+     * The most of a file kept in memory before it is written as a part.
+     */
+    public static final int                    PART_SIZE = 1 << 23;
+
+    /**
+     * @return the name of the entry holding part <code>part</code> of file
+     *         <code>name</code>; the first part is named after the file
+     */
+    public static String getPartName( final String name, final int part )
+    {
+        return part == 0 ? name : name + "." + part;
+    }
+
+    private final ZipOutputStream              zip;
+
+    private final List<ByteBufferOutputStream> files     = new ArrayList<>();
+
+    public ZipArchiveWriter( final File file ) throws IOException
+    {
+        this( file, IoMode.CHANNEL );
+    }
+
+    /**
+     * Writes the archive in <code>ioMode</code>. An archive grows as it is
+     * written, so it is never mapped; {@link IoMode#MMAP} writes it through a
+     * channel instead.
+     */
+    public ZipArchiveWriter( final File file, final IoMode ioMode ) throws IOException
+    {
+        zip = new ZipOutputStream( new FileChannelOutputStream( file,
+                ioMode == IoMode.MMAP ? IoMode.CHANNEL : ioMode ) );
+    }
+
+    /**
+     * Writes whatever is left of every file and the end of the archive.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        for ( final ByteBufferOutputStream file : files )
+            file.close();
+
+        try
+        {
+            zip.finish();
+        } catch ( final ZipException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+        zip.close();
+    }
+
+    /**
+     * Creates a file in this archive, written in parts as it fills up and
+     * finished when it or this archive is closed.
+     */
+    public ByteBufferOutputStream createFile( final String name )
+    {
+        return createFile( name, true );
+    }
+
+    private ByteBufferOutputStream createFile( final String name, final boolean deflated )
+    {
+        final AtomicInteger parts = new AtomicInteger();
+        final ByteBufferOutputStream file = ByteBufferOutputStream.drain( PART_SIZE,
+            bytes -> writePart( getPartName( name, parts.getAndIncrement() ), bytes,
+                deflated ) );
+        files.add( file );
+        return file;
+    }
+
+    /**
+     * Creates a file like {@link #createFile(String)} whose parts are stored
+     * as they are, for data that would not deflate, so they can be mapped
+     * straight from the archive by {@link ZipArchiveReader}.
+     */
+    public ByteBufferOutputStream createStoredFile( final String name )
+    {
+        return createFile( name, false );
+    }
+
+    private synchronized void writePart(
+            final String name,
+            final ByteBuffer bytes,
+            final boolean deflated ) throws IOException
+    {
+        final ZipParameters zParams = new ZipParameters();
+        zParams.setSourceExternalStream( true );
+        zParams.setFileNameInZip( name );
+        zParams.setCompressionMethod( deflated && bytes.hasRemaining()
+                ? Zip4jConstants.COMP_DEFLATE : Zip4jConstants.COMP_STORE );
+        zParams.setCompressionLevel( Zip4jConstants.DEFLATE_LEVEL_NORMAL );
+
+        try
+        {
+            zip.putNextEntry( null, zParams );
+            zip.write( bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining() );
+            zip.closeEntry();
+        } catch ( final ZipException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+    }
+}
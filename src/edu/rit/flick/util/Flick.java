@@ -6,16 +6,28 @@
  */
 package edu.rit.flick.util;
 
+import static edu.rit.flick.config.DefaultOptionSet.FORCE_FLAG;
 import static edu.rit.flick.config.DefaultOptionSet.HELP_FLAG;
+import static edu.rit.flick.config.DefaultOptionSet.INPUT_PATH;
+import static edu.rit.flick.config.DefaultOptionSet.OUTPUT_PATH;
+import static edu.rit.flick.config.DefaultOptionSet.STANDARD_STREAM_PATH;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.file.FileAlreadyExistsException;
+
+import com.google.common.io.Files;
 
 import edu.rit.flick.DefaultFlickFile;
+import edu.rit.flick.FileDeflator;
 import edu.rit.flick.FlickFile;
 import edu.rit.flick.config.Configuration;
 import edu.rit.flick.config.ConfigurationProcessor;
 import edu.rit.flick.config.DeflationConfiguration;
+import edu.rit.flick.config.FileArchiverExtensionRegistry;
 
 /**
  * @author Alex Aiezza
@@ -23,7 +35,11 @@ import edu.rit.flick.config.DeflationConfiguration;
  */
 public class Flick
 {
-    public static final String  FLICK_USAGE_FILE = "FlickUsage.txt";
+    public static final String  FLICK_USAGE_FILE                 = "FlickUsage.txt";
+
+    private static final String STANDARD_INPUT_NEEDS_OUTPUT_FILE = "an OUTPUT_FILE ending in a FASTA/Q deflated extension is needed to deflate the standard input";
+
+    private static final String CANT_OVERWRITE_EXISTING_FILE     = "\n  can't overwrite existing file without --force flag";
 
     /*
      * USAGE statement
@@ -52,6 +68,12 @@ public class Flick
 
         try
         {
+            if ( STANDARD_STREAM_PATH.equals( configuration.getOption( INPUT_PATH ) ) )
+            {
+                deflateStandardInput( configuration );
+                return;
+            }
+
             final FlickFile flickFile = new DefaultFlickFile( configuration );
 
             flickFile.deflate();
@@ -62,6 +84,28 @@ public class Flick
         }
     }
 
+    /**
+     * Deflates the standard input as it arrives, choosing the format by the
+     * extension of the output file.
+     */
+    private static void deflateStandardInput( final Configuration configuration )
+            throws IOException
+    {
+        final File fileOut = configuration.optionIsNull( OUTPUT_PATH ) ? null
+                : new File( (String) configuration.getOption( OUTPUT_PATH ) );
+        final FileDeflator fileDeflator = fileOut == null ? null
+                : FileArchiverExtensionRegistry.getInstance().getFileDeflatorForDeflatedExtension(
+                    "." + Files.getFileExtension( fileOut.getPath() ) );
+        if ( fileDeflator == null )
+            throw new IllegalArgumentException( STANDARD_INPUT_NEEDS_OUTPUT_FILE );
+
+        if ( fileOut.exists() && !configuration.getFlag( FORCE_FLAG ) )
+            throw new FileAlreadyExistsException( STANDARD_STREAM_PATH, fileOut.getPath(),
+                    CANT_OVERWRITE_EXISTING_FILE );
+
+        fileDeflator.deflate( configuration, Channels.newChannel( System.in ), fileOut );
+    }
+
     static final void USAGE()
     {
         System.out.printf( USAGE_FORMAT );
@@ -7,14 +7,29 @@
 package edu.rit.flick.util;
 
 import static edu.rit.flick.config.DefaultOptionSet.HELP_FLAG;
+import static edu.rit.flick.config.DefaultOptionSet.INPUT_PATH;
+import static edu.rit.flick.config.InflationOptionSet.STANDARD_OUTPUT_FLAG;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
 
+import com.google.common.io.Files;
+
+import edu.rit.flick.AbstractFlickFile;
 import edu.rit.flick.DefaultFlickFile;
+import edu.rit.flick.FileInflator;
 import edu.rit.flick.FlickFile;
 import edu.rit.flick.config.Configuration;
 import edu.rit.flick.config.ConfigurationProcessor;
+import edu.rit.flick.config.FileArchiverExtensionRegistry;
 import edu.rit.flick.config.InflationConfiguration;
 
 /**
@@ -23,7 +38,11 @@ import edu.rit.flick.config.InflationConfiguration;
  */
 public class Unflick
 {
-    public static final String  UNFLICK_USAGE_FILE = "UnflickUsage.txt";
+    public static final String  UNFLICK_USAGE_FILE                    = "UnflickUsage.txt";
+
+    private static final String STANDARD_OUTPUT_NEEDS_FAST_FLICK_FILE = "only a FLICK_FILE ending in a FASTA/Q deflated extension can be written to the standard output";
+
+    private static final String CANT_WRITE_STANDARD_OUTPUT            = "can't write to the standard output";
 
     /*
      * USAGE statement
@@ -52,6 +71,12 @@ public class Unflick
 
         try
         {
+            if ( configuration.getFlag( STANDARD_OUTPUT_FLAG ) )
+            {
+                inflateToStandardOutput( configuration );
+                return;
+            }
+
             final FlickFile flickFile = new DefaultFlickFile( configuration );
 
             flickFile.inflate();
@@ -59,9 +84,67 @@ public class Unflick
         } catch ( final Exception e )
         {
             System.err.println( e.getMessage().trim() );
+
+            // Whatever reads the standard output must know it did not get
+            // the whole file
+            if ( configuration.getFlag( STANDARD_OUTPUT_FLAG ) )
+                System.exit( 1 );
         }
     }
 
+    /**
+     * Inflates a FASTA/Q flick file to the standard output as it is decoded.
+     */
+    private static void inflateToStandardOutput( final Configuration configuration )
+            throws IOException
+    {
+        final File fileIn = new File( (String) configuration.getOption( INPUT_PATH ) );
+        if ( !fileIn.exists() )
+            throw new NoSuchFileException( fileIn.getPath(), null,
+                    AbstractFlickFile.FILE_NOT_FOUND_EXCEPTION_MESSAGE );
+
+        final FileInflator fileInflator = FileArchiverExtensionRegistry.getInstance()
+                .getFileInflator( "." + Files.getFileExtension( fileIn.getPath() ) );
+        if ( fileInflator == null )
+            throw new IllegalArgumentException( STANDARD_OUTPUT_NEEDS_FAST_FLICK_FILE );
+
+        try
+        {
+            fileInflator.inflate( configuration, fileIn, standardOutput() );
+        } catch ( final UncheckedIOException e )
+        {
+            throw e.getCause();
+        }
+        System.out.flush();
+    }
+
+    /**
+     * The standard output as a channel that fails once it can't be written,
+     * such as when the reader of a pipe exits, rather than going on silently
+     * like {@link PrintStream}.
+     */
+    private static WritableByteChannel standardOutput()
+    {
+        final PrintStream out = System.out;
+        return Channels.newChannel( new OutputStream()
+        {
+            @Override
+            public void write( final byte [] b, final int offset, final int length )
+                    throws IOException
+            {
+                out.write( b, offset, length );
+                if ( out.checkError() )
+                    throw new IOException( CANT_WRITE_STANDARD_OUTPUT );
+            }
+
+            @Override
+            public void write( final int b ) throws IOException
+            {
+                write( new byte [] { (byte) b }, 0, 1 );
+            }
+        } );
+    }
+
     static final void USAGE()
     {
         System.out.printf( USAGE_FORMAT );
@@ -0,0 +1,158 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import edu.rit.flick.genetics.util.IoMode;
+import edu.rit.flick.genetics.util.ZipArchiveWriter;
+
+/**
+ * Deflates FASTA/Q files and compares the archives they are deflated to, for
+ * the tests that deflate the same file in different ways.
+ *
+ * @author Alex Aiezza
+ *
+ */
+final class FastFileArchives
+{
+    private FastFileArchives()
+    {}
+
+    /**
+     * Asserts both archives hold the same files with the same contents.
+     */
+    static void assertEntriesEqual(
+            final String message,
+            final Map<String, byte []> expected,
+            final Map<String, byte []> actual )
+    {
+        assertEquals( message, expected.keySet(), actual.keySet() );
+
+        for ( final String file : expected.keySet() )
+            assertArrayEquals( message + " " + file, expected.get( file ), actual.get( file ) );
+    }
+
+    /**
+     * Deflates <code>fastFile</code> with <code>deflator</code> to
+     * <code>archive</code>.
+     *
+     * @return the contents of every entry of <code>archive</code> by name
+     */
+    static Map<String, byte []> deflate(
+            final File fastFile,
+            final FastFileDeflator deflator,
+            final File archive ) throws IOException
+    {
+        return deflate( fastFile, deflator, archive, IoMode.CHANNEL );
+    }
+
+    /**
+     * Deflates <code>fastFile</code> with <code>deflator</code> to
+     * <code>archive</code>, written in <code>ioMode</code>.
+     *
+     * @return the contents of every entry of <code>archive</code> by name
+     */
+    static Map<String, byte []> deflate(
+            final File fastFile,
+            final FastFileDeflator deflator,
+            final File archive,
+            final IoMode ioMode ) throws IOException
+    {
+        try ( final ZipArchiveWriter zipArchive = new ZipArchiveWriter( archive, ioMode ) )
+        {
+            deflator.deflateToArchive( fastFile, zipArchive );
+        }
+
+        return entries( archive );
+    }
+
+    /**
+     * @return the contents of every entry of <code>archive</code> by name
+     */
+    static Map<String, byte []> entries( final File archive ) throws IOException
+    {
+        final Map<String, byte []> entries = new TreeMap<String, byte []>();
+        try ( final ZipFile zipFile = new ZipFile( archive ) )
+        {
+            for ( final ZipEntry entry : Collections.list( zipFile.entries() ) )
+                entries.put( entry.getName(),
+                    ByteStreams.toByteArray( zipFile.getInputStream( entry ) ) );
+        }
+        return entries;
+    }
+
+    /**
+     * Writes records of up to 100000 bases, wrapped at 70, with runs of
+     * <code>N</code>s, soft-masked and IUPAC bases, to <code>fastaFile</code>
+     * until it is at least <code>size</code> bytes.
+     */
+    static void writeSyntheticFasta( final File fastaFile, final int size ) throws IOException
+    {
+        final Random random = new Random( 0 );
+        final String bases = "ACGTACGTNacgtR";
+
+        final StringBuilder fasta = new StringBuilder();
+        for ( int record = 0; fasta.length() < size; record++ )
+        {
+            fasta.append( ">record " ).append( record ).append( '\n' );
+            final int length = random.nextInt( 100000 );
+            char base = 'A';
+            for ( int b = 0; b < length; b++ )
+            {
+                if ( b > 0 && b % 70 == 0 )
+                    fasta.append( '\n' );
+                if ( random.nextInt( 50 ) == 0 )
+                    base = bases.charAt( random.nextInt( bases.length() ) );
+                fasta.append( base );
+            }
+            fasta.append( '\n' );
+        }
+
+        Files.write( fasta.toString().getBytes(), fastaFile );
+    }
+
+    /**
+     * Writes records of 50 to 150 bases, the odd one an <code>N</code>, with
+     * empty comments to <code>fastqFile</code> until it is at least
+     * <code>size</code> bytes.
+     */
+    static void writeSyntheticFastq( final File fastqFile, final int size ) throws IOException
+    {
+        final Random random = new Random( 0 );
+        final String bases = "ACGT";
+
+        final StringBuilder fastq = new StringBuilder();
+        for ( int record = 0; fastq.length() < size; record++ )
+        {
+            fastq.append( "@read." ).append( record ).append( '\n' );
+            final int length = 50 + random.nextInt( 100 );
+            for ( int b = 0; b < length; b++ )
+                fastq.append( random.nextInt( 50 ) == 0 ? 'N'
+                        : bases.charAt( random.nextInt( bases.length() ) ) );
+            fastq.append( "\n+\n" );
+            for ( int b = 0; b < length; b++ )
+                fastq.append( (char) ( '!' + random.nextInt( 41 ) ) );
+            fastq.append( '\n' );
+        }
+
+        Files.write( fastq.toString().getBytes(), fastqFile );
+    }
+}
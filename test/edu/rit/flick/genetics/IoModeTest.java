@@ -0,0 +1,153 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static edu.rit.flick.config.DefaultOptionSet.IO_MODE;
+import static edu.rit.flick.genetics.FastFileArchives.assertEntriesEqual;
+import static edu.rit.flick.genetics.FastFileArchives.writeSyntheticFasta;
+import static edu.rit.flick.genetics.FastFileArchives.writeSyntheticFastq;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeNoException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import edu.rit.flick.config.InflationConfiguration;
+import edu.rit.flick.genetics.util.IoMode;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class IoModeTest
+{
+    private static final String RESOURCES_FOLDER = "test_resources" + File.separator;
+
+    /**
+     * Synthetic inputs span a few transfer buffers and end part way through a
+     * block.
+     */
+    private static final int    SYNTHETIC_SIZE   = IoMode.BUFFER_SIZE * 3 / 2 + 1234;
+
+    private static final int    THREADS          = 4;
+
+    private static final long   GROUP_SIZE       = 100000;
+
+    private File                workingDirectory;
+
+    /**
+     * Every mode must give the same archive as mapping the file, with one
+     * thread and with several, and inflate it back to the same file.
+     */
+    private void assertModesMatch(
+            final File fastFile,
+            final Supplier<FastFileDeflator> deflators,
+            final Supplier<FastFileInflator> inflators ) throws IOException
+    {
+        final Map<String, byte []> expected = deflate( fastFile, deflators.get(),
+            new File( workingDirectory, fastFile.getName() + ".expected" ), IoMode.MMAP, 1 );
+
+        for ( final IoMode ioMode : IoMode.values() )
+        {
+            if ( ioMode == IoMode.DIRECT )
+                assumeDirectIo();
+
+            for ( final int threads : new int [] { 1, THREADS } )
+            {
+                final String run = fastFile.getName() + " (" + ioMode + ", " + threads + ")";
+                final File archive = new File( workingDirectory,
+                        fastFile.getName() + "." + ioMode + "." + threads );
+                assertEntriesEqual( run, expected,
+                    deflate( fastFile, deflators.get(), archive, ioMode, threads ) );
+
+                final File inflated = new File( workingDirectory,
+                        archive.getName() + ".inflated" );
+                final InflationConfiguration configuration = new InflationConfiguration();
+                configuration.setOption( IO_MODE, ioMode.toString() );
+                inflators.get().inflate( configuration, archive, inflated );
+
+                assertArrayEquals( run, Files.toByteArray( fastFile ),
+                    Files.toByteArray( inflated ) );
+            }
+        }
+    }
+
+    /**
+     * Skips what is left of a test where the file system cannot do direct
+     * I/O.
+     */
+    private void assumeDirectIo()
+    {
+        final File probe = new File( workingDirectory, "probe" );
+        try
+        {
+            IoMode.DIRECT.open( probe, StandardOpenOption.CREATE, StandardOpenOption.WRITE )
+                    .close();
+        } catch ( final IOException | UnsupportedOperationException e )
+        {
+            assumeNoException( e );
+        }
+    }
+
+    private Map<String, byte []> deflate(
+            final File fastFile,
+            final FastFileDeflator deflator,
+            final File archive,
+            final IoMode ioMode,
+            final int threads ) throws IOException
+    {
+        deflator.setIoMode( ioMode );
+        deflator.setThreads( threads );
+        deflator.setRecordGroupSize( GROUP_SIZE );
+
+        return FastFileArchives.deflate( fastFile, deflator, archive, ioMode );
+    }
+
+    @Before
+    public void setUp()
+    {
+        workingDirectory = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( workingDirectory );
+    }
+
+    @Test
+    public void testFasta() throws IOException
+    {
+        final File fastaFile = new File( workingDirectory, "synthetic.fna" );
+        writeSyntheticFasta( fastaFile, SYNTHETIC_SIZE );
+
+        assertModesMatch( fastaFile, FastaFileDeflator::new, FastaFileInflator::new );
+        assertModesMatch( new File( RESOURCES_FOLDER + "NC_008512.fna" ),
+            FastaFileDeflator::new, FastaFileInflator::new );
+    }
+
+    @Test
+    public void testFastq() throws IOException
+    {
+        final File fastqFile = new File( workingDirectory, "synthetic.fq" );
+        writeSyntheticFastq( fastqFile, SYNTHETIC_SIZE );
+
+        assertModesMatch( fastqFile, FastqFileDeflator::new, FastqFileInflator::new );
+        assertModesMatch( new File( RESOURCES_FOLDER + "fakeSeqData.fq" ),
+            FastqFileDeflator::new, FastqFileInflator::new );
+    }
+}
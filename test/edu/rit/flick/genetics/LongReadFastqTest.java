@@ -0,0 +1,118 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import edu.rit.flick.config.InflationConfiguration;
+import edu.rit.flick.genetics.util.QualityBinning;
+import edu.rit.flick.genetics.util.ZipArchiveWriter;
+
+/**
+ * Reads far longer than a short, and than the buffers their quality scores
+ * are streamed through, as those of Nanopore and PacBio runs are.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class LongReadFastqTest
+{
+    private static final int  THREADS    = 4;
+
+    private static final long GROUP_SIZE = 1 << 18;
+
+    private File              workingDirectory;
+    private File              fastqFile;
+
+    private void assertInflates( final QualityBinning binning, final int threads )
+            throws IOException
+    {
+        final File archive = new File( workingDirectory, fastqFile.getName() + "." + threads );
+        final FastqFileDeflator deflator = new FastqFileDeflator();
+        deflator.setThreads( threads );
+        deflator.setRecordGroupSize( GROUP_SIZE );
+        deflator.setQualityBinning( binning );
+        try ( final ZipArchiveWriter zipArchive = new ZipArchiveWriter( archive ) )
+        {
+            deflator.deflateToArchive( fastqFile, zipArchive );
+        }
+
+        final File inflated = new File( workingDirectory, archive.getName() + ".fq" );
+        new FastqFileInflator().inflate( new InflationConfiguration(), archive, inflated );
+
+        final byte [] expected = Files.toByteArray( fastqFile );
+        for ( int i = 0, line = 0; i < expected.length; i++ )
+            if ( expected[i] == '\n' )
+                line++;
+            else if ( line % 4 == 3 && binning != null )
+                expected[i] = binning.getBins()[expected[i] & 0xFF];
+        assertArrayEquals( expected, Files.toByteArray( inflated ) );
+    }
+
+    @Before
+    public void setUp() throws IOException
+    {
+        workingDirectory = Files.createTempDir();
+
+        // Scores wander about a mean of their own for each read, with dips
+        final Random random = new Random( 0 );
+        final ByteArrayOutputStream fastq = new ByteArrayOutputStream();
+        for ( int record = 0; record < 8; record++ )
+        {
+            final int length = record == 3 ? 7 : 40000 + random.nextInt( 160000 );
+            fastq.write( ( "@read" + record + " ch=" + random.nextInt( 512 ) + "\n" ).getBytes() );
+            for ( int b = 0; b < length; b++ )
+                fastq.write( "ACGT".charAt( random.nextInt( 4 ) ) );
+            fastq.write( "\n+\n".getBytes() );
+
+            final int mean = 8 + random.nextInt( 15 );
+            for ( int b = 0, dip = 0; b < length; b++ )
+            {
+                if ( dip == 0 && random.nextInt( 200 ) == 0 )
+                    dip = 5 + random.nextInt( 15 );
+                final int score = dip > 0 ? 2 + random.nextInt( 4 )
+                        : mean + (int) ( random.nextGaussian() * 4 );
+                dip = Math.max( 0, dip - 1 );
+                fastq.write( '!' + Math.max( 1, Math.min( 50, score ) ) );
+            }
+            fastq.write( '\n' );
+        }
+        fastqFile = new File( workingDirectory, "long.fq" );
+        Files.write( fastq.toByteArray(), fastqFile );
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( workingDirectory );
+    }
+
+    @Test
+    public void testBinnedLongReads() throws IOException
+    {
+        assertInflates( QualityBinning.fourBin(), THREADS );
+    }
+
+    @Test
+    public void testLongReads() throws IOException
+    {
+        assertInflates( null, 1 );
+        assertInflates( null, THREADS );
+    }
+}
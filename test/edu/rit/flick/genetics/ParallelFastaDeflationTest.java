@@ -0,0 +1,179 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static edu.rit.flick.genetics.FastFileArchives.assertEntriesEqual;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class ParallelFastaDeflationTest
+{
+    private static final String  RESOURCES_FOLDER = "test_resources" + File.separator;
+
+    private static final int     THREADS          = 4;
+
+    /**
+     * Every file is deflated in groups of these fractions of its length, and
+     * in groups of {@link #GROUP_SIZE} bytes.
+     */
+    private static final int []  GROUPS           = { 997, 31 };
+
+    private static final long    GROUP_SIZE       = 4096;
+
+    private File                 workingDirectory;
+
+    private void assertParallelDeflationMatches( final File fastaFile )
+            throws IOException, InterruptedException
+    {
+        final Map<String, byte []> expected = deflate( fastaFile, 1, 0 );
+
+        final long [] groupSizes = { fastaFile.length() / GROUPS[0] + 1,
+                fastaFile.length() / GROUPS[1] + 1, GROUP_SIZE };
+        for ( final long groupSize : groupSizes )
+        {
+            assertEntriesEqual( fastaFile.getName() + " (" + groupSize + ")", expected,
+                deflate( fastaFile, THREADS, groupSize ) );
+        }
+    }
+
+    private Map<String, byte []> deflate(
+            final File fastaFile,
+            final int threads,
+            final long groupSize ) throws IOException
+    {
+        final File archive = new File( workingDirectory,
+                fastaFile.getName() + "." + threads + "." + groupSize );
+
+        final FastaFileDeflator deflator = new FastaFileDeflator();
+        deflator.setThreads( threads );
+        deflator.setRecordGroupSize( groupSize );
+
+        return FastFileArchives.deflate( fastaFile, deflator, archive );
+    }
+
+    @Before
+    public void setUp()
+    {
+        workingDirectory = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( workingDirectory );
+    }
+
+    @Test
+    public void testResources() throws IOException, InterruptedException
+    {
+        for ( final String fasta : new String [] { "NC_008512.fna", "NC_018414.fna", "test.fna",
+                "fake.fna" } )
+            assertParallelDeflationMatches( new File( RESOURCES_FOLDER + fasta ) );
+    }
+
+    /**
+     * Records that are empty, end in a run of <code>N</code>s carried into the
+     * next record, switch between soft-masked and IUPAC bases, and use
+     * carriage returns only part of the way through.
+     */
+    @Test
+    public void testStateCarriedAcrossRecords() throws IOException, InterruptedException
+    {
+        final Random random = new Random( 0 );
+        final String bases = "ACGTACGTACGTACGTNacgtR";
+
+        for ( final boolean trailingNewline : new boolean [] { true, false } )
+        {
+            final StringBuilder fasta = new StringBuilder();
+            for ( int record = 0; record < 200; record++ )
+            {
+                final String newline = record > 50 ? "\r\n" : "\n";
+                fasta.append( ">record " ).append( record ).append( newline );
+
+                final int length = random.nextInt( 4 ) == 0 ? 0 : random.nextInt( 300 );
+                char base = 'A';
+                for ( int b = 0; b < length; b++ )
+                {
+                    if ( b > 0 && b % 60 == 0 )
+                        fasta.append( newline );
+                    if ( random.nextInt( 8 ) == 0 )
+                        base = bases.charAt( random.nextInt( bases.length() ) );
+                    fasta.append( record % 7 == 3 ? 'N' : base );
+                }
+                if ( length > 0 )
+                    fasta.append( newline );
+            }
+            if ( !trailingNewline )
+                fasta.append( "ACGTAC" );
+
+            final File fastaFile = new File( workingDirectory, "synthetic" + trailingNewline +
+                    ".fna" );
+            Files.write( fasta.toString().getBytes(), fastaFile );
+
+            assertParallelDeflationMatches( fastaFile );
+        }
+    }
+
+    @Test
+    public void testSingleRecord() throws IOException, InterruptedException
+    {
+        final File fastaFile = new File( workingDirectory, "single.fna" );
+        Files.write( ">only\nACGTNNNNacgt\nACG\n".getBytes(), fastaFile );
+
+        assertParallelDeflationMatches( fastaFile );
+    }
+
+    /**
+     * One chromosome, wrapped and unwrapped, cut part way through its lines
+     * and runs.
+     */
+    @Test
+    public void testSingleChromosome() throws IOException, InterruptedException
+    {
+        final Random random = new Random( 0 );
+        final String bases = "ACGTNacgtnR";
+
+        final StringBuilder sequence = new StringBuilder();
+        while ( sequence.length() < 50000 )
+        {
+            final char base = bases.charAt( random.nextInt( bases.length() ) );
+            for ( int run = random.nextInt( 200 ); run >= 0; run-- )
+                sequence.append( base == 'R' || base == 'n' ? base : bases.charAt( random
+                        .nextInt( 4 ) + ( Character.isLowerCase( base ) ? 5 : 0 ) ) );
+            if ( base == 'N' )
+                for ( int run = random.nextInt( 200 ); run >= 0; run-- )
+                    sequence.append( 'N' );
+        }
+
+        for ( final int lineSize : new int [] { 60, 80, sequence.length() } )
+        {
+            final StringBuilder fasta = new StringBuilder( ">chr1 single chromosome\n" );
+            for ( int b = 0; b < sequence.length(); b += lineSize )
+                fasta.append( sequence, b, Math.min( sequence.length(), b + lineSize ) )
+                        .append( '\n' );
+
+            final File fastaFile = new File( workingDirectory, "chr1." + lineSize + ".fna" );
+            Files.write( fasta.toString().getBytes(), fastaFile );
+
+            assertParallelDeflationMatches( fastaFile );
+        }
+    }
+}
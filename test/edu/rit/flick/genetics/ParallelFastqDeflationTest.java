@@ -0,0 +1,192 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static edu.rit.flick.genetics.FastFileArchives.assertEntriesEqual;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class ParallelFastqDeflationTest
+{
+    private static final String  RESOURCES_FOLDER = "test_resources" + File.separator;
+
+    private static final int     THREADS          = 4;
+
+    /**
+     * Every file is deflated in groups of these fractions of its length, and
+     * in groups of {@link #GROUP_SIZE} bytes.
+     */
+    private static final int []  GROUPS           = { 997, 31 };
+
+    private static final long    GROUP_SIZE       = 4096;
+
+    /**
+     * Quality scores, starting with <code>@</code> and <code>+</code> as
+     * often as anything else.
+     */
+    private static final String  SCORES           = "@+!#$%&'()*ABCDEFGHIJ@+";
+
+    private File                 workingDirectory;
+
+    private void assertParallelDeflationMatches( final File fastqFile )
+            throws IOException, InterruptedException
+    {
+        final Map<String, byte []> expected = deflate( fastqFile, 1, 0 );
+
+        final long [] groupSizes = { fastqFile.length() / GROUPS[0] + 1,
+                fastqFile.length() / GROUPS[1] + 1, GROUP_SIZE };
+        for ( final long groupSize : groupSizes )
+        {
+            assertEntriesEqual( fastqFile.getName() + " (" + groupSize + ")", expected,
+                deflate( fastqFile, THREADS, groupSize ) );
+        }
+    }
+
+    private Map<String, byte []> deflate(
+            final File fastqFile,
+            final int threads,
+            final long groupSize ) throws IOException
+    {
+        final File archive = new File( workingDirectory,
+                fastqFile.getName() + "." + threads + "." + groupSize );
+
+        final FastqFileDeflator deflator = new FastqFileDeflator();
+        deflator.setThreads( threads );
+        deflator.setRecordGroupSize( groupSize );
+
+        return FastFileArchives.deflate( fastqFile, deflator, archive );
+    }
+
+    /**
+     * Writes records whose quality scores often start with <code>@</code> and
+     * whose Ns run on from one record into the next.
+     *
+     * @return the location of every record
+     */
+    private List<Long> generate( final File fastqFile, final String comment, final long seed )
+            throws IOException
+    {
+        final Random random = new Random( seed );
+        final String bases = "ACGTACGTACGTNNR";
+
+        final List<Long> recordStarts = new ArrayList<Long>();
+        final StringBuilder fastq = new StringBuilder();
+        for ( int record = 0; record < 500; record++ )
+        {
+            recordStarts.add( (long) fastq.length() );
+
+            final String identifier = "read." + record + " length=" + random.nextInt( 100 );
+            fastq.append( '@' ).append( identifier ).append( '\n' );
+
+            final int length = 1 + random.nextInt( 150 );
+            char base = 'A';
+            for ( int b = 0; b < length; b++ )
+            {
+                if ( random.nextInt( 6 ) == 0 )
+                    base = bases.charAt( random.nextInt( bases.length() ) );
+                fastq.append( record % 11 == 5 ? 'N' : base );
+            }
+            fastq.append( '\n' );
+
+            fastq.append( '+' ).append( comment == null ? identifier : comment ).append( '\n' );
+
+            for ( int b = 0; b < length; b++ )
+                fastq.append( SCORES.charAt( random.nextInt( SCORES.length() ) ) );
+            fastq.append( '\n' );
+        }
+
+        Files.write( fastq.toString().getBytes(), fastqFile );
+
+        return recordStarts;
+    }
+
+    @Before
+    public void setUp()
+    {
+        workingDirectory = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( workingDirectory );
+    }
+
+    /**
+     * Every position finds the next record, never a quality line starting
+     * with <code>@</code>.
+     */
+    @Test
+    public void testFindRecordGroupStart() throws IOException
+    {
+        final File fastqFile = new File( workingDirectory, "resync.fq" );
+        final List<Long> recordStarts = generate( fastqFile, "", 0 );
+
+        final FastqFileDeflator deflator = new FastqFileDeflator();
+        try ( FileChannel fastIn = FileChannel.open( fastqFile.toPath(),
+            StandardOpenOption.READ ) )
+        {
+            deflator.fastIn = fastIn;
+
+            final long size = fastqFile.length();
+            int record = 0;
+            for ( long position = 1; position < size; position++ )
+            {
+                while ( record < recordStarts.size() && recordStarts.get( record ) < position )
+                    record++;
+                final long expected = record < recordStarts.size() ? recordStarts.get( record )
+                        : size;
+                assertEquals( "from " + position, expected,
+                    deflator.findRecordGroupStart( position, size ) );
+            }
+        }
+    }
+
+    @Test
+    public void testResources() throws IOException, InterruptedException
+    {
+        for ( final String fastq : new String [] { "test.fq", "fakeSeqData.fq",
+                "fakeSeqData_2.fq" } )
+            assertParallelDeflationMatches( new File( RESOURCES_FOLDER + fastq ) );
+    }
+
+    /**
+     * Comments that repeat the sequence identifier, are empty or are stored,
+     * as decided by the first record.
+     */
+    @Test
+    public void testStateCarriedAcrossRecords() throws IOException, InterruptedException
+    {
+        long seed = 0;
+        for ( final String comment : new String [] { null, "", "comment" } )
+        {
+            final File fastqFile = new File( workingDirectory, "synthetic" + seed + ".fq" );
+            generate( fastqFile, comment, seed++ );
+
+            assertParallelDeflationMatches( fastqFile );
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static edu.rit.flick.config.DeflationOptionSet.THREADS;
+import static edu.rit.flick.genetics.config.FastqDeflationOptionSet.QUALITY_BINNING;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import edu.rit.flick.config.DeflationConfiguration;
+import edu.rit.flick.config.InflationConfiguration;
+import edu.rit.flick.genetics.util.QualityBinning;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class QualityBinningTest
+{
+    private static final int  THREADS_TO_TEST = 4;
+
+    private static final long GROUP_SIZE      = 4096;
+
+    private File              workingDirectory;
+
+    /**
+     * @return <code>fastq</code> with every quality line binned by
+     *         <code>binning</code>
+     */
+    private byte [] bin( final byte [] fastq, final QualityBinning binning )
+    {
+        final byte [] binned = fastq.clone();
+        for ( int i = 0, line = 0; i < binned.length; i++ )
+            if ( binned[i] == '\n' )
+                line++;
+            else if ( line % 4 == 3 )
+                binned[i] = binning.getBins()[binned[i] & 0xFF];
+        return binned;
+    }
+
+    /**
+     * Deflates <code>fastqFile</code> with its quality scores binned by
+     * <code>binning</code>, in groups of records, and inflates it back.
+     */
+    private void assertBinned( final File fastqFile, final String binning ) throws IOException
+    {
+        final DeflationConfiguration deflation = new DeflationConfiguration();
+        deflation.setOption( THREADS, THREADS_TO_TEST );
+        deflation.setOption( QUALITY_BINNING, binning );
+
+        final File archive = new File( workingDirectory, fastqFile.getName() + "." + binning );
+        final FastqFileDeflator deflator = new FastqFileDeflator();
+        deflator.setRecordGroupSize( GROUP_SIZE );
+        deflator.deflate( deflation, fastqFile, archive );
+
+        final File inflated = new File( workingDirectory, archive.getName() + ".inflated" );
+        final FastqFileInflator inflator = new FastqFileInflator();
+        inflator.inflate( new InflationConfiguration(), archive, inflated );
+
+        final QualityBinning qualityBinning = QualityBinning.parse( binning );
+        assertEquals( qualityBinning.toString(), inflator.getQualityBinning() );
+        assertArrayEquals( binning,
+            bin( Files.toByteArray( fastqFile ), qualityBinning ),
+            Files.toByteArray( inflated ) );
+    }
+
+    @Before
+    public void setUp()
+    {
+        workingDirectory = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( workingDirectory );
+    }
+
+    @Test
+    public void testBins()
+    {
+        final byte [] bins = QualityBinning.eightBin().getBins();
+        assertEquals( 'I', bins['I'] );
+        assertEquals( 'I', bins['~'] );
+        assertEquals( '7', bins['5'] );
+        assertEquals( '\'', bins['#'] );
+
+        // Uncalled bases and line breaks stay as they are
+        assertEquals( '!', bins['!'] );
+        assertEquals( '"', bins['"'] );
+        assertEquals( '\r', bins['\r'] );
+
+        final byte [] threshold = QualityBinning.parse( "threshold:30" ).getBins();
+        assertEquals( '#', threshold['>'] );
+        assertEquals( 'F', threshold['?'] );
+        assertEquals( 'F', threshold['J'] );
+    }
+
+    @Test
+    public void testInflation() throws IOException
+    {
+        final Random random = new Random( 0 );
+        final StringBuilder fastq = new StringBuilder();
+        for ( int record = 0; record < 500; record++ )
+        {
+            final int length = 1 + random.nextInt( 150 );
+            fastq.append( "@read." ).append( record ).append( "\n" );
+            for ( int b = 0; b < length; b++ )
+                fastq.append( "ACGT".charAt( random.nextInt( 4 ) ) );
+            fastq.append( "\n+\n" );
+            for ( int b = 0; b < length; b++ )
+                fastq.append( (char) ( '!' + random.nextInt( 42 ) ) );
+            fastq.append( '\n' );
+        }
+        final File fastqFile = new File( workingDirectory, "scores.fq" );
+        Files.write( fastq.toString().getBytes(), fastqFile );
+
+        for ( final String binning : new String [] { "8-bin", "4-bin", "threshold" } )
+            assertBinned( fastqFile, binning );
+    }
+
+    @Test
+    public void testLossless() throws IOException
+    {
+        final File fastqFile = new File( "test_resources" + File.separator + "fakeSeqData.fq" );
+        final File archive = new File( workingDirectory, fastqFile.getName() + ".flickfq" );
+        new FastqFileDeflator().deflate( new DeflationConfiguration(), fastqFile, archive );
+
+        final FastqFileInflator inflator = new FastqFileInflator();
+        inflator.inflate( new InflationConfiguration(), archive,
+            new File( workingDirectory, fastqFile.getName() ) );
+        assertNull( inflator.getQualityBinning() );
+    }
+
+    @Test ( expected = IllegalArgumentException.class )
+    public void testUnknownBinning()
+    {
+        QualityBinning.parse( "threshold:two" );
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static edu.rit.flick.genetics.FastFileArchives.assertEntriesEqual;
+import static edu.rit.flick.genetics.FastFileArchives.entries;
+import static edu.rit.flick.genetics.FastFileArchives.writeSyntheticFasta;
+import static edu.rit.flick.genetics.FastFileArchives.writeSyntheticFastq;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import edu.rit.flick.genetics.util.ZipArchiveWriter;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class StreamingDeflationTest
+{
+    private static final String RESOURCES_FOLDER = "test_resources" + File.separator;
+
+    /**
+     * Synthetic inputs span a few stream buffers.
+     */
+    private static final int    SYNTHETIC_SIZE   = FastFileDeflator.STREAM_BUFFER_SIZE * 5 / 2;
+
+    private File                workingDirectory;
+
+    /**
+     * Streaming the file must give the same output as mapping it; only the
+     * order of the meta properties may differ.
+     */
+    private void assertStreamedDeflationMatches(
+            final File fastFile,
+            final FastFileDeflator mapped,
+            final FastFileDeflator streamed ) throws IOException
+    {
+        final File expected = new File( workingDirectory, fastFile.getName() + ".mapped" );
+        try ( final ZipArchiveWriter archive = new ZipArchiveWriter( expected ) )
+        {
+            mapped.deflateToArchive( fastFile, archive );
+        }
+
+        final File actual = new File( workingDirectory, fastFile.getName() + ".streamed" );
+        try ( final InputStream in = new FileInputStream( fastFile );
+                final ZipArchiveWriter archive = new ZipArchiveWriter( actual ) )
+        {
+            streamed.deflateToArchive( Channels.newChannel( in ), archive );
+        }
+
+        final Map<String, byte []> files = entries( expected );
+        final Map<String, byte []> actualFiles = entries( actual );
+        assertEquals( fastFile.getName(), properties( files.remove( FastFileArchiver.META_FILE ) ),
+            properties( actualFiles.remove( FastFileArchiver.META_FILE ) ) );
+        assertEntriesEqual( fastFile.getName(), files, actualFiles );
+    }
+
+    private Properties properties( final byte [] file ) throws IOException
+    {
+        final Properties properties = new Properties();
+        properties.load( new ByteArrayInputStream( file ) );
+        return properties;
+    }
+
+    @Before
+    public void setUp()
+    {
+        workingDirectory = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( workingDirectory );
+    }
+
+    @Test
+    public void testFasta() throws IOException
+    {
+        final File fastaFile = new File( workingDirectory, "synthetic.fna" );
+        writeSyntheticFasta( fastaFile, SYNTHETIC_SIZE );
+
+        assertStreamedDeflationMatches( fastaFile, new FastaFileDeflator(),
+            new FastaFileDeflator() );
+        assertStreamedDeflationMatches( new File( RESOURCES_FOLDER + "NC_008512.fna" ),
+            new FastaFileDeflator(), new FastaFileDeflator() );
+    }
+
+    @Test
+    public void testFastq() throws IOException
+    {
+        final File fastqFile = new File( workingDirectory, "synthetic.fq" );
+        writeSyntheticFastq( fastqFile, SYNTHETIC_SIZE );
+
+        assertStreamedDeflationMatches( fastqFile, new FastqFileDeflator(),
+            new FastqFileDeflator() );
+        assertStreamedDeflationMatches( new File( RESOURCES_FOLDER + "fakeSeqData.fq" ),
+            new FastqFileDeflator(), new FastqFileDeflator() );
+    }
+}
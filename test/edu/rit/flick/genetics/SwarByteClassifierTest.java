@@ -0,0 +1,115 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class SwarByteClassifierTest
+{
+    private static final int     NUMBER_OF_WORDS_TO_TEST = 100000;
+
+    private static final byte [] INTERESTING_BYTES       = "ACGTUNacgtunRYKM>@+\n\r\0\u00C1\u00E1"
+            .getBytes( StandardCharsets.ISO_8859_1 );
+
+    @Test
+    public void testEveryByteInEveryLane()
+    {
+        for ( int b = 0; b < 1 << Byte.SIZE; b++ )
+            for ( int lane = 0; lane < Long.BYTES; lane++ )
+            {
+                final byte [] bytes = "AAAAAAAA".getBytes();
+                bytes[lane] = (byte) b;
+                assertWord( bytes );
+            }
+    }
+
+    @Test
+    public void testIndexOf()
+    {
+        final Random random = new Random( 0 );
+        final byte [] bytes = new byte [100];
+        for ( int test = 0; test < NUMBER_OF_WORDS_TO_TEST / 10; test++ )
+        {
+            for ( int b = 0; b < bytes.length; b++ )
+                bytes[b] = INTERESTING_BYTES[random.nextInt( INTERESTING_BYTES.length )];
+            final int from = random.nextInt( bytes.length );
+            final int to = from + random.nextInt( bytes.length - from + 1 );
+            final byte b = INTERESTING_BYTES[random.nextInt( INTERESTING_BYTES.length )];
+
+            int expected = from;
+            while ( expected < to && bytes[expected] != b )
+                expected++;
+            assertEquals( expected,
+                SwarByteClassifier.indexOf( ByteBuffer.wrap( bytes ), from, to, b ) );
+        }
+    }
+
+    @Test
+    public void testRandomWords()
+    {
+        final Random random = new Random( 0 );
+        final byte [] bytes = new byte [Long.BYTES];
+        for ( int w = 0; w < NUMBER_OF_WORDS_TO_TEST; w++ )
+        {
+            for ( int lane = 0; lane < Long.BYTES; lane++ )
+                bytes[lane] = INTERESTING_BYTES[random.nextInt( INTERESTING_BYTES.length )];
+            assertWord( bytes );
+        }
+    }
+
+    @Test
+    public void testToBits()
+    {
+        final Random random = new Random( 0 );
+        final byte [] nucleotides = "ACGTUacgtu".getBytes();
+        final byte [] bytes = new byte [Long.BYTES];
+        for ( int w = 0; w < NUMBER_OF_WORDS_TO_TEST; w++ )
+        {
+            int expected = 0;
+            for ( int lane = 0; lane < Long.BYTES; lane++ )
+            {
+                bytes[lane] = nucleotides[random.nextInt( nucleotides.length )];
+                expected = expected << 2 | TwoBitNucleotideConverter.toBits( bytes[lane] );
+            }
+            assertEquals( expected, SwarByteClassifier.toBits( ByteBuffer.wrap( bytes ).getLong() ) );
+        }
+    }
+
+    private void assertWord( final byte [] bytes )
+    {
+        final long word = ByteBuffer.wrap( bytes ).getLong();
+
+        assertEquals( lanes( bytes, "ACGTU" ), SwarByteClassifier.nucleotides( word ) );
+        assertEquals( lanes( bytes, "acgtu" ), SwarByteClassifier.softMasked( word ) );
+        assertEquals( lanes( bytes, "N" ), SwarByteClassifier.n( word ) );
+        assertEquals( lanes( bytes, "Uu" ), SwarByteClassifier.rna( word ) );
+
+        int leading = 0;
+        while ( leading < bytes.length && "ACGTU".indexOf( bytes[leading] ) >= 0 )
+            leading++;
+        assertEquals( leading,
+            SwarByteClassifier.leadingBytes( SwarByteClassifier.nucleotides( word ) ) );
+    }
+
+    private long lanes( final byte [] bytes, final String letters )
+    {
+        long lanes = 0;
+        for ( final byte b : bytes )
+            lanes = lanes << Byte.SIZE | ( letters.indexOf( b & 0xFF ) >= 0 ? 0x80 : 0 );
+        return lanes;
+    }
+}
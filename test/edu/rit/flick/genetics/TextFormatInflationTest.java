@@ -0,0 +1,259 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import edu.rit.flick.config.InflationConfiguration;
+import edu.rit.flick.genetics.util.LocationIndexReader;
+import edu.rit.flick.genetics.util.QualityScoreReader;
+import edu.rit.flick.genetics.util.ReadLengthReader;
+import edu.rit.flick.genetics.util.SequenceEventReader;
+import edu.rit.flick.genetics.util.SequenceIdentifierReader;
+import edu.rit.flick.genetics.util.ZipArchiveWriter;
+
+/**
+ * Archives of the {@link FastFileArchiver#TEXT_FORMAT_VERSION} wrote their N
+ * runs, IUPAC codes and tandem repeats as hex text, and their sequence
+ * identifiers after their locations, their quality scores as they are and the
+ * lengths of their reads as two bytes each, and must still inflate.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class TextFormatInflationTest
+{
+    private static final String RESOURCES_FOLDER = "test_resources" + File.separator;
+
+    private static final int    THREADS          = 4;
+
+    private File                workingDirectory;
+
+    private void assertTextFormatInflates(
+            final File fastFile,
+            final FastFileDeflator deflator,
+            final FastFileInflator inflator ) throws IOException
+    {
+        final File archive = new File( workingDirectory, fastFile.getName() + ".varint" );
+        deflator.setThreads( THREADS );
+        deflator.setRecordGroupSize( fastFile.length() / 7 + 1 );
+        try ( final ZipArchiveWriter zipArchive = new ZipArchiveWriter( archive ) )
+        {
+            deflator.deflateToArchive( fastFile, zipArchive );
+        }
+
+        final File textArchive = new File( workingDirectory, fastFile.getName() + ".text" );
+        try ( final ZipFile zipFile = new ZipFile( archive );
+                final ZipArchiveWriter zipArchive = new ZipArchiveWriter( textArchive ) )
+        {
+            for ( final ZipEntry entry : Collections.list( zipFile.entries() ) )
+            {
+                final byte [] file = ByteStreams.toByteArray( zipFile.getInputStream( entry ) );
+                String name = entry.getName();
+                if ( name.startsWith( "HeaderLayout" ) || name.startsWith( "HeaderColumn" ) )
+                    continue;
+                if ( name.equals( FastFileArchiver.SEQUENCE_ID_INDEX_FILE ) )
+                    name = FastFileArchiver.SEQUENCE_ID_FILE;
+                else if ( name.equals( FastqFileArchiver.SEQUENCE_SCORE_MODEL_FILE ) )
+                    name = FastqFileArchiver.SEQUENCE_SCORE_FILE;
+                try ( final OutputStream out = name.equals( FastFileArchiver.SEQUENCE_DATA_FILE )
+                        ? zipArchive.createStoredFile( name ) : zipArchive.createFile( name ) )
+                {
+                    if ( name.equals( FastFileArchiver.N_FILE ) ||
+                            name.equals( FastaFileArchiver.TANDEM_REPEAT_FILE ) )
+                        out.write( toText( SequenceEventReader
+                                .runs( new ByteArrayInputStream( file ) ), false ) );
+                    else if ( name.equals( FastFileArchiver.SEQUENCE_ID_FILE ) )
+                        out.write( toText(
+                            new LocationIndexReader( new ByteArrayInputStream( file ) ),
+                            zipFile ) );
+                    else if ( name.equals( FastqFileArchiver.SEQUENCE_SCORE_FILE ) )
+                        out.write( toText(
+                            new QualityScoreReader( new ByteArrayInputStream( file ) ),
+                            zipFile ) );
+                    else if ( name.equals( FastqFileArchiver.SEQUENCE_LENGTH_FILE ) )
+                        out.write( toText( new ReadLengthReader(
+                            new ByteArrayInputStream( file ) ) ) );
+                    else if ( name.equals( FastFileArchiver.IUPAC_CODE_FILE ) )
+                        out.write( toText( SequenceEventReader
+                                .symbols( new ByteArrayInputStream( file ) ), true ) );
+                    else if ( name.equals( FastFileArchiver.META_FILE ) )
+                        out.write( new String( file )
+                                .replaceAll( FastFileArchiver.META_FORMAT_VERSION + "=.*\\R", "" )
+                                .getBytes() );
+                    else out.write( file );
+                }
+            }
+        }
+
+        final File inflated = new File( workingDirectory, fastFile.getName() );
+        inflator.inflate( new InflationConfiguration(), textArchive, inflated );
+
+        assertArrayEquals( fastFile.getName(), Files.toByteArray( fastFile ),
+            Files.toByteArray( inflated ) );
+    }
+
+    @Before
+    public void setUp()
+    {
+        workingDirectory = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( workingDirectory );
+    }
+
+    @Test
+    public void testFasta() throws IOException
+    {
+        final Random random = new Random( 0 );
+        final String bases = "ACGTACGTNNNacgtnRY";
+
+        final StringBuilder fasta = new StringBuilder();
+        for ( int record = 0; record < 50; record++ )
+        {
+            fasta.append( ">record " ).append( record ).append( '\n' );
+            final int length = random.nextInt( 10000 );
+            char base = 'A';
+            for ( int b = 0; b < length; b++ )
+            {
+                if ( b > 0 && b % 60 == 0 )
+                    fasta.append( '\n' );
+                if ( random.nextInt( 30 ) == 0 )
+                    base = bases.charAt( random.nextInt( bases.length() ) );
+                fasta.append( base );
+            }
+            fasta.append( '\n' );
+        }
+
+        final File fastaFile = new File( workingDirectory, "synthetic.fa" );
+        Files.write( fasta.toString().getBytes(), fastaFile );
+
+        assertTextFormatInflates( fastaFile, new FastaFileDeflator(), new FastaFileInflator() );
+        assertTextFormatInflates( new File( RESOURCES_FOLDER + "test.fna" ),
+            new FastaFileDeflator(), new FastaFileInflator() );
+    }
+
+    @Test
+    public void testFastq() throws IOException
+    {
+        assertTextFormatInflates( new File( RESOURCES_FOLDER + "fakeSeqData.fq" ),
+            new FastqFileDeflator(), new FastqFileInflator() );
+    }
+
+    /**
+     * @return the <code>locations</code> of the sequence identifiers in
+     *         <code>zipFile</code> written out with them as the text format
+     *         did
+     */
+    private byte [] toText( final LocationIndexReader locations, final ZipFile zipFile )
+            throws IOException
+    {
+        final List<InputStream> columns = new ArrayList<InputStream>();
+        for ( ZipEntry column; ( column = zipFile.getEntry( String
+                .format( FastFileArchiver.SEQUENCE_ID_COLUMN_FILE, columns.size() ) ) ) != null; )
+            columns.add( zipFile.getInputStream( column ) );
+        final SequenceIdentifierReader identifiers = new SequenceIdentifierReader(
+                zipFile.getInputStream(
+                    zipFile.getEntry( FastFileArchiver.SEQUENCE_ID_LAYOUT_FILE ) ),
+                columns.toArray( new InputStream [columns.size()] ) );
+
+        final ByteArrayOutputStream text = new ByteArrayOutputStream();
+        while ( identifiers.next() )
+        {
+            // FASTQ archives keep no locations; only the first, 0, was read
+            final long location = locations.hasNext() ? locations.next() : 0;
+            text.write( ( location + "|" ).getBytes() );
+            text.write( identifiers.getIdentifier(), 0, identifiers.getLength() );
+            text.write( '\n' );
+        }
+        identifiers.close();
+        return text.toByteArray();
+    }
+
+    /**
+     * @return the quality scores read by <code>scores</code>, of reads as long
+     *         as the lengths in <code>zipFile</code>, as they are
+     */
+    private byte [] toText( final QualityScoreReader scores, final ZipFile zipFile )
+            throws IOException
+    {
+        final ReadLengthReader lengths = new ReadLengthReader( zipFile
+                .getInputStream( zipFile.getEntry( FastqFileArchiver.SEQUENCE_LENGTH_FILE ) ) );
+
+        final ByteArrayOutputStream text = new ByteArrayOutputStream();
+        byte [] read = new byte [0];
+        while ( lengths.hasNext() )
+        {
+            final int length = (int) lengths.next();
+            if ( read.length < length )
+                read = new byte [length];
+            text.write( read, 0, scores.read( read, 0, length ) );
+        }
+        lengths.close();
+        scores.close();
+        return text.toByteArray();
+    }
+
+    /**
+     * @return the read lengths read by <code>lengths</code> written out as two
+     *         bytes each, the highest first
+     */
+    private byte [] toText( final ReadLengthReader lengths ) throws IOException
+    {
+        final ByteArrayOutputStream text = new ByteArrayOutputStream();
+        while ( lengths.hasNext() )
+        {
+            final long length = lengths.next();
+            text.write( (int) length >> 8 );
+            text.write( (int) length );
+        }
+        lengths.close();
+        return text.toByteArray();
+    }
+
+    /**
+     * @return <code>events</code> written out as the text format did
+     */
+    private byte [] toText( final SequenceEventReader events, final boolean symbols )
+            throws IOException
+    {
+        final StringBuilder text = new StringBuilder();
+        while ( events.next() )
+        {
+            text.append( Long.toHexString( events.getStart() ).toUpperCase() ).append( '-' );
+            if ( symbols )
+                text.append( (char) events.getSymbol() );
+            else text.append( Long.toHexString( events.getEnd() ).toUpperCase() );
+            text.append( '|' );
+        }
+        return text.toString().getBytes();
+    }
+}
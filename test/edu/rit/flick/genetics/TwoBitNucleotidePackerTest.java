@@ -0,0 +1,164 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.BiMap;
+
+import edu.rit.flick.genetics.util.ByteBufferOutputStream;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class TwoBitNucleotidePackerTest
+{
+    private static final int                 NUMBER_OF_NUCLEOTIDES_TO_TEST = 10000;
+
+    private static final char []             NUCLEOTIDES                   = { 'A', 'C', 'G',
+            'T' };
+
+    private static final BiMap<String, Byte> BYTE_CONVERTER                = new ByteConverterBiMapFactory()
+            .getByteConverter( 4 );
+
+    @Test
+    public void testEveryTetramer() throws IOException
+    {
+        for ( final String tetramer : BYTE_CONVERTER.keySet() )
+            assertArrayEquals( tetramer, legacyPack( tetramer ), pack( tetramer ) );
+    }
+
+    @Test
+    public void testRandomSequences() throws IOException
+    {
+        final Random random = new Random( 0 );
+        for ( int length = 0; length < 100; length++ )
+        {
+            final StringBuilder sequence = new StringBuilder();
+            for ( int n = 0; n < length; n++ )
+                sequence.append( NUCLEOTIDES[random.nextInt( NUCLEOTIDES.length )] );
+
+            assertArrayEquals( sequence.toString(), legacyPack( sequence.toString() ),
+                pack( sequence.toString() ) );
+        }
+
+        final StringBuilder sequence = new StringBuilder();
+        for ( int n = 0; n < NUMBER_OF_NUCLEOTIDES_TO_TEST; n++ )
+            sequence.append( NUCLEOTIDES[random.nextInt( NUCLEOTIDES.length )] );
+
+        assertArrayEquals( legacyPack( sequence.toString() ), pack( sequence.toString() ) );
+    }
+
+    @Test
+    public void testPackSeveralNucleotidesAtOnce() throws IOException
+    {
+        final Random random = new Random( 0 );
+        final StringBuilder sequence = new StringBuilder();
+        for ( int n = 0; n < NUMBER_OF_NUCLEOTIDES_TO_TEST; n++ )
+            sequence.append( NUCLEOTIDES[random.nextInt( NUCLEOTIDES.length )] );
+
+        final ByteBufferOutputStream out = new ByteBufferOutputStream(
+                ByteBuffer.allocate( sequence.length() / 4 + 1 ) );
+        final TwoBitNucleotidePacker packer = new TwoBitNucleotidePacker( out );
+
+        int n = 0;
+        while ( n < sequence.length() )
+        {
+            final int nucleotides = Math.min( random.nextInt( 17 ), sequence.length() - n );
+            int bits = 0;
+            for ( int b = 0; b < nucleotides; b++ )
+                bits = bits << 2 | TwoBitNucleotideConverter.toBits( (byte) sequence.charAt( n++ ) );
+            packer.packBits( bits, nucleotides );
+        }
+
+        final byte [] tail = new byte [4];
+        assertEquals( sequence.length() % 4, packer.flush( tail ) );
+        assertArrayEquals( legacyPack( sequence.toString() ),
+            Arrays.copyOf( out.getByteBuffers()[0].array(), (int) out.position() ) );
+    }
+
+    @Test
+    public void testPackTetramers() throws IOException
+    {
+        final Random random = new Random( 0 );
+        final StringBuilder sequence = new StringBuilder();
+        for ( int n = 0; n < NUMBER_OF_NUCLEOTIDES_TO_TEST; n++ )
+            sequence.append( NUCLEOTIDES[random.nextInt( NUCLEOTIDES.length )] );
+
+        for ( int lead = 0; lead < 40; lead++ )
+        {
+            final ByteBufferOutputStream out = new ByteBufferOutputStream(
+                    ByteBuffer.allocate( sequence.length() / 4 + 1 ) );
+            final TwoBitNucleotidePacker packer = new TwoBitNucleotidePacker( out );
+
+            for ( int n = 0; n < lead; n++ )
+                packer.pack( (byte) sequence.charAt( n ) );
+            final int tetramers = ( sequence.length() - lead ) / 4;
+            packer.packTetramers( legacyPack( sequence.substring( lead ) ), 0, tetramers );
+            for ( int n = lead + tetramers * 4; n < sequence.length(); n++ )
+                packer.pack( (byte) sequence.charAt( n ) );
+
+            final byte [] tail = new byte [4];
+            packer.flush( tail );
+            assertArrayEquals( "lead " + lead, legacyPack( sequence.toString() ),
+                Arrays.copyOf( out.getByteBuffers()[0].array(), (int) out.position() ) );
+        }
+    }
+
+    @Test
+    public void testTail() throws IOException
+    {
+        final ByteBufferOutputStream out = new ByteBufferOutputStream( ByteBuffer.allocate( 16 ) );
+        final TwoBitNucleotidePacker packer = new TwoBitNucleotidePacker( out );
+
+        for ( final byte nucleotide : "ACGTTGCAGuc".getBytes() )
+            packer.pack( nucleotide );
+
+        final byte [] tail = new byte [4];
+        assertEquals( 3, packer.flush( tail ) );
+        assertEquals( "GTC", new String( tail, 0, 3 ) );
+        assertEquals( 2, out.position() );
+    }
+
+    /**
+     * The tetramer lookup the deflator used before the packer, kept as the
+     * reference output.
+     */
+    private byte [] legacyPack( final String sequence )
+    {
+        final byte [] packed = new byte [sequence.length() / 4];
+        for ( int t = 0; t < packed.length; t++ )
+            packed[t] = BYTE_CONVERTER.get( sequence.substring( t * 4, t * 4 + 4 ) );
+        return packed;
+    }
+
+    private byte [] pack( final String sequence ) throws IOException
+    {
+        final ByteBufferOutputStream out = new ByteBufferOutputStream(
+                ByteBuffer.allocate( sequence.length() / 4 + 1 ) );
+        final TwoBitNucleotidePacker packer = new TwoBitNucleotidePacker( out );
+
+        for ( final byte nucleotide : sequence.getBytes() )
+            packer.pack( nucleotide );
+
+        final byte [] tail = new byte [4];
+        assertEquals( sequence.length() % 4, packer.flush( tail ) );
+        assertEquals( sequence.substring( sequence.length() - sequence.length() % 4 ),
+            new String( tail, 0, sequence.length() % 4 ) );
+
+        return Arrays.copyOf( out.getByteBuffers()[0].array(), (int) out.position() );
+    }
+}
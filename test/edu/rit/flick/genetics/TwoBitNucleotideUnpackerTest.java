@@ -0,0 +1,60 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.BiMap;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class TwoBitNucleotideUnpackerTest
+{
+    private static final int                 NUMBER_OF_TETRAMERS_TO_TEST = 10000;
+
+    private static final BiMap<Byte, String> TETRAMERS                   =
+            new ByteConverterBiMapFactory().getByteConverter( 4 ).inverse();
+
+    private String unpack( final byte [] tetramers, final boolean rna )
+    {
+        final ByteBuffer nucleotides = ByteBuffer.allocate( tetramers.length * 4 );
+        new TwoBitNucleotideUnpacker( rna ).unpack( tetramers, 0, tetramers.length, nucleotides );
+        assertEquals( nucleotides.capacity(), nucleotides.position() );
+        return new String( nucleotides.array() );
+    }
+
+    @Test
+    public void testEveryTetramer()
+    {
+        for ( int b = Byte.MIN_VALUE; b <= Byte.MAX_VALUE; b++ )
+        {
+            final String tetramer = TETRAMERS.get( (byte) b );
+            assertEquals( tetramer, unpack( new byte [] { (byte) b }, false ) );
+            assertEquals( tetramer.replace( 'T', 'U' ), unpack( new byte [] { (byte) b }, true ) );
+        }
+    }
+
+    @Test
+    public void testRandomTetramers()
+    {
+        final Random random = new Random( 0 );
+        final byte [] tetramers = new byte [NUMBER_OF_TETRAMERS_TO_TEST];
+        random.nextBytes( tetramers );
+
+        final StringBuilder expected = new StringBuilder();
+        for ( final byte tetramer : tetramers )
+            expected.append( TETRAMERS.get( tetramer ) );
+        assertEquals( expected.toString(), unpack( tetramers, false ) );
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics;
+
+import static edu.rit.flick.genetics.FastFileArchives.assertEntriesEqual;
+import static edu.rit.flick.genetics.FastFileArchives.writeSyntheticFastq;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+/**
+ * Scanning the sequence a word at a time with the
+ * {@link SwarByteClassifier} must give the same archive as scanning it a
+ * byte at a time.
+ *
+ * @author Alex Aiezza
+ *
+ */
+public class WordScanningTest
+{
+    private static final String  RESOURCES_FOLDER = "test_resources" + File.separator;
+
+    private static final int     SYNTHETIC_SIZE   = 1 << 22;
+
+    private static final byte [] NUCLEOTIDES      = "ACGT".getBytes();
+
+    private File                 workingDirectory;
+
+    private void assertScanningMatches(
+            final File fastFile,
+            final Supplier<FastFileDeflator> deflators ) throws IOException
+    {
+        final Map<String, byte []> expected = deflate( fastFile, deflators.get(), false );
+        assertEntriesEqual( fastFile.getName(), expected,
+            deflate( fastFile, deflators.get(), true ) );
+    }
+
+    private Map<String, byte []> deflate(
+            final File fastFile,
+            final FastFileDeflator deflator,
+            final boolean wordScanning ) throws IOException
+    {
+        deflator.setWordScanning( wordScanning );
+        return FastFileArchives.deflate( fastFile, deflator,
+            new File( workingDirectory, fastFile.getName() + "." + wordScanning ) );
+    }
+
+    /**
+     * Writes mostly clean bases with the occasional soft-masked stretch, run of
+     * <code>N</code>s and IUPAC code, in lines of <code>lineSize</code>.
+     */
+    private void generate( final File fastaFile, final long size, final int lineSize )
+            throws IOException
+    {
+        final Random random = new Random( 0 );
+        try ( OutputStream out = new BufferedOutputStream( new FileOutputStream( fastaFile ) ) )
+        {
+            out.write( ">synthetic sequence\n".getBytes() );
+
+            long written = 0;
+            int column = 0;
+            int softMasked = 0, n = 0;
+            while ( written < size )
+            {
+                final int dice = random.nextInt( 10000 );
+                if ( softMasked == 0 && n == 0 )
+                    if ( dice < 5 )
+                        softMasked = 50 + random.nextInt( 500 );
+                    else if ( dice < 6 )
+                        n = 10 + random.nextInt( 1000 );
+
+                byte b;
+                if ( n > 0 )
+                {
+                    b = 'N';
+                    n--;
+                } else if ( dice == 9999 )
+                    b = 'R';
+                else
+                {
+                    b = NUCLEOTIDES[random.nextInt( NUCLEOTIDES.length )];
+                    if ( softMasked > 0 )
+                    {
+                        b = (byte) Character.toLowerCase( b );
+                        softMasked--;
+                    }
+                }
+
+                out.write( b );
+                written++;
+                if ( ++column == lineSize )
+                {
+                    out.write( '\n' );
+                    column = 0;
+                }
+            }
+            out.write( '\n' );
+        }
+    }
+
+    @Before
+    public void setUp()
+    {
+        workingDirectory = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( workingDirectory );
+    }
+
+    @Test
+    public void testFasta() throws IOException
+    {
+        for ( final int lineSize : new int [] { 7, 70, SYNTHETIC_SIZE } )
+        {
+            final File fastaFile = new File( workingDirectory, "synthetic." + lineSize + ".fna" );
+            generate( fastaFile, SYNTHETIC_SIZE, lineSize );
+            assertScanningMatches( fastaFile, FastaFileDeflator::new );
+        }
+
+        for ( final String fasta : new String [] { "NC_008512.fna", "test.fna", "fake.fna" } )
+            assertScanningMatches( new File( RESOURCES_FOLDER + fasta ), FastaFileDeflator::new );
+    }
+
+    @Test
+    public void testFastq() throws IOException
+    {
+        final File fastqFile = new File( workingDirectory, "synthetic.fq" );
+        writeSyntheticFastq( fastqFile, SYNTHETIC_SIZE );
+        assertScanningMatches( fastqFile, FastqFileDeflator::new );
+
+        for ( final String fastq : new String [] { "test.fq", "fakeSeqData.fq",
+                "fakeSeqData_2.fq" } )
+            assertScanningMatches( new File( RESOURCES_FOLDER + fastq ), FastqFileDeflator::new );
+    }
+}
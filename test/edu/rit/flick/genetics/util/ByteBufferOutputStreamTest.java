@@ -0,0 +1,118 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class ByteBufferOutputStreamTest
+{
+    private static final int BYTES_TO_TEST = 100000;
+
+    private static final int DRAIN_SIZE    = 1000;
+
+    /**
+     * Writes random bytes through every kind of write.
+     *
+     * @return what was written
+     */
+    private byte [] write( final ByteBufferOutputStream out ) throws IOException
+    {
+        final Random random = new Random( 0 );
+        final ByteBuffer written = ByteBuffer.allocate( BYTES_TO_TEST + 2000 );
+        while ( written.position() < BYTES_TO_TEST )
+            switch ( random.nextInt( 4 ) )
+            {
+            case 0:
+                final byte b = (byte) random.nextInt();
+                out.put( b );
+                written.put( b );
+                break;
+            case 1:
+                final long l = random.nextLong();
+                out.putLong( l );
+                written.putLong( l );
+                break;
+            case 2:
+                final ByteBuffer buffer = ByteBuffer.allocate( random.nextInt( 1500 ) + 2 );
+                random.nextBytes( buffer.array() );
+                buffer.position( 1 ).limit( buffer.capacity() - 1 );
+                written.put( buffer.array(), 1, buffer.remaining() );
+                out.write( buffer );
+                assertEquals( buffer.limit(), buffer.position() );
+                break;
+            default:
+                final byte [] bytes = new byte [random.nextInt( 50 )];
+                random.nextBytes( bytes );
+                out.write( bytes );
+                written.put( bytes );
+            }
+        return Arrays.copyOf( written.array(), written.position() );
+    }
+
+    @Test
+    public void testDrain() throws IOException
+    {
+        final ByteArrayOutputStream drained = new ByteArrayOutputStream();
+        final List<Integer> drains = new ArrayList<Integer>();
+        final ByteBufferOutputStream out = ByteBufferOutputStream.drain( DRAIN_SIZE, bytes -> {
+            drains.add( bytes.remaining() );
+            drained.write( bytes.array(), bytes.arrayOffset() + bytes.position(),
+                bytes.remaining() );
+        } );
+
+        final byte [] written = write( out );
+        assertEquals( written.length, out.position() );
+        out.close();
+
+        assertArrayEquals( written, drained.toByteArray() );
+        for ( final int drain : drains.subList( 0, drains.size() - 1 ) )
+            assertEquals( DRAIN_SIZE, drain );
+        assertTrue( drains.get( drains.size() - 1 ) > 0 );
+    }
+
+    @Test
+    public void testDrainNothing() throws IOException
+    {
+        final List<Integer> drains = new ArrayList<Integer>();
+        final ByteBufferOutputStream out = ByteBufferOutputStream.drain( DRAIN_SIZE,
+            bytes -> drains.add( bytes.remaining() ) );
+        out.close();
+        out.close();
+
+        assertEquals( Arrays.asList( 0 ), drains );
+    }
+
+    @Test
+    public void testGrow() throws IOException
+    {
+        final ByteBufferOutputStream out = ByteBufferOutputStream.grow();
+
+        final byte [] written = write( out );
+        assertEquals( written.length, out.position() );
+        assertTrue( out.length() - out.position() < out.getByteBuffers()[0].capacity() );
+
+        final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        out.writeTo( copy );
+        assertArrayEquals( written, copy.toByteArray() );
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class LocationIndexWriterTest
+{
+    private static final int LOCATIONS_TO_TEST = 10000;
+
+    /**
+     * @return increasing locations, mostly the same distance apart
+     */
+    private long [] locations()
+    {
+        final Random random = new Random( 0 );
+        final long [] locations = new long [LOCATIONS_TO_TEST];
+        for ( int l = 1; l < locations.length; l++ )
+            locations[l] = locations[l - 1] + ( random.nextInt( 3 ) == 0
+                    ? random.nextInt( 3 ) == 0 ? random.nextLong() >>> 30 : random.nextInt( 1000 )
+                    : 320 );
+        return locations;
+    }
+
+    private byte [] write( final long [] locations ) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final LocationIndexWriter writer = new LocationIndexWriter( out );
+        for ( final long location : locations )
+            writer.write( location );
+        writer.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testLocations() throws IOException
+    {
+        final long [] locations = locations();
+        final LocationIndexReader reader = new LocationIndexReader(
+                new ByteArrayInputStream( write( locations ) ) );
+        for ( final long location : locations )
+        {
+            assertTrue( reader.hasNext() );
+            assertEquals( location, reader.next() );
+        }
+        assertFalse( reader.hasNext() );
+        reader.close();
+    }
+
+    @Test
+    public void testRecordGroups() throws IOException
+    {
+        final long [] locations = locations();
+        final Random random = new Random( 1 );
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final LocationIndexWriter writer = new LocationIndexWriter( out );
+        for ( int from = 0, to; from < locations.length; from = to )
+        {
+            // Some groups hold fewer locations than are held back
+            to = Math.min( locations.length, from + random.nextInt( 6 ) );
+            final LocationIndexWriter group = new LocationIndexWriter(
+                    ByteBufferOutputStream.grow() );
+            group.startRecordGroup();
+            for ( int l = from; l < to; l++ )
+                group.write( locations[l] );
+            writer.merge( group );
+        }
+        writer.close();
+
+        assertArrayEquals( write( locations ), out.toByteArray() );
+    }
+
+    @Test
+    public void testSameDistance() throws IOException
+    {
+        // Records of the same size take a byte each
+        final long [] locations = new long [100];
+        for ( int l = 0; l < locations.length; l++ )
+            locations[l] = l * 1234567L;
+        assertEquals( locations.length - 2,
+            write( locations ).length - write( Arrays.copyOf( locations, 2 ) ).length );
+    }
+}
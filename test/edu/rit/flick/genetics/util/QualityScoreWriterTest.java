@@ -0,0 +1,257 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class QualityScoreWriterTest
+{
+    private static final int READS_TO_TEST = 5000;
+
+    private static final int BLOCK_SIZE    = 1 << 14;
+
+    private void assertScores( final byte [][] reads ) throws IOException
+    {
+        final QualityScoreReader reader = new QualityScoreReader(
+                new ByteArrayInputStream( write( reads ) ) );
+        for ( final byte [] read : reads )
+        {
+            final byte [] scores = new byte [read.length + 1];
+            assertEquals( read.length, reader.read( scores, 1, read.length ) );
+            assertArrayEquals( read, Arrays.copyOfRange( scores, 1, scores.length ) );
+        }
+
+        // There are no scores past the last read
+        assertEquals( 0, reader.read( new byte [10], 0, 10 ) );
+        reader.close();
+    }
+
+    /**
+     * @return the scores of <code>reads</code> binned by
+     *         <code>binning</code>
+     */
+    private byte [][] bin( final byte [][] reads, final QualityBinning binning )
+    {
+        final byte [][] binned = new byte [reads.length] [];
+        for ( int r = 0; r < reads.length; r++ )
+        {
+            binned[r] = new byte [reads[r].length];
+            for ( int s = 0; s < reads[r].length; s++ )
+                binned[r][s] = binning.getBins()[reads[r][s] & 0xFF];
+        }
+        return binned;
+    }
+
+    private int count( final byte [][] reads )
+    {
+        int scores = 0;
+        for ( final byte [] read : reads )
+            scores += read.length;
+        return scores;
+    }
+
+    /**
+     * @return the scores of reads of up to 300 scores, some empty, drifting
+     *         down along each read with the odd byte outside the scores
+     */
+    private byte [][] reads()
+    {
+        final Random random = new Random( 0 );
+        final byte [][] reads = new byte [READS_TO_TEST] [];
+        for ( int r = 0; r < reads.length; r++ )
+        {
+            reads[r] = new byte [random.nextInt( 10 ) == 0 ? 0 : random.nextInt( 300 ) + 1];
+            int score = 40;
+            for ( int s = 0; s < reads[r].length; s++ )
+            {
+                score = Math.max( 2, Math.min( 41, score + random.nextInt( 5 ) - 3 ) );
+                reads[r][s] = (byte) ( score + '!' );
+                if ( random.nextInt( 1000 ) == 0 )
+                    reads[r][s] = (byte) random.nextInt( 1 << Byte.SIZE );
+            }
+        }
+        return reads;
+    }
+
+    /**
+     * @return the scores of <code>reads</code> written a random number of
+     *         reads to a group of records
+     */
+    private byte [] mergeRecordGroups( final byte [][] reads ) throws IOException
+    {
+        final Random random = new Random( 1 );
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final QualityScoreWriter writer = new QualityScoreWriter( out, BLOCK_SIZE );
+        for ( int from = 0, to; from < reads.length; from = to )
+        {
+            // Some groups fall within a block, some span several
+            to = Math.min( reads.length, from +
+                    ( random.nextBoolean() ? random.nextInt( 20 ) : random.nextInt( 500 ) ) );
+            final QualityScoreWriter group = new QualityScoreWriter(
+                    ByteBufferOutputStream.grow(), BLOCK_SIZE );
+            group.startRecordGroup();
+            write( group, reads, from, to );
+            writer.merge( group );
+        }
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private byte [] write( final byte [][] reads ) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final QualityScoreWriter writer = new QualityScoreWriter( out, BLOCK_SIZE );
+        write( writer, reads, 0, reads.length );
+        writer.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the scores of <code>reads</code> from <code>from</code> to
+     * <code>to</code>.
+     */
+    private void write(
+            final QualityScoreWriter writer,
+            final byte [][] reads,
+            final int from,
+            final int to ) throws IOException
+    {
+        long position = 0;
+        for ( int r = 0; r < from; r++ )
+            position += reads[r].length;
+        for ( int r = from; r < to; r++ )
+        {
+            writer.write( position, reads[r], 0, reads[r].length );
+            position += reads[r].length;
+        }
+    }
+
+    @Test
+    public void testBinnedScores() throws IOException
+    {
+        final byte [][] reads = bin( reads(), QualityBinning.fourBin() );
+        assertScores( reads );
+        assertScores( bin( reads(), QualityBinning.eightBin() ) );
+        assertScores( bin( reads(), QualityBinning.threshold( 30 ) ) );
+
+        // Runs of binned scores take less than a bit a score
+        assertTrue( write( reads ).length < count( reads ) / 8 );
+
+        // Runs longer than a block, and of nothing but one score
+        final byte [][] runs = new byte [3] [];
+        runs[0] = new byte [BLOCK_SIZE * 20];
+        Arrays.fill( runs[0], (byte) 'F' );
+        Arrays.fill( runs[0], BLOCK_SIZE * 18, BLOCK_SIZE * 18 + 1, (byte) '#' );
+        runs[1] = new byte [BLOCK_SIZE * 20];
+        Arrays.fill( runs[1], (byte) ',' );
+        runs[2] = new byte [] { 'F', ',' };
+        assertScores( runs );
+    }
+
+    @Test
+    public void testCompression() throws IOException
+    {
+        final byte [][] reads = reads();
+
+        // Scores that drift take fewer than three bits each
+        assertTrue( write( reads ).length < count( reads ) * 3 / 8 );
+    }
+
+    @Test
+    public void testLongReads() throws IOException
+    {
+        // Every so often a read of several blocks
+        final byte [][] reads = reads();
+        final Random random = new Random( 3 );
+        for ( int r = 0; r < reads.length; r += 200 )
+        {
+            reads[r] = new byte [BLOCK_SIZE * 3 + random.nextInt( BLOCK_SIZE )];
+            for ( int s = 0; s < reads[r].length; s++ )
+                reads[r][s] = (byte) ( '!' + 20 + random.nextInt( 10 ) );
+        }
+        assertScores( reads );
+        assertScores( bin( reads, QualityBinning.fourBin() ) );
+        assertArrayEquals( write( reads ), mergeRecordGroups( reads ) );
+
+        // Each block is written as soon as it ends, not once the read does
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final QualityScoreWriter writer = new QualityScoreWriter( out, BLOCK_SIZE );
+        writer.startRead( 0 );
+        writer.writePart( reads[0], 0, BLOCK_SIZE );
+        assertEquals( 0, out.size() );
+        writer.writePart( reads[0], BLOCK_SIZE, 1 );
+        assertTrue( out.size() > 0 );
+        writer.close();
+    }
+
+    @Test
+    public void testReadParts() throws IOException
+    {
+        final Random random = new Random( 2 );
+        for ( final byte [][] reads : new byte [][][] { reads(),
+                bin( reads(), QualityBinning.fourBin() ) } )
+        {
+            // Written and read a few scores at a time
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final QualityScoreWriter writer = new QualityScoreWriter( out, BLOCK_SIZE );
+            long position = 0;
+            for ( final byte [] read : reads )
+            {
+                writer.startRead( position );
+                for ( int s = 0, part; s < read.length; s += part )
+                {
+                    part = Math.min( read.length - s, random.nextInt( 40 ) );
+                    writer.writePart( read, s, part );
+                }
+                position += read.length;
+            }
+            writer.close();
+            assertArrayEquals( write( reads ), out.toByteArray() );
+
+            final QualityScoreReader reader = new QualityScoreReader(
+                    new ByteArrayInputStream( out.toByteArray() ) );
+            for ( final byte [] read : reads )
+            {
+                final byte [] scores = new byte [read.length];
+                reader.startRead( read.length );
+                for ( int s = 0, part; s < read.length; s += part )
+                    part = reader.readPart( scores, s,
+                        Math.min( read.length - s, 1 + random.nextInt( 40 ) ) );
+                assertEquals( 0, reader.readPart( new byte [10], 0, 10 ) );
+                assertArrayEquals( read, scores );
+            }
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testRecordGroups() throws IOException
+    {
+        final byte [][] reads = reads();
+        assertArrayEquals( write( reads ), mergeRecordGroups( reads ) );
+    }
+
+    @Test
+    public void testScores() throws IOException
+    {
+        assertScores( reads() );
+    }
+}
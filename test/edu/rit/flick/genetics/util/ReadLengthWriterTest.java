@@ -0,0 +1,125 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class ReadLengthWriterTest
+{
+    private static final int READS_TO_TEST = 10000;
+
+    private void assertLengths( final long [] lengths, final ReadLengthReader reader )
+            throws IOException
+    {
+        for ( final long length : lengths )
+        {
+            assertTrue( reader.hasNext() );
+            assertEquals( length, reader.next() );
+        }
+        assertFalse( reader.hasNext() );
+        reader.close();
+    }
+
+    /**
+     * @return lengths of reads, starting with a run of the same length, some
+     *         empty and some longer than a short
+     */
+    private long [] lengths()
+    {
+        final Random random = new Random( 0 );
+        final long [] lengths = new long [READS_TO_TEST];
+        Arrays.fill( lengths, 150 );
+        for ( int l = 100; l < lengths.length; l++ )
+            if ( random.nextInt( 3 ) == 0 )
+                lengths[l] = random.nextInt( 10 ) == 0 ? random.nextInt( 1 << 20 )
+                        : random.nextInt( 200 );
+        return lengths;
+    }
+
+    private byte [] write( final long [] lengths ) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ReadLengthWriter writer = new ReadLengthWriter( out );
+        for ( final long length : lengths )
+            writer.write( length );
+        writer.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testConstantLengths() throws IOException
+    {
+        final long [] lengths = new long [READS_TO_TEST];
+        Arrays.fill( lengths, 100000 );
+        final byte [] written = write( lengths );
+        assertTrue( written.length <= 6 );
+        assertLengths( lengths, new ReadLengthReader( new ByteArrayInputStream( written ) ) );
+
+        assertEquals( 0, write( new long [0] ).length );
+        assertLengths( new long [0], new ReadLengthReader( new ByteArrayInputStream(
+            new byte [0] ) ) );
+    }
+
+    @Test
+    public void testLengths() throws IOException
+    {
+        final long [] lengths = lengths();
+        assertLengths( lengths,
+            new ReadLengthReader( new ByteArrayInputStream( write( lengths ) ) ) );
+    }
+
+    @Test
+    public void testRecordGroups() throws IOException
+    {
+        final long [] lengths = lengths();
+        final Random random = new Random( 1 );
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ReadLengthWriter writer = new ReadLengthWriter( out );
+        for ( int from = 0, to; from < lengths.length; from = to )
+        {
+            // Some groups are empty, some hold nothing but reads of one length
+            to = Math.min( lengths.length, from + random.nextInt( 40 ) );
+            final ReadLengthWriter group = new ReadLengthWriter( ByteBufferOutputStream.grow() );
+            group.startRecordGroup();
+            for ( int l = from; l < to; l++ )
+                group.write( lengths[l] );
+            writer.merge( group );
+        }
+        writer.close();
+
+        assertArrayEquals( write( lengths ), out.toByteArray() );
+    }
+
+    @Test
+    public void testShortLengths() throws IOException
+    {
+        final long [] lengths = { 0, 1, 150, 255, 256, 32767, 32768, 65535 };
+        final ByteArrayOutputStream shorts = new ByteArrayOutputStream();
+        for ( final long length : lengths )
+        {
+            shorts.write( (int) length >> 8 );
+            shorts.write( (int) length );
+        }
+        assertLengths( lengths,
+            new ReadLengthReader( new ByteArrayInputStream( shorts.toByteArray() ), false ) );
+    }
+}
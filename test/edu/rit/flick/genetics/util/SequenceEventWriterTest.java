@@ -0,0 +1,226 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class SequenceEventWriterTest
+{
+    private static final int    EVENTS_TO_TEST = 10000;
+
+    /**
+     * Symbols with and without codes of their own, including the delimiters
+     * of the old text format.
+     */
+    private static final String SYMBOLS        = "nRYKMSWBDHVrykmsw-|.*X";
+
+    private void assertEvents( final List<long []> events, final SequenceEventReader reader )
+            throws IOException
+    {
+        for ( final long [] event : events )
+        {
+            assertTrue( reader.next() );
+            assertEquals( event[0], reader.getStart() );
+            assertEquals( event[1], reader.getEnd() );
+            if ( event.length > 2 )
+                assertEquals( event[2], reader.getSymbol() );
+        }
+        assertFalse( reader.next() );
+        reader.close();
+    }
+
+    /**
+     * @return runs as <code>{ start, end }</code>, some empty, some next to
+     *         each other and some far apart
+     */
+    private List<long []> runs()
+    {
+        final Random random = new Random( 0 );
+        final List<long []> runs = new ArrayList<long []>();
+        long position = 0;
+        for ( int r = 0; r < EVENTS_TO_TEST; r++ )
+        {
+            position += random.nextInt( 4 ) == 0 ? 0
+                    : random.nextInt( 10 ) == 0 ? random.nextLong() >>> 30 : random.nextInt( 500 );
+            final long end = position + random.nextInt( 300 );
+            runs.add( new long [] { position, end } );
+            position = end;
+        }
+        return runs;
+    }
+
+    /**
+     * @return symbols as <code>{ position, position + 1, symbol }</code>
+     */
+    private List<long []> symbols()
+    {
+        final Random random = new Random( 0 );
+        final List<long []> symbols = new ArrayList<long []>();
+        long position = 0;
+        for ( int s = 0; s < EVENTS_TO_TEST; s++ )
+        {
+            position += random.nextInt( 3 ) == 0 ? 0
+                    : random.nextInt( 10 ) == 0 ? random.nextLong() >>> 30 : random.nextInt( 500 );
+            symbols.add( new long [] { position, position + 1,
+                    SYMBOLS.charAt( random.nextInt( SYMBOLS.length() ) ) } );
+            position++;
+        }
+        return symbols;
+    }
+
+    /**
+     * Writes <code>events</code> from <code>from</code> to <code>to</code>,
+     * runs ending before they start where they are split between groups.
+     */
+    private void write(
+            final SequenceEventWriter writer,
+            final List<long []> events,
+            final int from,
+            final int to,
+            final boolean startsInRun,
+            final boolean endsInRun ) throws IOException
+    {
+        for ( int e = from; e < to; e++ )
+        {
+            final long [] event = events.get( e );
+            if ( event.length > 2 )
+                writer.writeSymbol( event[0], (byte) event[2] );
+            else
+            {
+                if ( e > from || !startsInRun )
+                    writer.startRun( event[0] );
+                if ( e < to - 1 || !endsInRun )
+                    writer.endRun( event[1] );
+            }
+        }
+    }
+
+    private byte [] write( final List<long []> events, final boolean symbols )
+            throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final SequenceEventWriter writer = symbols ? SequenceEventWriter.symbols( out )
+                : SequenceEventWriter.runs( out );
+        write( writer, events, 0, events.size(), false, false );
+        writer.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes <code>events</code> in groups of records, splitting runs between
+     * groups, and merges the groups.
+     */
+    private byte [] writeRecordGroups( final List<long []> events, final boolean symbols )
+            throws IOException
+    {
+        final Random random = new Random( 1 );
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final SequenceEventWriter writer = symbols ? SequenceEventWriter.symbols( out )
+                : SequenceEventWriter.runs( out );
+
+        boolean inRun = false;
+        for ( int from = 0, to; from < events.size(); from = to )
+        {
+            // Some groups hold no more than part of a run
+            to = Math.min( events.size(), from + random.nextInt( 20 ) + 1 );
+            final boolean endsInRun = !symbols && random.nextBoolean();
+
+            final SequenceEventWriter group = symbols
+                    ? SequenceEventWriter.symbols( ByteBufferOutputStream.grow() )
+                    : SequenceEventWriter.runs( ByteBufferOutputStream.grow() );
+            group.startRecordGroup( inRun );
+            write( group, events, from, to, inRun, endsInRun );
+            writer.merge( group );
+
+            if ( endsInRun )
+            {
+                // The rest of the run is all the next group holds
+                final SequenceEventWriter rest = SequenceEventWriter
+                        .runs( ByteBufferOutputStream.grow() );
+                rest.startRecordGroup( true );
+                writer.merge( rest );
+                to--;
+            }
+            inRun = endsInRun;
+        }
+
+        writer.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRecordGroups() throws IOException
+    {
+        assertArrayEquals( write( runs(), false ), writeRecordGroups( runs(), false ) );
+        assertArrayEquals( write( symbols(), true ), writeRecordGroups( symbols(), true ) );
+    }
+
+    @Test
+    public void testRuns() throws IOException
+    {
+        final List<long []> runs = runs();
+        assertEvents( runs, SequenceEventReader
+                .runs( new ByteArrayInputStream( write( runs, false ) ) ) );
+    }
+
+    @Test
+    public void testSymbols() throws IOException
+    {
+        final List<long []> symbols = symbols();
+        final byte [] written = write( symbols, true );
+        assertEvents( symbols, SequenceEventReader.symbols( new ByteArrayInputStream( written ) ) );
+
+        // Symbols with codes take a byte when close to each other
+        final List<long []> close = new ArrayList<long []>();
+        for ( long position = 0; position < 100; position += 7 )
+            close.add( new long [] { position, position + 1, 'R' } );
+        assertEquals( close.size(), write( close, true ).length );
+    }
+
+    @Test
+    public void testTextRuns() throws IOException
+    {
+        final List<long []> runs = runs();
+        final StringBuilder text = new StringBuilder();
+        for ( final long [] run : runs )
+            text.append( Long.toHexString( run[0] ).toUpperCase() ).append( '-' )
+                    .append( Long.toHexString( run[1] ).toUpperCase() ).append( '|' );
+
+        assertEvents( runs, SequenceEventReader
+                .textRuns( new ByteArrayInputStream( text.toString().getBytes() ) ) );
+    }
+
+    @Test
+    public void testTextSymbols() throws IOException
+    {
+        final List<long []> symbols = symbols();
+
+        final StringBuilder text = new StringBuilder();
+        for ( final long [] symbol : symbols )
+            text.append( Long.toHexString( symbol[0] ) ).append( '-' )
+                    .append( (char) symbol[2] ).append( '|' );
+
+        assertEvents( symbols, SequenceEventReader
+                .textSymbols( new ByteArrayInputStream( text.toString().getBytes() ) ) );
+    }
+}
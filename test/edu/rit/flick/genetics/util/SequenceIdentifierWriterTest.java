@@ -0,0 +1,168 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class SequenceIdentifierWriterTest
+{
+    private static final int IDENTIFIERS_TO_TEST = 10000;
+
+    /**
+     * @return Illumina read names, with a few that are nothing like them
+     */
+    private List<byte []> identifiers()
+    {
+        final Random random = new Random( 0 );
+        final List<byte []> identifiers = new ArrayList<byte []>();
+        int tile = 1101, x = 1000;
+        for ( int i = 0; i < IDENTIFIERS_TO_TEST; i++ )
+        {
+            if ( random.nextInt( 500 ) == 0 )
+                tile++;
+            x += random.nextInt( 50 );
+            String identifier = String.format( "A00123:45:HXXXXDSXX:1:%d:%d:%d %d:N:0:%s",
+                tile, x, random.nextInt( 30000 ), i % 2 + 1,
+                random.nextInt( 20 ) == 0 ? "ACGN" : "ACGT" );
+            switch ( random.nextInt( 200 ) )
+            {
+                case 0:
+                    identifier = "";
+                    break;
+                case 1:
+                    identifier = "SRR001.007:0:00:" + Long.MAX_VALUE + ":" + Long.MAX_VALUE + "9";
+                    break;
+                case 2:
+                    identifier = "::a::" + random.nextInt() + "|-";
+                    break;
+                case 3:
+                    identifier = "a.b.c.d.e.f.g.h.i.j.k.l.m.n.o.p.q.r.s.t.u.v " + i;
+                    break;
+                case 4:
+                    identifier = "r\u00e9ad\t" + i;
+                    break;
+            }
+            identifiers.add( identifier.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        return identifiers;
+    }
+
+    private SequenceIdentifierReader reader( final Written written )
+    {
+        final InputStream [] columns = new InputStream [written.columns.size()];
+        for ( int c = 0; c < columns.length; c++ )
+            columns[c] = new ByteArrayInputStream( written.columns.get( c ).toByteArray() );
+        return new SequenceIdentifierReader(
+                new ByteArrayInputStream( written.layout.toByteArray() ), columns );
+    }
+
+    @Test
+    public void testIdentifiers() throws IOException
+    {
+        final List<byte []> identifiers = identifiers();
+        final Written written = new Written();
+        for ( final byte [] identifier : identifiers )
+            written.writer.write( identifier, 0, identifier.length );
+        written.writer.close();
+
+        final SequenceIdentifierReader reader = reader( written );
+        for ( final byte [] identifier : identifiers )
+        {
+            assertTrue( reader.next() );
+            assertArrayEquals( identifier,
+                Arrays.copyOf( reader.getIdentifier(), reader.getLength() ) );
+        }
+        assertFalse( reader.next() );
+        reader.close();
+
+        // Fields past the last column share it
+        assertEquals( SequenceIdentifierWriter.MAX_COLUMNS, written.columns.size() );
+    }
+
+    @Test
+    public void testRecordGroups() throws IOException
+    {
+        final List<byte []> identifiers = identifiers();
+        final Written whole = new Written();
+        for ( final byte [] identifier : identifiers )
+            whole.writer.write( identifier, 0, identifier.length );
+
+        final Random random = new Random( 1 );
+        final Written merged = new Written();
+        for ( int from = 0, to; from < identifiers.size(); from = to )
+        {
+            // Some groups hold no identifiers
+            to = Math.min( identifiers.size(), from + random.nextInt( 20 ) );
+            final SequenceIdentifierWriter group = new SequenceIdentifierWriter(
+                    ByteBufferOutputStream.grow(), column -> ByteBufferOutputStream.grow() );
+            group.startRecordGroup();
+            for ( final byte [] identifier : identifiers.subList( from, to ) )
+                group.write( identifier, 0, identifier.length );
+            merged.writer.merge( group );
+        }
+
+        assertArrayEquals( whole.layout.toByteArray(), merged.layout.toByteArray() );
+        assertEquals( whole.columns.size(), merged.columns.size() );
+        for ( int c = 0; c < whole.columns.size(); c++ )
+            assertArrayEquals( whole.columns.get( c ).toByteArray(),
+                merged.columns.get( c ).toByteArray() );
+    }
+
+    @Test
+    public void testSize() throws IOException
+    {
+        // Fields the same as before take no more than their kind
+        final Written written = new Written();
+        final byte [] identifier = "A00123:45:HXXXXDSXX:1:1101:1234:1000 1:N:0:ACGT".getBytes();
+        for ( int i = 0; i < 100; i++ )
+            written.writer.write( identifier, 0, identifier.length );
+
+        final int fields = 11;
+        assertEquals( 1 + 1 + fields - 1 + fields + 99 * ( 1 + fields ),
+            written.layout.size() );
+        // Only the first is written to the columns
+        int columns = 0;
+        for ( final ByteArrayOutputStream column : written.columns )
+            columns += column.size();
+        assertTrue( columns <= identifier.length + fields );
+    }
+
+    /**
+     * A writer into memory.
+     */
+    private static class Written
+    {
+        final ByteArrayOutputStream       layout  = new ByteArrayOutputStream();
+        final List<ByteArrayOutputStream> columns = new ArrayList<ByteArrayOutputStream>();
+
+        final SequenceIdentifierWriter    writer  = new SequenceIdentifierWriter( layout,
+                column -> {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    columns.add( out );
+                    return out;
+                } );
+    }
+}
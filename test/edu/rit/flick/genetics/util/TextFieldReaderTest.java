@@ -0,0 +1,79 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class TextFieldReaderTest
+{
+    private static final byte NEWLINE = '\n', PIPE = '|';
+
+    private TextFieldReader reader( final String text )
+    {
+        return new TextFieldReader( new ByteArrayInputStream( text.getBytes() ) );
+    }
+
+    @Test
+    public void testFields() throws IOException
+    {
+        // Longer than both the buffer and the field it starts with
+        final char [] longField = new char [40000];
+        Arrays.fill( longField, 'x' );
+
+        final TextFieldReader reader = reader( "0|first\n\n" + new String( longField ) +
+                "\n12|last" );
+        assertEquals( 0, reader.readNumber( 10 ) );
+        assertTrue( reader.skip( PIPE ) );
+        assertEquals( 5, reader.readField( NEWLINE ) );
+        assertEquals( "first", new String( reader.getField(), 0, 5 ) );
+        assertEquals( 0, reader.readField( NEWLINE ) );
+        assertEquals( longField.length, reader.readField( NEWLINE ) );
+        assertEquals( new String( longField ),
+            new String( reader.getField(), 0, longField.length ) );
+        assertEquals( 12, reader.readNumber( 10 ) );
+        assertFalse( reader.skip( NEWLINE ) );
+        assertTrue( reader.skip( PIPE ) );
+        assertEquals( 4, reader.readField( NEWLINE ) );
+        assertEquals( "last", new String( reader.getField(), 0, 4 ) );
+        assertFalse( reader.hasNext() );
+        assertEquals( -1, reader.read() );
+        reader.close();
+    }
+
+    @Test
+    public void testNumbers() throws IOException
+    {
+        final TextFieldReader reader = reader( "7FFFFFFFFFFFFFFF-ab| \r\n 19af" );
+        assertEquals( Long.MAX_VALUE, reader.readNumber( 16 ) );
+        assertTrue( reader.skip( (byte) '-' ) );
+        assertEquals( 0xAB, reader.readNumber( 16 ) );
+        assertEquals( '|', reader.read() );
+        reader.skipWhitespace();
+        assertEquals( 19, reader.readNumber( 10 ) );
+        assertEquals( 0xAF, reader.readNumber( 16 ) );
+        assertFalse( reader.hasNext() );
+        reader.close();
+    }
+
+    @Test( expected = IOException.class )
+    public void testNumberMissing() throws IOException
+    {
+        reader( "|12" ).readNumber( 10 );
+    }
+}
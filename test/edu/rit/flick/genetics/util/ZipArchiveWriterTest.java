@@ -0,0 +1,123 @@
+/**
+ *  COPYRIGHT (C) 2015 Alex Aiezza. All Rights Reserved.
+ *
+ *  See the LICENSE for the specific language governing permissions and
+ *  limitations under the License provided with this project.
+ */
+package edu.rit.flick.genetics.util;
+
+import static edu.rit.flick.genetics.util.ZipArchiveWriter.getPartName;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+/**
+ * @author Alex Aiezza
+ *
+ */
+public class ZipArchiveWriterTest
+{
+    private static final String [] NAMES = { "Large.hcf", "Stored.hcf", "Small.txt",
+            "Empty.txt" };
+
+    private File                   workingDirectory;
+
+    @Before
+    public void setUp()
+    {
+        workingDirectory = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown()
+    {
+        FileUtils.deleteQuietly( workingDirectory );
+    }
+
+    /**
+     * Files written at the same time are each written in parts of
+     * {@link ZipArchiveWriter#PART_SIZE}, with an empty file still a part of
+     * its own, and read back whole.
+     */
+    @Test
+    public void testFilesWrittenTogether() throws IOException
+    {
+        final Random random = new Random( 0 );
+        final int [] sizes = { ZipArchiveWriter.PART_SIZE * 5 / 2,
+                ZipArchiveWriter.PART_SIZE * 3 / 2, 1000, 0 };
+        final ByteArrayOutputStream [] expected = new ByteArrayOutputStream [NAMES.length];
+
+        final File archive = new File( workingDirectory, "archive.zip" );
+        try ( final ZipArchiveWriter writer = new ZipArchiveWriter( archive ) )
+        {
+            final OutputStream [] files = { writer.createFile( NAMES[0] ),
+                    writer.createStoredFile( NAMES[1] ), writer.createFile( NAMES[2] ),
+                    writer.createFile( NAMES[3] ) };
+            for ( int f = 0; f < files.length; f++ )
+                expected[f] = new ByteArrayOutputStream();
+
+            final byte [] bytes = new byte [1 << 16];
+            for ( boolean writing = true; writing; )
+            {
+                writing = false;
+                for ( int f = 0; f < files.length; f++ )
+                {
+                    final int length = Math.min( sizes[f] - expected[f].size(),
+                        random.nextInt( bytes.length ) );
+                    if ( length == 0 )
+                        continue;
+                    // Compressible, but not too much
+                    for ( int b = 0; b < length; b++ )
+                        bytes[b] = (byte) ( 'A' + random.nextInt( 4 ) );
+                    files[f].write( bytes, 0, length );
+                    expected[f].write( bytes, 0, length );
+                    writing = true;
+                }
+            }
+
+            // The stored file is finished while the large one is still open
+            files[1].close();
+        }
+
+        final Set<String> parts = new TreeSet<String>();
+        for ( int f = 0; f < NAMES.length; f++ )
+            for ( int part = 0; part == 0 || part * ZipArchiveWriter.PART_SIZE < sizes[f]; part++ )
+                parts.add( getPartName( NAMES[f], part ) );
+        try ( final ZipFile zipFile = new ZipFile( archive ) )
+        {
+            final Set<String> entries = new TreeSet<String>();
+            for ( final ZipEntry entry : Collections.list( zipFile.entries() ) )
+                entries.add( entry.getName() );
+            assertEquals( parts, entries );
+        }
+
+        try ( final ZipArchiveReader reader = new ZipArchiveReader( archive ) )
+        {
+            for ( int f = 0; f < NAMES.length; f++ )
+                try ( final InputStream in = reader.openFile( NAMES[f] ) )
+                {
+                    assertArrayEquals( NAMES[f], expected[f].toByteArray(),
+                        ByteStreams.toByteArray( in ) );
+                }
+        }
+    }
+}
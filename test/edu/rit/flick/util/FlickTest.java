@@ -18,6 +18,7 @@ package edu.rit.flick.util;
 import static java.lang.String.format;
 import static junitx.framework.FileAssert.assertEquals;
 import static org.apache.commons.io.FileUtils.getFile;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -26,6 +27,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.nio.file.NoSuchFileException;
@@ -222,6 +224,30 @@ public class FlickTest
         testFASTQfile( "SRR390728_1" );
     }
 
+    @Test
+    public void standardInput_fna() throws IOException
+    {
+        testStandardInput( "NC_008512.fna", FastaFileArchiver.DEFAULT_DEFLATED_FASTA_EXTENSION );
+    }
+
+    @Test
+    public void standardInput_fq() throws IOException
+    {
+        testStandardInput( "fakeSeqData.fq", FastqFileArchiver.DEFAULT_DEFLATED_FASTQ_EXTENSION );
+    }
+
+    @Test
+    public void standardOutput_fna() throws IOException
+    {
+        testStandardOutput( "NC_008512.fna" );
+    }
+
+    @Test
+    public void standardOutput_fq() throws IOException
+    {
+        testStandardOutput( "fakeSeqData.fq" );
+    }
+
     @Test
     public void test_fna()
     {
@@ -351,4 +377,54 @@ public class FlickTest
             comAndDecom = null;
         }
     }
+
+    /**
+     * Pipes the file into flick, which must find the format from the
+     * extension of the output file alone.
+     */
+    private final void testStandardInput( final String fileName, final String deflatedExtension )
+            throws IOException
+    {
+        originalFile = getFile( TEST_RESOURCES_FOLDER, fileName );
+        flickedFile = getFile( TEST_RESOURCES_FOLDER, "standardInput" + deflatedExtension );
+        unflickedFile = getFile( TEST_RESOURCES_FOLDER,
+            "standardInput." + Files.getFileExtension( fileName ) );
+
+        final InputStream oldIn = System.in;
+        try ( final InputStream in = new FileInputStream( originalFile ) )
+        {
+            System.setIn( in );
+            Flick.main( "-", flickedFile.getPath() );
+        } finally
+        {
+            System.setIn( oldIn );
+        }
+
+        Unflick.main( flickedFile.getPath(), unflickedFile.getPath() );
+
+        assertTrue( FileUtils.contentEquals( originalFile, unflickedFile ) );
+    }
+
+    /**
+     * Unflicks to the standard output, which must carry the original file and
+     * nothing else.
+     */
+    private final void testStandardOutput( final String fileName ) throws IOException
+    {
+        originalFile = getFile( TEST_RESOURCES_FOLDER, fileName );
+        flickedFile = getFile( TEST_RESOURCES_FOLDER, "standardOutput" +
+                REGISTRY.getDeflatedExtension( "." + Files.getFileExtension( fileName ) ) );
+
+        Flick.main( originalFile.getPath(), flickedFile.getPath() );
+
+        outContent.flush();
+        outContent.reset();
+
+        Unflick.main( "-c", flickedFile.getPath() );
+
+        final byte [] unflicked = outContent.toByteArray();
+        outContent.reset();
+
+        assertArrayEquals( Files.toByteArray( originalFile ), unflicked );
+    }
 }